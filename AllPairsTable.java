@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * This class precomputes the shortest paths between every pair of nodes in a
+ * CompactGraph, so that each query afterwards is answered with table lookups
+ * instead of a search. The table is filled by one Dijkstra search per source
+ * node, and those searches run in parallel since each of them only writes the
+ * row of its own source.
+ *
+ * Both tables are flat arrays with one row per source node: the cost of the
+ * shortest path from the node with id s to the node with id t is stored at
+ * distances[s * n + t], and the id of the first node after s on that path is
+ * stored at nextHops[s * n + t]. A table therefore takes 12 bytes per pair of
+ * nodes, which is why it is only meant for small graphs.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class AllPairsTable<NodeType> {
+
+    /**
+     * The largest number of nodes that a table can be built for, since larger
+     * tables would have more entries than an array can hold.
+     */
+    public static final int MAX_NODE_COUNT = 46340;
+
+    // the graph this table was built from
+    protected CompactGraph<NodeType> graph;
+
+    // the number of nodes in graph, which is also the length of every table row
+    protected int n;
+
+    // the cost of every shortest path (+infinity when there is none), and the id of the
+    // first node after the source on that path (-1 when there is none, or when s == t)
+    protected double[] distances;
+    protected int[] nextHops;
+
+    /**
+     * Builds the tables for every pair of nodes in the provided graph.
+     *
+     * @param graph the graph to precompute the shortest paths of
+     * @throws IllegalArgumentException if graph has more than MAX_NODE_COUNT nodes
+     */
+    public AllPairsTable(CompactGraph<NodeType> graph) {
+        if (graph.getNodeCount() > MAX_NODE_COUNT)
+            throw new IllegalArgumentException("graph is too large for an all-pairs table");
+        this.graph = graph;
+        this.n = graph.getNodeCount();
+        this.distances = new double[n * n];
+        this.nextHops = new int[n * n];
+        IntStream.range(0, n).parallel().forEach(this::fillRow);
+    }
+
+    // runs a full Dijkstra search from source and writes its results into the source's row
+    private void fillRow(int source) {
+        int row = source * n;
+        double[] dist = new double[n];
+        int[] order = new int[n];
+        int settledCount = 0;
+        boolean[] settled = new boolean[n];
+        int[] pred = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        dist[source] = 0.0;
+        pred[source] = -1;
+        queue.insert(source, 0.0);
+        while (!queue.isEmpty()) {
+            int node = queue.removeMin();
+            settled[node] = true;
+            order[settledCount++] = node;
+            // relax every edge leaving this node toward an unsettled node
+            for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                int next = graph.targets[e];
+                if (settled[next])
+                    continue;
+                double cost = dist[node] + graph.weights[e];
+                if (queue.insertOrDecrease(next, cost)) {
+                    dist[next] = cost;
+                    pred[next] = node;
+                }
+            }
+        }
+        System.arraycopy(dist, 0, distances, row, n);
+        // nodes are settled after their predecessors, so the first hop toward every node
+        // can be taken from its predecessor's entry in settle order
+        Arrays.fill(nextHops, row, row + n, -1);
+        for (int i = 1; i < settledCount; i++) {
+            int node = order[i];
+            nextHops[row + node] = pred[node] == source ? node : nextHops[row + pred[node]];
+        }
+    }
+
+    /**
+     * Returns the number of nodes covered by this table.
+     *
+     * @return the number of nodes in the graph this table was built from
+     */
+    public int getNodeCount() {
+        return n;
+    }
+
+    /**
+     * Returns the cost of the shortest path between two node ids.
+     *
+     * @param source the id of the starting node
+     * @param target the id of the destination node
+     * @return the cost of that path, or Double.POSITIVE_INFINITY when there is none
+     */
+    public double getDistance(int source, int target) {
+        return distances[source * n + target];
+    }
+
+    /**
+     * Returns the id of the node that follows source on the shortest path
+     * from source to target.
+     *
+     * @param source the id of the starting node
+     * @param target the id of the destination node
+     * @return the id of the next node on that path, or -1 when source is
+     *         target or when there is no path
+     */
+    public int getNextHop(int source, int target) {
+        return nextHops[source * n + target];
+    }
+
+    // looks up the id of a node, reporting missing nodes the way DijkstraGraph does
+    private int nodeId(NodeType data) {
+        int id = graph.getId(data);
+        if (id < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        return id;
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path
+     * from the node with the provided start value through the node with the
+     * provided end value, by following the next hops toward the end node.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        int source = nodeId(start);
+        int target = nodeId(end);
+        if (distances[source * n + target] == Double.POSITIVE_INFINITY)
+            throw new NoSuchElementException("no path found between these nodes");
+        List<NodeType> pathData = new ArrayList<>();
+        pathData.add(start);
+        for (int node = source; node != target; node = nextHops[node * n + target])
+            pathData.add(graph.getData(nextHops[node * n + target]));
+        return pathData;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the node containing the
+     * start data to the node containing the end data.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    public double shortestPathCost(NodeType start, NodeType end) {
+        double cost = distances[nodeId(start) * n + nodeId(end)];
+        if (cost == Double.POSITIVE_INFINITY)
+            throw new NoSuchElementException("no path found between these nodes");
+        return cost;
+    }
+
+}
@@ -1,8 +1,18 @@
-import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.util.Scanner;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /*
  * This backend takes a graph filled with buildings as a construction parameter
@@ -11,18 +21,201 @@ import java.util.NoSuchElementException;
 public class Backend implements BackendInterface {
 
 	/*
-	 * The graph that contains the buildings and paths between them.
+	 * An immutable snapshot of one version of the graph: the graph that contains the
+	 * buildings and paths between them, its total walking time, its version number (which
+	 * grows by one whenever the buildings, paths or route metrics change), and the read-only copy, contraction
+	 * hierarchy and all-pairs table built from it (which are null when they are not used).
+	 * None of these are modified once the snapshot has been created, so any number of
+	 * threads can search them at the same time without locking.
+	 *
+	 * A snapshot that was loaded from a binary snapshot file answers routes straight from the
+	 * mapped file instead, and only copies the buildings and paths into a buildingGraph the
+	 * first time something needs one (such as a change to the paths).
+	 *
+	 * When origins are maintained, a snapshot also holds a frozen copy of the shortest path
+	 * tree from each of them, which answers every route that starts at one of those origins.
+	 * When route metrics are set, it holds a customizable contraction hierarchy of the graph
+	 * that has been customized for each of them.
+	 */
+	private static class GraphSnapshot {
+		private volatile DijkstraGraph<String, Double> buildingGraph;
+		private final MappedGraph mappedGraph;
+		private final double totalWalkingTime;
+		private final boolean directed;
+		private final long version;
+		private final CompactGraph<String> compactGraph;
+		private final ContractionHierarchy<String> hierarchy;
+		private final AllPairsTable<String> allPairsTable;
+		private final MapADT<String, ShortestPathTree<String>> maintainedTrees;
+		private final CustomizableContractionHierarchy<String> customizableHierarchy;
+
+		/*
+		 * Constructor that preprocesses a fully loaded graph for the selected query modes. A
+		 * customizable hierarchy that was already preprocessed for the same buildings and paths
+		 * is reused, and otherwise a new one is preprocessed and customized for every route metric.
+		 */
+		private GraphSnapshot(DijkstraGraph<String, Double> buildingGraph, MappedGraph mappedGraph,
+				double totalWalkingTime, boolean directed, long version, boolean useContractionHierarchy,
+				boolean useAllPairsTable, int allPairsNodeLimit, MapADT<String, ShortestPathTree<String>> maintainedTrees,
+				MapADT<String, CustomizableContractionHierarchy.EdgeWeights<String>> routeMetrics,
+				CustomizableContractionHierarchy<String> customizableHierarchy) {
+			this.buildingGraph = buildingGraph;
+			this.maintainedTrees = maintainedTrees;
+			this.mappedGraph = mappedGraph;
+			this.totalWalkingTime = totalWalkingTime;
+			this.directed = directed;
+			this.version = version;
+			boolean buildTable = useAllPairsTable && graph().getNodeCount() <= allPairsNodeLimit;
+			this.compactGraph = useContractionHierarchy || buildTable ? CompactGraph.fromGraph(buildingGraph()) : null;
+			this.hierarchy = useContractionHierarchy ? new ContractionHierarchy<>(this.compactGraph) : null;
+			this.allPairsTable = buildTable ? new AllPairsTable<>(this.compactGraph) : null;
+			this.customizableHierarchy = customizableHierarchy(routeMetrics, customizableHierarchy);
+		}
+
+		/*
+		 * Constructor for the next version of a snapshot whose route metrics changed, which keeps
+		 * all of its other preprocessing.
+		 */
+		private GraphSnapshot(GraphSnapshot snapshot,
+				MapADT<String, CustomizableContractionHierarchy.EdgeWeights<String>> routeMetrics,
+				CustomizableContractionHierarchy<String> customizableHierarchy) {
+			this.buildingGraph = snapshot.buildingGraph;
+			this.maintainedTrees = snapshot.maintainedTrees;
+			this.mappedGraph = snapshot.mappedGraph;
+			this.totalWalkingTime = snapshot.totalWalkingTime;
+			this.directed = snapshot.directed;
+			this.version = snapshot.version + 1;
+			this.compactGraph = snapshot.compactGraph;
+			this.hierarchy = snapshot.hierarchy;
+			this.allPairsTable = snapshot.allPairsTable;
+			this.customizableHierarchy = customizableHierarchy(routeMetrics, customizableHierarchy);
+		}
+
+		/*
+		 * Returns the customizable hierarchy for the route metrics: null without metrics, the given
+		 * hierarchy when there is one, and otherwise a new one preprocessed and customized for them.
+		 */
+		private CustomizableContractionHierarchy<String> customizableHierarchy(
+				MapADT<String, CustomizableContractionHierarchy.EdgeWeights<String>> routeMetrics,
+				CustomizableContractionHierarchy<String> customizableHierarchy) {
+			if (routeMetrics.getSize() == 0) {
+				return null;
+			}
+			if (customizableHierarchy != null) {
+				return customizableHierarchy;
+			}
+			customizableHierarchy = new CustomizableContractionHierarchy<>(this.compactGraph != null
+					? this.compactGraph : CompactGraph.fromGraph(buildingGraph()));
+			for (String name : routeMetrics.getKeys()) {
+				customizableHierarchy.customize(name, routeMetrics.get(name));
+			}
+			return customizableHierarchy;
+		}
+
+		/*
+		 * Returns the graph that contains the buildings and paths, copying it out of the
+		 * mapped snapshot file the first time it's needed when the snapshot was loaded from one.
+		 */
+		private DijkstraGraph<String, Double> buildingGraph() {
+			DijkstraGraph<String, Double> buildingGraph = this.buildingGraph;
+			if (buildingGraph == null) {
+				synchronized (this) {
+					buildingGraph = this.buildingGraph;
+					if (buildingGraph == null) {
+						buildingGraph = this.mappedGraph.toDijkstraGraph();
+						this.buildingGraph = buildingGraph;
+					}
+				}
+			}
+			return buildingGraph;
+		}
+
+		/*
+		 * Returns the graph that buildings are looked up in: the mapped snapshot file when the
+		 * snapshot was loaded from one, and the buildingGraph otherwise.
+		 */
+		private GraphADT<String, Double> graph() {
+			return this.mappedGraph != null ? this.mappedGraph : this.buildingGraph;
+		}
+	}
+
+	/*
+	 * The snapshot that queries currently run against, or null before a file is loaded. A
+	 * query reads this field once and uses that snapshot until it is done, so replacing it
+	 * never affects a query that is already running.
+	 */
+	private volatile GraphSnapshot snapshot;
+
+	/*
+	 * Whether routes are answered with a contraction hierarchy, which is built once per
+	 * loaded file, instead of with a Dijkstra search over the buildingGraph.
+	 */
+	private boolean useContractionHierarchy = false;
+
+	/*
+	 * Whether routes are answered from a table of all shortest paths, which is built once
+	 * per loaded file, and the largest number of buildings that such a table is built for.
+	 * Larger graphs fall back to searching, since the table grows with the square of the
+	 * number of buildings (12 bytes per pair, so about 50 MB for 2048 buildings).
+	 */
+	private boolean useAllPairsTable = false;
+	private int allPairsNodeLimit = 2048;
+
+	/*
+	 * The lock held while a new snapshot is built and published, so that a reload and a
+	 * change of query mode can't overwrite each other's snapshot. Queries never take it.
+	 */
+	private final Object publishLock = new Object();
+
+	/*
+	 * Whether files are parsed on several threads by a ParallelDotLoader instead of by a
+	 * single DotParser. Both load exactly the same graph.
+	 */
+	private volatile boolean parallelLoading = false;
+
+	/*
+	 * The buildings whose shortest path trees are kept up to date while walking times change,
+	 * and the DynamicShortestPaths that maintains those trees over its own copy of the graph
+	 * (null when no origins are maintained). Both are only used while holding the publishLock.
+	 */
+	private List<String> maintainedOrigins = List.of();
+	private DynamicShortestPaths<String, Double> dynamicPaths;
+
+	/*
+	 * The metrics that routes can be found under by name, with the weight each one gives every
+	 * path. Only changed while holding the publishLock.
+	 */
+	private MapADT<String, CustomizableContractionHierarchy.EdgeWeights<String>> routeMetrics = new HashtableMap<>();
+
+	/*
+	 * The cache of recently found routes, or null when routes aren't cached.
 	 */
-	private DijkstraGraph<String, Double> buildingGraph;
+	private volatile RouteCache routeCache;
 
 	/*
-	 * The total walkingTime of the buildingGraph.
+	 * The executor that runs asynchronous route queries, each on its own virtual thread, and
+	 * the number of those queries that have been admitted but haven't finished yet. Once
+	 * maxQueriesInFlight queries are running, new ones are rejected instead of queued, so a
+	 * burst of requests can't pile up without bound.
 	 */
-	private double totalWalkingTime;
+	private final ExecutorService queryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+	private final AtomicInteger queriesInFlight = new AtomicInteger();
+	private volatile int maxQueriesInFlight = 10000;
+
+	/*
+	 * Where searches, route queries and file loads are recorded, or null when metrics are
+	 * disabled, along with the name the metrics are registered under with JMX. Each backend
+	 * registers under its own number, so that several backends can publish metrics at once.
+	 */
+	private volatile SearchMetrics metrics;
+	private ObjectName metricsName;
+	private static final AtomicInteger backendCount = new AtomicInteger();
+	private final int backendNumber = backendCount.incrementAndGet();
 
 	/*
 	 * Reads data from a DOT file and inserts the data into a graph data structure that
-	 * implements the GraphADT interface.
+	 * implements the GraphADT interface. The new graph is only published once it has been
+	 * loaded completely, so queries that run during a reload keep using the previous graph.
 	 * @param file the DOT file to read data from
 	 */
 	public void readFile (String file) throws IllegalArgumentException, NullPointerException,
@@ -35,45 +228,519 @@ public class Backend implements BackendInterface {
 		if (!file.endsWith(".dot")) {
 			throw new IllegalArgumentException("File is in an incorrect format");
 		}
-		// create a new graph for this instance of backend and intialize walkinTime to 0
-		this.buildingGraph = new DijkstraGraph<>(new PlaceholderMap<>());
-		this.totalWalkingTime = 0;
-		// read from the provided dot file
-		File graphFile = new File(file);
-		Scanner scanner = new Scanner(graphFile);
-		String line = "";
-		// update the graph to match the data in each valid line of the dot file
-		while (scanner.hasNextLine()) {
-			line = scanner.nextLine().trim();
-			// if line isn't one with the data we want skip it
-			if (line.trim().endsWith("{") || line.trim().endsWith("}") || line.isEmpty()) {
-				continue;
-			}
-			// split string into two between the edge character -> building1 and building2+time
-			String[] split1 = line.split("--");
-			// trim to get id of white space
-			String building1 = split1[0].trim();
-			// split again to seperate building2 and walking time
-			String[] split2 = split1[1].split("=");
-			// isolate the building
-			String building2 = split2[0].substring(0, split2[0].length() - 8).trim();
-			// isolate the walking time
-			String walkTime = split2[1].substring(0, split2[1].length() - 2);
-			// convert the walking time String into a double to pass into an edge
-			double walkingTime = Double.valueOf(walkTime);
-			//get rid of quotes
-			building1 = building1.substring(1, building1.length() - 1);
-			building2 = building2.substring(1, building2.length() -1);
-			// insert two nodes associated with the buildings
-			this.buildingGraph.insertNode(building1);
-			this.buildingGraph.insertNode(building2);
-			//insert two edges for the buildings involved since it is an undirected edge
-			this.buildingGraph.insertEdge(building1, building2, walkingTime);
-			this.buildingGraph.insertEdge(building2, building1, walkingTime);
-			// update total wlaking time
+		// read every path from the provided dot file into a new graph
+		RouteEvents.GraphLoad event = new RouteEvents.GraphLoad();
+		event.begin();
+		SearchMetrics metrics = this.metrics;
+		long startTime = System.nanoTime();
+		DijkstraGraph<String, Double> buildingGraph;
+		double totalWalkingTime;
+		boolean directed;
+		int lineCount;
+		if (this.parallelLoading) {
+			ParallelDotLoader loader = new ParallelDotLoader("seconds");
+			loader.loadFile(file);
+			buildingGraph = loader.getGraph();
+			totalWalkingTime = loader.getTotalWeight();
+			directed = loader.hasDirectedEdges();
+			lineCount = loader.getLineCount();
+		} else {
+			GraphLoader loader = new GraphLoader();
+			DotParser parser = new DotParser(DotParser.mapFile(file), "seconds");
+			parser.parseGraph(loader);
+			buildingGraph = loader.builder.build(new DijkstraGraph<>(new HashtableMap<>()));
+			totalWalkingTime = loader.totalWalkingTime;
+			directed = loader.directed;
+			lineCount = parser.getLineCount();
+		}
+		long parseTime = System.nanoTime() - startTime;
+		if (metrics != null) {
+			metrics.recordFileLoad(lineCount, parseTime);
+		}
+		// preprocess the loaded graph and publish it for the queries that start after this
+		synchronized (this.publishLock) {
+			publish(buildingGraph, null, totalWalkingTime, directed);
+		}
+		if (event.shouldCommit()) {
+			event.file = file;
+			event.parallel = this.parallelLoading;
+			event.fileSize = new File(file).length();
+			event.lineCount = lineCount;
+			event.nodeCount = buildingGraph.getNodeCount();
+			event.edgeCount = buildingGraph.getEdgeCount();
+			event.parseTime = parseTime;
+			event.commit();
+		}
+	}
+
+	/*
+	 * Writes the loaded graph to a binary snapshot file, along with the walking times from and
+	 * to a few landmark buildings, which guide the route searches on the snapshot. Loading a
+	 * snapshot is much faster than reading the DOT file again, since it is only mapped into
+	 * memory instead of parsed.
+	 * @param file the path of the snapshot file to write
+	 * @throws NoSuchElementException if no graph has been loaded
+	 */
+	public void saveSnapshot (String file) throws NullPointerException, NoSuchElementException {
+		if (file == null) {
+			throw new NullPointerException("File is null");
+		}
+		GraphSnapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			throw new NoSuchElementException("No graph has been loaded");
+		}
+		MappedGraph.write(snapshot.buildingGraph(), snapshot.totalWalkingTime, snapshot.directed,
+				MappedGraph.DEFAULT_LANDMARK_COUNT,
+				file);
+	}
+
+	/*
+	 * Loads a graph from a binary snapshot file that was written by saveSnapshot. The file is
+	 * memory-mapped, and routes are answered straight from the mapped file, so loading takes
+	 * the same short time for any size of graph.
+	 * @param file the snapshot file to load
+	 * @throws IllegalArgumentException if the file isn't a snapshot
+	 */
+	public void loadSnapshot (String file) throws IllegalArgumentException, NullPointerException,
+			FileNotFoundException {
+		if (file == null) {
+			throw new NullPointerException("File is null");
+		}
+		MappedGraph mappedGraph = MappedGraph.open(file);
+		synchronized (this.publishLock) {
+			publish(null, mappedGraph, mappedGraph.getTotalWeight(), mappedGraph.isDirected());
+		}
+	}
+
+	/*
+	 * Selects whether files are parsed on several threads, which loads large files faster.
+	 * The loaded graph and its total walking time are the same either way.
+	 * @param parallelLoading true to parse files on several threads
+	 */
+	public void setParallelLoading(boolean parallelLoading) {
+		this.parallelLoading = parallelLoading;
+	}
+
+	/*
+	 * Collects the buildings and paths that the DotParser finds in a GraphBuilder, adding up
+	 * their walking times. A path written with -- can be walked in both directions, so it is
+	 * added as two edges, while a path written with -> is only added in its direction. A path
+	 * that appears more than once keeps the walking time it was given last. The loader notes
+	 * whether any path was written with ->.
+	 */
+	private static class GraphLoader implements DotParser.EdgeHandler {
+		private final GraphBuilder<String, Double> builder = new GraphBuilder<>(GraphBuilder.DuplicatePolicy.KEEP_LAST);
+		private double totalWalkingTime = 0;
+		private boolean directed = false;
+
+		@Override
+		public void edge(String building1, String building2, double walkingTime, boolean directed) {
+			// add an edge in each direction for an undirected path
+			this.builder.addEdge(building1, building2, walkingTime);
+			if (!directed) {
+				this.builder.addEdge(building2, building1, walkingTime);
+			} else {
+				this.directed = true;
+			}
 			this.totalWalkingTime += walkingTime;
 		}
 
+		@Override
+		public void node(String building) {
+			this.builder.addNode(building);
+		}
+	}
+
+	/*
+	 * Inserts a path between two buildings that can be walked in both directions, adding the
+	 * buildings when they aren't in the graph yet, or updates its walking time when the path
+	 * already exists. The change is made to a copy of the graph that is then published, so
+	 * queries that are already running don't see it.
+	 * @param building1 one end of the path
+	 * @param building2 the other end of the path
+	 * @param walkingTime the time it takes to walk the path
+	 * @return true if the path was inserted or updated
+	 * @throws IllegalArgumentException if the walking time is negative or NaN
+	 */
+	public boolean insertEdge (String building1, String building2, double walkingTime) {
+		if (!(walkingTime >= 0.0)) {
+			throw new IllegalArgumentException("Walking time must not be negative");
+		}
+		synchronized (this.publishLock) {
+			GraphSnapshot current = this.snapshot;
+			DijkstraGraph<String, Double> buildingGraph = current == null
+					? new DijkstraGraph<>(new HashtableMap<>()) : copyGraph(current.buildingGraph());
+			double totalWalkingTime = current == null ? 0 : current.totalWalkingTime;
+			// replacing an existing path replaces its walking time in the total
+			if (buildingGraph.containsEdge(building1, building2)) {
+				totalWalkingTime -= buildingGraph.getEdge(building1, building2);
+			}
+			buildingGraph.insertNode(building1);
+			buildingGraph.insertNode(building2);
+			buildingGraph.insertEdge(building1, building2, walkingTime);
+			buildingGraph.insertEdge(building2, building1, walkingTime);
+			publish(buildingGraph, totalWalkingTime + walkingTime);
+			return true;
+		}
+	}
+
+	/*
+	 * Removes the path between two buildings in both directions. The change is made to a copy
+	 * of the graph that is then published, so queries that are already running don't see it.
+	 * @param building1 one end of the path
+	 * @param building2 the other end of the path
+	 * @return true if the path was removed, or false if there is no such path
+	 */
+	public boolean removeEdge (String building1, String building2) {
+		synchronized (this.publishLock) {
+			GraphSnapshot current = this.snapshot;
+			if (current == null || !current.graph().containsEdge(building1, building2)) {
+				return false;
+			}
+			DijkstraGraph<String, Double> buildingGraph = copyGraph(current.buildingGraph());
+			double walkingTime = buildingGraph.getEdge(building1, building2);
+			buildingGraph.removeEdge(building1, building2);
+			buildingGraph.removeEdge(building2, building1);
+			publish(buildingGraph, current.totalWalkingTime - walkingTime);
+			return true;
+		}
+	}
+
+	/*
+	 * Removes a building and every path that leads to or from it. The change is made to a
+	 * copy of the graph that is then published, so queries that are already running don't
+	 * see it.
+	 * @param building the building to remove
+	 * @return true if the building was removed, or false if it isn't in the graph
+	 */
+	public boolean removeNode (String building) {
+		synchronized (this.publishLock) {
+			GraphSnapshot current = this.snapshot;
+			if (current == null || !current.graph().containsNode(building)) {
+				return false;
+			}
+			DijkstraGraph<String, Double> buildingGraph = copyGraph(current.buildingGraph());
+			double totalWalkingTime = current.totalWalkingTime;
+			BaseGraph<String, Double>.Node node = buildingGraph.nodes.get(building);
+			for (BaseGraph<String, Double>.Edge edge : node.edgesLeaving) {
+				totalWalkingTime -= edge.data;
+			}
+			// a path that can only be walked to the building counts in the total as well
+			for (BaseGraph<String, Double>.Edge edge : node.edgesEntering) {
+				if (!buildingGraph.containsEdge(building, edge.predecessor.data)) {
+					totalWalkingTime -= edge.data;
+				}
+			}
+			buildingGraph.removeNode(building);
+			publish(buildingGraph, totalWalkingTime);
+			return true;
+		}
+	}
+
+	/*
+	 * Returns a copy of a graph with the same buildings and paths, where the paths leaving
+	 * each building are kept in the same order so that searches break ties the same way.
+	 */
+	private static DijkstraGraph<String, Double> copyGraph(DijkstraGraph<String, Double> graph) {
+		DijkstraGraph<String, Double> copy = new DijkstraGraph<>(new HashtableMap<>());
+		List<String> buildings = graph.nodes.getKeys();
+		for (String building : buildings) {
+			copy.insertNode(building);
+		}
+		for (String building : buildings) {
+			for (BaseGraph<String, Double>.Edge edge : graph.nodes.get(building).edgesLeaving) {
+				copy.insertEdge(building, edge.successor.data, edge.data);
+			}
+		}
+		return copy;
+	}
+
+	/*
+	 * Preprocesses a new version of the graph and publishes it for the queries that start
+	 * after this. Must be called while holding the publishLock.
+	 */
+	private void publish(DijkstraGraph<String, Double> buildingGraph, double totalWalkingTime) {
+		GraphSnapshot current = this.snapshot;
+		publish(buildingGraph, null, totalWalkingTime, current != null && current.directed);
+	}
+
+	/*
+	 * Preprocesses a new version of the graph, which is either a buildingGraph or a mapped
+	 * snapshot file, and publishes it. Must be called while holding the publishLock.
+	 * @param directed whether some paths of the graph can only be walked in one direction
+	 */
+	private void publish(DijkstraGraph<String, Double> buildingGraph, MappedGraph mappedGraph,
+			double totalWalkingTime, boolean directed) {
+		// maintained trees need the paths on the heap, so only then is a mapped snapshot file
+		// copied into a buildingGraph, which the published snapshot then keeps as well
+		if (buildingGraph == null && !this.maintainedOrigins.isEmpty()) {
+			buildingGraph = mappedGraph.toDijkstraGraph();
+		}
+		if (buildingGraph != null) {
+			buildingGraph.setMetrics(this.metrics);
+		}
+		GraphSnapshot current = this.snapshot;
+		long version = current == null ? 1 : current.version + 1;
+		// a new set of buildings and paths gets its maintained trees searched from scratch
+		DijkstraGraph<String, Double> treeGraph = buildingGraph;
+		MapADT<String, ShortestPathTree<String>> maintainedTrees = maintainTrees(() -> treeGraph);
+		this.snapshot = new GraphSnapshot(buildingGraph, mappedGraph, totalWalkingTime, directed, version,
+				this.useContractionHierarchy, this.useAllPairsTable, this.allPairsNodeLimit, maintainedTrees,
+				this.routeMetrics, null);
+	}
+
+	/*
+	 * Starts maintaining the trees from the maintained origins over a copy of a graph, dropping
+	 * origins that aren't in the graph, and returns frozen copies of the trees (or null when no
+	 * origins are maintained). The graph is only asked for when there are origins to maintain.
+	 * Must be called while holding the publishLock.
+	 */
+	private MapADT<String, ShortestPathTree<String>> maintainTrees(
+			Supplier<DijkstraGraph<String, Double>> graph) {
+		if (this.maintainedOrigins.isEmpty()) {
+			this.dynamicPaths = null;
+			return null;
+		}
+		DijkstraGraph<String, Double> buildingGraph = graph.get();
+		this.dynamicPaths = new DynamicShortestPaths<>(copyGraph(buildingGraph));
+		for (String origin : this.maintainedOrigins) {
+			if (buildingGraph.containsNode(origin)) {
+				this.dynamicPaths.addOrigin(origin);
+			}
+		}
+		return frozenTrees();
+	}
+
+	/*
+	 * Returns frozen copies of the maintained trees, by origin. Must be called while holding
+	 * the publishLock.
+	 */
+	private MapADT<String, ShortestPathTree<String>> frozenTrees() {
+		MapADT<String, ShortestPathTree<String>> trees = new HashtableMap<>();
+		for (String origin : this.dynamicPaths.getOrigins()) {
+			trees.put(origin, this.dynamicPaths.getTree(origin));
+		}
+		return trees;
+	}
+
+	/*
+	 * Selects the buildings whose shortest path trees are kept up to date, usually the most
+	 * popular starting points. Each tree is searched once, and is then repaired incrementally by
+	 * updateWalkingTimes. Routes that start at a maintained origin are answered from its tree.
+	 * @param origins the buildings to maintain trees from, or an empty list to maintain none
+	 * @throws NoSuchElementException if a graph is loaded and an origin isn't in it
+	 */
+	public void setMaintainedOrigins(List<String> origins) {
+		if (origins == null) {
+			throw new NullPointerException("Origins are null");
+		}
+		synchronized (this.publishLock) {
+			GraphSnapshot current = this.snapshot;
+			for (String origin : origins) {
+				if (current != null && !current.graph().containsNode(origin)) {
+					throw new NoSuchElementException("Start node doesn't exist in the graph");
+				}
+			}
+			this.maintainedOrigins = List.copyOf(origins);
+			if (current != null) {
+				this.snapshot = new GraphSnapshot(current.buildingGraph, current.mappedGraph,
+						current.totalWalkingTime, current.directed, current.version, this.useContractionHierarchy,
+						this.useAllPairsTable, this.allPairsNodeLimit, maintainTrees(current::buildingGraph),
+						this.routeMetrics, current.customizableHierarchy);
+			}
+		}
+	}
+
+	/*
+	 * Applies a batch of walking time changes at once: new walking times (which insert paths
+	 * that don't exist yet), removed paths and closed buildings (whose paths are all removed, but
+	 * which stay in the graph). Every path is changed in both directions, unless the graph has
+	 * paths that can only be walked one way, in which case each change is only made in the
+	 * direction it names. Instead of searching
+	 * the maintained trees again, only the parts of them whose shortest paths changed are
+	 * repaired. Queries that are already running keep using the previous version of the graph,
+	 * and cached routes are dropped.
+	 * @param batch the changes to apply, naming each path by its two buildings
+	 * @return the number of changed paths and how much repair work the trees took
+	 * @throws NoSuchElementException if no graph is loaded or the batch names a building that
+	 * isn't in the graph, in which case nothing is changed
+	 */
+	public DynamicShortestPaths.Result updateWalkingTimes(DynamicShortestPaths.Batch<String, Double> batch) {
+		if (batch == null) {
+			throw new NullPointerException("Batch is null");
+		}
+		synchronized (this.publishLock) {
+			GraphSnapshot current = this.snapshot;
+			if (current == null) {
+				throw new NoSuchElementException("No graph has been loaded");
+			}
+			// without maintained trees, the batch is applied to a copy of the graph that is then published
+			DynamicShortestPaths<String, Double> dynamicPaths = this.dynamicPaths != null ? this.dynamicPaths
+					: new DynamicShortestPaths<>(copyGraph(current.buildingGraph()));
+			DynamicShortestPaths.Result result = dynamicPaths.apply(current.directed ? batch : batch.bothDirections());
+			if (result.edgesChanged() == 0) {
+				return result;
+			}
+			DijkstraGraph<String, Double> buildingGraph = this.dynamicPaths != null
+					? copyGraph(dynamicPaths.getGraph()) : dynamicPaths.getGraph();
+			buildingGraph.setMetrics(this.metrics);
+			// in an undirected graph each path was changed in both directions, but counts once in the total
+			double weightChange = current.directed ? result.weightChange() : result.weightChange() / 2;
+			// when only walking times changed, the route metrics keep their preprocessing and are only
+			// customized again, and inserted or removed paths have the new graph preprocessed instead
+			CustomizableContractionHierarchy<String> customizableHierarchy = current.customizableHierarchy == null
+					? null : current.customizableHierarchy.reweight(buildingGraph);
+			if (customizableHierarchy != null) {
+				for (String name : this.routeMetrics.getKeys()) {
+					customizableHierarchy.customize(name, this.routeMetrics.get(name));
+				}
+			}
+			this.snapshot = new GraphSnapshot(buildingGraph, null, current.totalWalkingTime + weightChange,
+					current.directed, current.version + 1, this.useContractionHierarchy, this.useAllPairsTable,
+					this.allPairsNodeLimit, this.dynamicPaths != null ? frozenTrees() : null, this.routeMetrics,
+					customizableHierarchy);
+			return result;
+		}
+	}
+
+	/*
+	 * Selects whether routes are answered with a contraction hierarchy. Preprocessing the
+	 * graph takes much longer than a single Dijkstra search, but it only happens once per
+	 * loaded file, and every route query after it only settles a small part of the graph.
+	 * @param useContractionHierarchy true to answer routes with a contraction hierarchy
+	 */
+	public void setContractionHierarchy(boolean useContractionHierarchy) {
+		synchronized (this.publishLock) {
+			this.useContractionHierarchy = useContractionHierarchy;
+			preprocess();
+		}
+	}
+
+	/*
+	 * Selects whether routes are answered from a table of the shortest paths between every
+	 * pair of buildings. The table is filled by running one Dijkstra search per building in
+	 * parallel, and every route query after it is answered with table lookups. When the
+	 * graph has more buildings than the node limit, no table is built and routes are
+	 * searched for instead.
+	 * @param useAllPairsTable true to answer routes from an all-pairs table
+	 */
+	public void setAllPairsTable(boolean useAllPairsTable) {
+		synchronized (this.publishLock) {
+			this.useAllPairsTable = useAllPairsTable;
+			preprocess();
+		}
+	}
+
+	/*
+	 * Sets the largest number of buildings that an all-pairs table is built for.
+	 * @param allPairsNodeLimit the largest number of buildings to build a table for
+	 * @throws IllegalArgumentException if the limit is negative or too large for a table
+	 */
+	public void setAllPairsNodeLimit(int allPairsNodeLimit) {
+		if (allPairsNodeLimit < 0 || allPairsNodeLimit > AllPairsTable.MAX_NODE_COUNT) {
+			throw new IllegalArgumentException("Node limit must be between 0 and "
+					+ AllPairsTable.MAX_NODE_COUNT);
+		}
+		synchronized (this.publishLock) {
+			this.allPairsNodeLimit = allPairsNodeLimit;
+			preprocess();
+		}
+	}
+
+	/*
+	 * Checks whether routes are currently answered from an all-pairs table, which is only
+	 * the case when that mode is selected and the loaded graph is within the node limit.
+	 * @return true if an all-pairs table has been built for the loaded graph
+	 */
+	public boolean hasAllPairsTable() {
+		GraphSnapshot snapshot = this.snapshot;
+		return snapshot != null && snapshot.allPairsTable != null;
+	}
+
+	/*
+	 * Sets a metric that routes can be found under by name, such as one that avoids stairs or
+	 * one that counts outdoor segments, replacing any metric with the same name. The graph is
+	 * only preprocessed for route metrics once, whatever the weights, and each metric then just
+	 * customizes that preprocessing with its own weights, which is fast. Queries that are already
+	 * running keep using the previous metrics, and cached routes are dropped.
+	 * @param name the name of the metric
+	 * @param weights the weight of every path under the metric, or null to remove the metric
+	 * @throws IllegalArgumentException if a path of the loaded graph gets a negative or NaN
+	 * weight (the paths of graphs loaded later are weighted when they are loaded)
+	 */
+	public void setRouteMetric(String name, CustomizableContractionHierarchy.EdgeWeights<String> weights) {
+		if (name == null) {
+			throw new NullPointerException("Metric name is null");
+		}
+		synchronized (this.publishLock) {
+			if (weights == null && !this.routeMetrics.containsKey(name)) {
+				return;
+			}
+			GraphSnapshot current = this.snapshot;
+			// the published hierarchy never changes, so the metric is customized in a copy of it,
+			// first, so that weights that are rejected don't replace the metric
+			CustomizableContractionHierarchy<String> customizableHierarchy = null;
+			if (current != null && current.customizableHierarchy != null) {
+				customizableHierarchy = current.customizableHierarchy.copy();
+				if (weights != null) {
+					customizableHierarchy.customize(name, weights);
+				} else {
+					customizableHierarchy.removeMetric(name);
+				}
+			}
+			if (this.routeMetrics.containsKey(name)) {
+				this.routeMetrics.remove(name);
+			}
+			if (weights != null) {
+				this.routeMetrics.put(name, weights);
+			}
+			if (current == null) {
+				return;
+			}
+			// a new version is published, so that no route found under the old metrics is served
+			try {
+				this.snapshot = new GraphSnapshot(current, this.routeMetrics, customizableHierarchy);
+			} catch (IllegalArgumentException e) {
+				// only the first metric is customized here, when the graph is preprocessed for it
+				this.routeMetrics.remove(name);
+				throw e;
+			}
+		}
+	}
+
+	/*
+	 * Returns the names of the metrics that routes can be found under.
+	 * @return the names of the route metrics
+	 */
+	public List<String> getRouteMetrics() {
+		synchronized (this.publishLock) {
+			return this.routeMetrics.getKeys();
+		}
+	}
+
+	/*
+	 * Republishes the loaded graph with the contraction hierarchy and all-pairs table that the
+	 * current query modes use. Must be called while holding the publishLock.
+	 */
+	private void preprocess() {
+		GraphSnapshot current = this.snapshot;
+		if (current != null) {
+			this.snapshot = new GraphSnapshot(current.buildingGraph, current.mappedGraph, current.totalWalkingTime,
+					current.directed, current.version, this.useContractionHierarchy, this.useAllPairsTable, this.allPairsNodeLimit,
+					current.maintainedTrees, this.routeMetrics, current.customizableHierarchy);
+		}
+	}
+
+	/*
+	 * Returns the snapshot that a query should run against.
+	 * @throws NoSuchElementException if no file has been loaded yet
+	 */
+	private GraphSnapshot currentSnapshot() {
+		GraphSnapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			throw new NoSuchElementException("Start node doesn't exist in the graph");
+		}
+		return snapshot;
 	}
 
 	/*
@@ -84,10 +751,150 @@ public class Backend implements BackendInterface {
 	 * @return an arrayList of String (Strings being buildings)
 	 */
 	public ShortestPath getShortestPath (String start, String destination) throws NoSuchElementException {
+		return queryShortestPath(start, destination, null);
+	}
+
+	/*
+	 * Method that returns the shortest path from a starting point to a destination under one
+	 * of the metrics set with setRouteMetric. The route is the cheapest one under the metric,
+	 * but its times are still the walking times of its paths.
+	 * @param start starting building as a String
+	 * @param destination destination building as a String
+	 * @param metric the name of the metric to find the route under
+	 * @return the shortest path under the metric
+	 * @throws NoSuchElementException if either building or the metric doesn't exist, or there
+	 * is no route between the buildings under the metric
+	 * @throws NullPointerException if metric is null
+	 */
+	public ShortestPath getShortestPath (String start, String destination, String metric)
+			throws NoSuchElementException {
+		if (metric == null) {
+			throw new NullPointerException("Metric name is null");
+		}
+		return queryShortestPath(start, destination, metric);
+	}
+
+	/*
+	 * Answers a route query, timing it and recording it as a RouteQuery event whether or not
+	 * a route is found.
+	 * @param metric the name of the metric to find the route under, or null for walking time
+	 */
+	private ShortestPath queryShortestPath (String start, String destination, String metric)
+			throws NoSuchElementException {
+		RouteEvents.RouteQuery event = new RouteEvents.RouteQuery();
+		event.begin();
+		// time the whole query, including any cache lookup, even when it fails
+		SearchMetrics metrics = this.metrics;
+		long startTime = metrics == null ? 0L : System.nanoTime();
+		ShortestPath shortestPath = null;
+		try {
+			shortestPath = lookUpShortestPath(start, destination, metric);
+			return shortestPath;
+		} finally {
+			if (metrics != null) {
+				metrics.recordQuery(System.nanoTime() - startTime);
+			}
+			if (event.shouldCommit()) {
+				event.start = start;
+				event.destination = destination;
+				event.metric = metric;
+				event.found = shortestPath != null;
+				event.pathLength = shortestPath == null ? 0 : shortestPath.path().size();
+				event.walkingTime = shortestPath == null ? 0.0 : shortestPath.totalPathCost();
+				event.commit();
+			}
+		}
+	}
+
+	/*
+	 * Returns the shortest path from a starting point to a destination, from the route cache
+	 * when it holds the route and by searching the current snapshot otherwise.
+	 * @param metric the name of the metric to find the route under, or null for walking time
+	 */
+	private ShortestPath lookUpShortestPath (String start, String destination, String metric)
+			throws NoSuchElementException {
+		GraphSnapshot snapshot = currentSnapshot();
+		// serve the route from the cache when it has been found before in this version of the graph
+		RouteCache routeCache = this.routeCache;
+		if (routeCache == null) {
+			return findShortestPath(snapshot, start, destination, metric);
+		}
+		ShortestPath shortestPath = metric == null
+				? routeCache.get(start, destination, snapshot.version, !snapshot.directed)
+				: routeCache.get(start, destination, metric, snapshot.version);
+		if (shortestPath == null) {
+			shortestPath = findShortestPath(snapshot, start, destination, metric);
+			if (metric == null) {
+				routeCache.put(start, destination, snapshot.version, shortestPath);
+			} else {
+				routeCache.put(start, destination, metric, snapshot.version, shortestPath);
+			}
+		}
+		return shortestPath;
+	}
+
+	/*
+	 * Searches for the shortest path from a starting point to a destination under a route
+	 * metric, or by walking time when the metric is null, in a snapshot.
+	 */
+	private ShortestPath findShortestPath (GraphSnapshot snapshot, String start, String destination,
+			String metric) throws NoSuchElementException {
+		if (metric == null) {
+			return findShortestPath(snapshot, start, destination);
+		}
+		if (!snapshot.graph().containsNode(start)) {
+			throw new NoSuchElementException("Start node doesn't exist in the graph");
+		}
+		if (!snapshot.graph().containsNode(destination)) {
+			throw new NoSuchElementException("End node doesn't exist in the graph");
+		}
+		if (snapshot.customizableHierarchy == null) {
+			throw new NoSuchElementException("no metric named " + metric);
+		}
+		return new ShortestPath(snapshot.graph(),
+				snapshot.customizableHierarchy.shortestPathData(metric, start, destination));
+	}
+
+	/*
+	 * Searches for the shortest path from a starting point to a destination in a snapshot.
+	 */
+	private ShortestPath findShortestPath (GraphSnapshot snapshot, String start, String destination)
+			throws NoSuchElementException {
 		// create and retrun a shortestPath object to frontend where they can access its fields
 		ShortestPath shortestPath = null;
+		// answer from a maintained shortest path tree when the route starts at its origin
+		if (snapshot.maintainedTrees != null && snapshot.maintainedTrees.containsKey(start)) {
+			if (!snapshot.graph().containsNode(destination)) {
+				throw new NoSuchElementException("End node doesn't exist in the graph");
+			}
+			return new ShortestPath(snapshot.graph(), snapshot.maintainedTrees.get(start).pathTo(destination));
+		}
+		// answer from the all-pairs table or the contraction hierarchy when one has been built
+		if (snapshot.compactGraph != null) {
+			if (!snapshot.compactGraph.containsNode(start)) {
+				throw new NoSuchElementException("Start node doesn't exist in the graph");
+			}
+			if (!snapshot.compactGraph.containsNode(destination)) {
+				throw new NoSuchElementException("End node doesn't exist in the graph");
+			}
+			if (snapshot.allPairsTable != null) {
+				return new ShortestPath(snapshot.compactGraph,
+						snapshot.allPairsTable.shortestPathData(start, destination));
+			}
+			return new ShortestPath(snapshot.compactGraph, snapshot.hierarchy.shortestPathData(start, destination));
+		}
+		// answer straight from the mapped snapshot file when the graph was loaded from one
+		if (snapshot.mappedGraph != null) {
+			if (!snapshot.mappedGraph.containsNode(start)) {
+				throw new NoSuchElementException("Start node doesn't exist in the graph");
+			}
+			if (!snapshot.mappedGraph.containsNode(destination)) {
+				throw new NoSuchElementException("End node doesn't exist in the graph");
+			}
+			return new ShortestPath(snapshot.mappedGraph, snapshot.mappedGraph.shortestPathData(start, destination));
+		}
 		try {
-			shortestPath = new ShortestPath(this.buildingGraph, start, destination);
+			shortestPath = new ShortestPath(snapshot.buildingGraph, start, destination);
 		} catch (NoSuchElementException e) {
 			throw new NoSuchElementException(e.getMessage());
 		}
@@ -95,6 +902,259 @@ public class Backend implements BackendInterface {
 		return shortestPath;
 	}
 
+	/*
+	 * Enables or disables metrics. While they are enabled, every Dijkstra search over the
+	 * buildingGraph records the buildings it settles, the paths it relaxes, the size of its
+	 * queue and its wall time, every route query records how long it took to answer, and
+	 * every loaded file records its line count and parse time. The metrics are also
+	 * registered as an MBean named "Backend:type=SearchMetrics,id=<n>". Disabling them
+	 * unregisters the MBean and drops what was recorded, and enabling them again starts from
+	 * zero. While they are disabled, searches and queries don't record or time anything.
+	 * @param enabled true to record metrics
+	 * @throws IllegalStateException if the MBean can't be registered or unregistered
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		synchronized (this.publishLock) {
+			if (enabled == (this.metrics != null)) {
+				return;
+			}
+			SearchMetrics metrics = enabled ? new SearchMetrics() : null;
+			try {
+				if (enabled) {
+					this.metricsName = new ObjectName("Backend:type=SearchMetrics,id=" + this.backendNumber);
+					ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, this.metricsName);
+				} else {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.metricsName);
+					this.metricsName = null;
+				}
+			} catch (JMException e) {
+				throw new IllegalStateException("Metrics couldn't be " + (enabled ? "registered" : "unregistered"),
+						e);
+			}
+			this.metrics = metrics;
+			// attach the metrics to the graph that queries are searching now
+			GraphSnapshot current = this.snapshot;
+			if (current != null && current.buildingGraph != null) {
+				current.buildingGraph.setMetrics(metrics);
+			}
+		}
+	}
+
+	/*
+	 * Returns a copy of the metrics recorded since they were enabled. Routes answered with a
+	 * contraction hierarchy, an all-pairs table, a snapshot file or a route metric are counted
+	 * as queries, but not as searches.
+	 * @return the metrics, which are all zero while metrics are disabled
+	 */
+	public SearchMetrics.Snapshot getMetrics() {
+		SearchMetrics metrics = this.metrics;
+		return (metrics != null ? metrics : new SearchMetrics()).snapshot();
+	}
+
+	/*
+	 * Selects whether found routes are cached, and how many of them. When every path of the
+	 * loaded graph can be walked in both directions, a route that is only cached in the
+	 * opposite direction is served reversed. Cached routes are dropped whenever the buildings or paths change.
+	 * @param capacity the largest number of routes to cache, or 0 to stop caching routes
+	 * @param policy which routes to evict once the cache is full
+	 * @throws IllegalArgumentException if capacity is negative
+	 */
+	public void setRouteCache(int capacity, RouteCache.EvictionPolicy policy) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity must not be negative");
+		}
+		this.routeCache = capacity == 0 ? null : new RouteCache(capacity, policy, true);
+	}
+
+	/*
+	 * Returns the number of route queries that were served from the route cache.
+	 * @return the number of cache hits, or 0 when routes aren't cached
+	 */
+	public long getRouteCacheHits() {
+		RouteCache routeCache = this.routeCache;
+		return routeCache == null ? 0 : routeCache.getHits();
+	}
+
+	/*
+	 * Returns the number of route queries that had to be searched for despite the route cache.
+	 * @return the number of cache misses, or 0 when routes aren't cached
+	 */
+	public long getRouteCacheMisses() {
+		RouteCache routeCache = this.routeCache;
+		return routeCache == null ? 0 : routeCache.getMisses();
+	}
+
+	/*
+	 * Method that finds the shortest path from a starting point to a destination on a
+	 * virtual thread, so that the caller doesn't block while it is searched for.
+	 * @param start starting building as a String
+	 * @param destination destination building as a String
+	 * @return a future that completes with the shortest path, or completes exceptionally with
+	 * the NoSuchElementException that getShortestPath would throw, or with a
+	 * RejectedExecutionException when too many queries are already in flight
+	 */
+	public CompletableFuture<ShortestPath> getShortestPathAsync (String start, String destination) {
+		if (!admitQueries(1)) {
+			return CompletableFuture.failedFuture(
+					new RejectedExecutionException("Too many route queries are in flight"));
+		}
+		return runAdmittedQuery(start, destination);
+	}
+
+	/*
+	 * Method that finds the shortest paths between many pairs of buildings at once, each on
+	 * its own virtual thread. The path for starts.get(i) and destinations.get(i) is stored at
+	 * index i of the resulting list. The batch is admitted as a whole: it counts as one query
+	 * in flight for every pair, and is rejected without running any of them when there isn't
+	 * room for all of its pairs, so a batch with more pairs than the limit always is.
+	 * @param starts starting buildings as Strings
+	 * @param destinations destination buildings as Strings, one for every starting building
+	 * @return a future that completes with every shortest path once all of them are found, or
+	 * completes exceptionally when any one of the queries fails, or with a
+	 * RejectedExecutionException when the batch doesn't fit next to the queries in flight
+	 * @throws IllegalArgumentException if starts and destinations have different sizes
+	 */
+	public CompletableFuture<List<ShortestPath>> getShortestPathsAsync (List<String> starts,
+			List<String> destinations) {
+		if (starts.size() != destinations.size()) {
+			throw new IllegalArgumentException("Every start needs exactly one destination");
+		}
+		if (!admitQueries(starts.size())) {
+			return CompletableFuture.failedFuture(
+					new RejectedExecutionException("Too many route queries are in flight"));
+		}
+		List<CompletableFuture<ShortestPath>> queries = new ArrayList<>();
+		for (int i = 0; i < starts.size(); i++) {
+			queries.add(runAdmittedQuery(starts.get(i), destinations.get(i)));
+		}
+		return CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			List<ShortestPath> paths = new ArrayList<>();
+			for (CompletableFuture<ShortestPath> query : queries) {
+				paths.add(query.join());
+			}
+			return paths;
+		});
+	}
+
+	/*
+	 * Reserves room for a number of queries in flight, all or none of them, as long as that
+	 * keeps the number in flight within the maximum.
+	 * @return true if the queries were admitted
+	 */
+	private boolean admitQueries(int count) {
+		while (true) {
+			int inFlight = this.queriesInFlight.get();
+			if (count > this.maxQueriesInFlight - inFlight) {
+				return false;
+			}
+			if (this.queriesInFlight.compareAndSet(inFlight, inFlight + count)) {
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Runs an admitted query on its own virtual thread, giving up its room in flight once it
+	 * finishes or can't be started.
+	 */
+	private CompletableFuture<ShortestPath> runAdmittedQuery (String start, String destination) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return getShortestPath(start, destination);
+				} finally {
+					this.queriesInFlight.decrementAndGet();
+				}
+			}, this.queryExecutor);
+		} catch (RejectedExecutionException e) {
+			this.queriesInFlight.decrementAndGet();
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/*
+	 * Sets the largest number of asynchronous route queries that may run at the same time.
+	 * Queries submitted while this many are running are rejected, and so are batches with
+	 * more pairs than there is room left for.
+	 * @param maxQueriesInFlight the largest number of queries to run at once
+	 * @throws IllegalArgumentException if the limit is negative
+	 */
+	public void setMaxQueriesInFlight(int maxQueriesInFlight) {
+		if (maxQueriesInFlight < 0) {
+			throw new IllegalArgumentException("Query limit must not be negative");
+		}
+		this.maxQueriesInFlight = maxQueriesInFlight;
+	}
+
+	/*
+	 * Returns the number of asynchronous route queries that have been admitted but haven't
+	 * finished yet.
+	 * @return the number of queries in flight
+	 */
+	public int getQueriesInFlight() {
+		return this.queriesInFlight.get();
+	}
+
+	/*
+	 * Method that returns the shortest paths from a starting point to every building that
+	 * can be reached from it, found with a single search. The walking time to a building is
+	 * returned by the tree's costTo method, and its path by its pathTo method.
+	 * @param start starting building as a String
+	 * @return the tree of shortest paths from the starting building
+	 */
+	public ShortestPathTree<String> getShortestPathTree (String start) throws NoSuchElementException {
+		GraphSnapshot snapshot = currentSnapshot();
+		if (!snapshot.graph().containsNode(start)) {
+			throw new NoSuchElementException("Start node doesn't exist in the graph");
+		}
+		if (snapshot.maintainedTrees != null && snapshot.maintainedTrees.containsKey(start)) {
+			return snapshot.maintainedTrees.get(start);
+		}
+		return snapshot.buildingGraph().shortestPathTree(start);
+	}
+
+	/*
+	 * Method that returns the walking times between every starting point and every
+	 * destination in one call. One search runs from each starting point, and it stops as
+	 * soon as it has reached every destination (or the all-pairs table or contraction
+	 * hierarchy answers instead, when one has been built).
+	 * @param starts starting buildings as Strings
+	 * @param destinations destination buildings as Strings
+	 * @return a matrix whose entry [i][j] is the walking time from starts.get(i) to
+	 * destinations.get(j), or Double.POSITIVE_INFINITY when there is no path between them
+	 */
+	public double[][] getWalkingTimes (List<String> starts, List<String> destinations)
+			throws NoSuchElementException {
+		GraphSnapshot snapshot = currentSnapshot();
+		for (String start : starts) {
+			if (!snapshot.graph().containsNode(start)) {
+				throw new NoSuchElementException("Start node doesn't exist in the graph");
+			}
+		}
+		for (String destination : destinations) {
+			if (!snapshot.graph().containsNode(destination)) {
+				throw new NoSuchElementException("End node doesn't exist in the graph");
+			}
+		}
+		// answer from the all-pairs table when one has been built
+		if (snapshot.allPairsTable != null) {
+			double[][] walkingTimes = new double[starts.size()][destinations.size()];
+			for (int i = 0; i < starts.size(); i++) {
+				int source = snapshot.compactGraph.getId(starts.get(i));
+				for (int j = 0; j < destinations.size(); j++) {
+					walkingTimes[i][j] = snapshot.allPairsTable.getDistance(source,
+							snapshot.compactGraph.getId(destinations.get(j)));
+				}
+			}
+			return walkingTimes;
+		}
+		// the contraction hierarchy shares the searches from every destination between all starts
+		if (snapshot.hierarchy != null) {
+			return snapshot.hierarchy.shortestPathCosts(starts, destinations);
+		}
+		return snapshot.buildingGraph().shortestPathCosts(starts, destinations);
+	}
+
 	/*
 	 * Method that returns statistics about the dataset and includes the number of nodes
 	 * (buildings), the number of edges, and the total walking time (sum of weights) for
@@ -104,17 +1164,39 @@ public class Backend implements BackendInterface {
 	 */
 	public String getStatistics () {
 		// if statement for integration testing with a non-existent file
-		if (this.buildingGraph == null) {
+		GraphSnapshot snapshot = this.snapshot;
+		if (snapshot == null) {
 			return "Dataset is empty.";
 		}
 		// create and return a string that displays the statistics of the dataset for frontend
 		String statistics = "Dataset Statistics:";
-		statistics += "\nNumber of Buildings: " + buildingGraph.getNodeCount();
-		statistics += "\nNumber of Paths Connecting Buildings: " + (buildingGraph.getEdgeCount() / 2);
-		statistics += "\nTotal Walking Time: " + this.totalWalkingTime;
+		statistics += "\nNumber of Buildings: " + snapshot.graph().getNodeCount();
+		statistics += "\nNumber of Paths Connecting Buildings: " + countPaths(snapshot);
+		statistics += "\nTotal Walking Time: " + snapshot.totalWalkingTime;
 		return statistics;
 	}
 
+	/*
+	 * Counts the paths between buildings in a snapshot, where a path that can be walked both
+	 * ways counts once and so does a path that can only be walked one way.
+	 */
+	private static int countPaths(GraphSnapshot snapshot) {
+		// every path of an undirected graph is an edge in each direction
+		if (!snapshot.directed) {
+			return snapshot.graph().getEdgeCount() / 2;
+		}
+		DijkstraGraph<String, Double> buildingGraph = snapshot.buildingGraph();
+		int oneWay = 0;
+		for (String building : buildingGraph.nodes.getKeys()) {
+			for (BaseGraph<String, Double>.Edge edge : buildingGraph.nodes.get(building).edgesLeaving) {
+				if (!buildingGraph.containsEdge(edge.successor.data, building)) {
+					oneWay++;
+				}
+			}
+		}
+		return oneWay + (buildingGraph.getEdgeCount() - oneWay) / 2;
+	}
+
 	/*
 	 * Main method to run code.
 	 */
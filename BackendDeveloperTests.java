@@ -1,11 +1,1562 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 class BackendDeveloperTests {
+
+    /**
+     * Tests that the path, times and total cost of a ShortestPath all describe the same
+     * route, since they are taken from a single search.
+     */
+    @Test
+    public void testShortestPathViewsAgree() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        ShortestPath shortestPath = backend.getShortestPath("Memorial Union", "Union South");
+        List<String> path = shortestPath.path();
+        List<Double> times = shortestPath.times();
+        Assertions.assertEquals(path.size() - 1, times.size());
+        double sum = 0.0;
+        for (double time : times)
+            sum += time;
+        Assertions.assertEquals(shortestPath.totalPathCost(), sum, 1e-9);
+        assertThrows(UnsupportedOperationException.class, () -> path.add("Science Hall"));
+    }
+
+    /**
+     * Tests that a CompactGraph copied from a DijkstraGraph finds the same shortest paths as
+     * the original graph.
+     */
+    @Test
+    public void testCompactGraphMatchesDijkstraGraph() {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        CompactGraph<String> compact = CompactGraph.fromGraph(graph);
+        Assertions.assertEquals(graph.getNodeCount(), compact.getNodeCount());
+        Assertions.assertEquals(graph.getEdgeCount(), compact.getEdgeCount());
+        Assertions.assertEquals(17.0, compact.shortestPathCost("D", "I"));
+        Assertions.assertEquals("[D, A, H, I]", compact.shortestPathData("D", "I").toString());
+        for (String start : LECTURE_NODES)
+            for (String end : LECTURE_NODES)
+                if (hasPath(graph, start, end))
+                    Assertions.assertEquals(graph.shortestPathCost(start, end),
+                            compact.shortestPathCost(start, end));
+        assertThrows(NoSuchElementException.class, () -> compact.shortestPathCost("E", "A"));
+        assertThrows(UnsupportedOperationException.class, () -> compact.insertNode("Z"));
+    }
+
+    /**
+     * Tests that the CompactGraph builder keeps the last weight added for a duplicate edge.
+     */
+    @Test
+    public void testCompactGraphBuilderKeepsLastDuplicate() {
+        CompactGraph.Builder<String> builder = new CompactGraph.Builder<>();
+        builder.addEdge("A", "B", 5.0);
+        builder.addEdge("A", "C", 1.0);
+        builder.addEdge("A", "B", 2.0);
+        builder.addNode("D");
+        CompactGraph<String> compact = builder.build();
+        Assertions.assertEquals(4, compact.getNodeCount());
+        Assertions.assertEquals(2, compact.getEdgeCount());
+        Assertions.assertEquals(2.0, compact.getEdge("A", "B"));
+        Assertions.assertFalse(compact.containsEdge("B", "A"));
+    }
+
+    /**
+     * Tests that every queue type finds shortest paths with the same costs as the lazy
+     * priority queue that DijkstraGraph searched with originally.
+     */
+    @Test
+    public void testQueueTypesAgree() {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        for (String start : LECTURE_NODES) {
+            for (String end : LECTURE_NODES) {
+                graph.setQueueType(DijkstraGraph.QueueType.LAZY_PRIORITY_QUEUE);
+                if (!hasPath(graph, start, end)) {
+                    graph.setQueueType(DijkstraGraph.QueueType.BINARY_HEAP);
+                    assertThrows(NoSuchElementException.class, () -> graph.shortestPathCost(start, end));
+                    continue;
+                }
+                double expected = graph.shortestPathCost(start, end);
+                for (DijkstraGraph.QueueType queueType : DijkstraGraph.QueueType.values()) {
+                    graph.setQueueType(queueType);
+                    Assertions.assertEquals(expected, graph.shortestPathCost(start, end));
+                }
+            }
+        }
+        graph.setQueueType(DijkstraGraph.QueueType.QUATERNARY_HEAP);
+        Assertions.assertEquals("[D, A, H, I]", graph.shortestPathData("D", "I").toString());
+    }
+
+    /**
+     * Tests that searches which reuse per-thread workspaces give the same answers on repeated
+     * queries, and still work after nodes are added to the graph between searches.
+     */
+    @Test
+    public void testReusedWorkspaces() {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        graph.setQueueType(DijkstraGraph.QueueType.BINARY_HEAP);
+        graph.setReuseWorkspaces(true);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(17.0, graph.shortestPathCost("D", "I"));
+            Assertions.assertEquals("[D, A, H, I]", graph.shortestPathData("D", "I").toString());
+            Assertions.assertEquals(4.0, graph.shortestPathCost("A", "M"));
+            assertThrows(NoSuchElementException.class, () -> graph.shortestPathCost("E", "A"));
+        }
+        graph.insertNode("N");
+        graph.insertEdge("E", "N", 1);
+        graph.insertEdge("N", "A", 1);
+        Assertions.assertEquals(2.0, graph.shortestPathCost("E", "A"));
+        Assertions.assertEquals("[E, N, A]", graph.shortestPathData("E", "A").toString());
+    }
+
+    /**
+     * Tests that bidirectional searches find shortest paths with the same costs as the
+     * original search, on a directed graph where forward and backward edges differ.
+     */
+    @Test
+    public void testBidirectionalSearch() {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        for (String start : LECTURE_NODES) {
+            for (String end : LECTURE_NODES) {
+                graph.setBidirectional(false);
+                if (!hasPath(graph, start, end)) {
+                    graph.setBidirectional(true);
+                    assertThrows(NoSuchElementException.class, () -> graph.shortestPathData(start, end));
+                    continue;
+                }
+                double expected = graph.shortestPathCost(start, end);
+                graph.setBidirectional(true);
+                Assertions.assertEquals(expected, graph.shortestPathCost(start, end), 1e-9);
+                List<String> path = graph.shortestPathData(start, end);
+                Assertions.assertEquals(start, path.get(0));
+                Assertions.assertEquals(end, path.get(path.size() - 1));
+            }
+        }
+        graph.setReuseWorkspaces(true);
+        Assertions.assertEquals("[D, A, H, I]", graph.shortestPathData("D", "I").toString());
+        Assertions.assertEquals("[A]", graph.shortestPathData("A", "A").toString());
+    }
+
+    /**
+     * Tests that A* searches guided by landmark lower bounds find shortest paths with the
+     * same costs as plain Dijkstra searches, on the directed lecture graph and on campus.dot.
+     */
+    @Test
+    public void testLandmarkHeuristic() throws Exception {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        LandmarkHeuristic<String> landmarks = new LandmarkHeuristic<>(graph, 3);
+        Assertions.assertEquals(3, landmarks.getLandmarks().size());
+        for (String start : LECTURE_NODES) {
+            for (String end : LECTURE_NODES) {
+                graph.setHeuristic(null);
+                if (!hasPath(graph, start, end))
+                    continue;
+                double expected = graph.shortestPathCost(start, end);
+                Assertions.assertTrue(landmarks.estimate(start, end) <= expected);
+                graph.setHeuristic(landmarks);
+                Assertions.assertEquals(expected, graph.shortestPathCost(start, end), 1e-9);
+            }
+        }
+
+        DijkstraGraph<String, Double> campus = loadCampusGraph();
+        Assertions.assertEquals(160, campus.getNodeCount());
+        LandmarkHeuristic<String> campusLandmarks = new LandmarkHeuristic<>(campus, 4);
+        campus.setReuseWorkspaces(true);
+        for (String start : List.of("Memorial Union", "Union South", "Science Hall")) {
+            for (String end : campus.nodes.getKeys()) {
+                campus.setHeuristic(null);
+                double expected = campus.shortestPathCost(start, end);
+                campus.setHeuristic(campusLandmarks);
+                Assertions.assertEquals(expected, campus.shortestPathCost(start, end), 1e-9);
+            }
+        }
+    }
+
+    // loads campus.dot into a DijkstraGraph with an edge in each direction for every line
+    private static DijkstraGraph<String, Double> loadCampusGraph() throws Exception {
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>(new PlaceholderMap<>());
+        Pattern edgeLine = Pattern.compile("\"(.*)\" -- \"(.*)\" \\[seconds=(.*)\\];");
+        for (String line : Files.readAllLines(Path.of("src/campus.dot"))) {
+            Matcher matcher = edgeLine.matcher(line.trim());
+            if (!matcher.matches())
+                continue;
+            double seconds = Double.parseDouble(matcher.group(3));
+            graph.insertNode(matcher.group(1));
+            graph.insertNode(matcher.group(2));
+            graph.insertEdge(matcher.group(1), matcher.group(2), seconds);
+            graph.insertEdge(matcher.group(2), matcher.group(1), seconds);
+        }
+        return graph;
+    }
+
+    /**
+     * Tests that a Backend answering routes with a contraction hierarchy returns the same
+     * walking times as Dijkstra searches for every pair of buildings in campus.dot.
+     */
+    @Test
+    public void testContractionHierarchyRoutes() throws Exception {
+        Backend dijkstra = new Backend();
+        dijkstra.readFile("src/campus.dot");
+        Backend hierarchy = new Backend();
+        hierarchy.setContractionHierarchy(true);
+        hierarchy.readFile("src/campus.dot");
+        List<String> buildings = loadCampusGraph().nodes.getKeys();
+        for (String start : buildings) {
+            for (String end : buildings) {
+                ShortestPath expected = dijkstra.getShortestPath(start, end);
+                ShortestPath actual = hierarchy.getShortestPath(start, end);
+                Assertions.assertEquals(expected.totalPathCost(), actual.totalPathCost(), 1e-6);
+                Assertions.assertEquals(start, actual.path().get(0));
+                Assertions.assertEquals(end, actual.path().get(actual.path().size() - 1));
+                Assertions.assertEquals(actual.path().size() - 1, actual.times().size());
+            }
+        }
+        assertThrows(NoSuchElementException.class, () -> hierarchy.getShortestPath("Memorial Union", "Nowhere"));
+    }
+
+    /**
+     * Tests contraction hierarchy queries on the directed lecture graph, including pairs of
+     * nodes that have no path between them.
+     */
+    @Test
+    public void testContractionHierarchyDirected() {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(CompactGraph.fromGraph(graph));
+        for (String start : LECTURE_NODES) {
+            for (String end : LECTURE_NODES) {
+                if (hasPath(graph, start, end)) {
+                    Assertions.assertEquals(graph.shortestPathCost(start, end), hierarchy.shortestPathCost(start, end));
+                    Assertions.assertEquals(graph.shortestPathData(start, end), hierarchy.shortestPathData(start, end));
+                } else {
+                    assertThrows(NoSuchElementException.class, () -> hierarchy.shortestPathData(start, end));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that an all-pairs table answers every campus route with the same cost as a
+     * Dijkstra search, and that the backend falls back to searching above its node limit.
+     */
+    @Test
+    public void testAllPairsTableRoutes() throws Exception {
+        Backend dijkstra = new Backend();
+        dijkstra.readFile("src/campus.dot");
+        Backend table = new Backend();
+        table.setAllPairsTable(true);
+        table.readFile("src/campus.dot");
+        Assertions.assertTrue(table.hasAllPairsTable());
+        List<String> buildings = loadCampusGraph().nodes.getKeys();
+        for (String start : buildings) {
+            for (String end : buildings) {
+                ShortestPath expected = dijkstra.getShortestPath(start, end);
+                ShortestPath actual = table.getShortestPath(start, end);
+                Assertions.assertEquals(expected.totalPathCost(), actual.totalPathCost(), 1e-6);
+                Assertions.assertEquals(start, actual.path().get(0));
+                Assertions.assertEquals(end, actual.path().get(actual.path().size() - 1));
+            }
+        }
+        table.setAllPairsNodeLimit(100);
+        Assertions.assertFalse(table.hasAllPairsTable());
+        Assertions.assertEquals(dijkstra.getShortestPath("Memorial Union", "Union South").path(),
+                table.getShortestPath("Memorial Union", "Union South").path());
+    }
+
+    /**
+     * Tests all-pairs table lookups on the directed lecture graph, including pairs of nodes
+     * that have no path between them.
+     */
+    @Test
+    public void testAllPairsTableDirected() {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        AllPairsTable<String> table = new AllPairsTable<>(CompactGraph.fromGraph(graph));
+        for (String start : LECTURE_NODES) {
+            for (String end : LECTURE_NODES) {
+                if (hasPath(graph, start, end)) {
+                    Assertions.assertEquals(graph.shortestPathCost(start, end), table.shortestPathCost(start, end));
+                    Assertions.assertEquals(graph.shortestPathData(start, end), table.shortestPathData(start, end));
+                } else {
+                    assertThrows(NoSuchElementException.class, () -> table.shortestPathData(start, end));
+                    assertThrows(NoSuchElementException.class, () -> table.shortestPathCost(start, end));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a shortest path tree gives the same costs and paths as separate searches to
+     * every destination, and reports unreachable and missing nodes.
+     */
+    @Test
+    public void testShortestPathTree() throws Exception {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        for (String start : LECTURE_NODES) {
+            ShortestPathTree<String> tree = graph.shortestPathTree(start);
+            Assertions.assertEquals(start, tree.getSource());
+            Assertions.assertEquals(start, tree.getReachedNodes().get(0));
+            int reached = 0;
+            for (String end : LECTURE_NODES) {
+                if (hasPath(graph, start, end)) {
+                    reached++;
+                    Assertions.assertTrue(tree.reaches(end));
+                    Assertions.assertEquals(graph.shortestPathCost(start, end), tree.costTo(end));
+                    Assertions.assertEquals(graph.shortestPathData(start, end), tree.pathTo(end));
+                } else {
+                    Assertions.assertFalse(tree.reaches(end));
+                    assertThrows(NoSuchElementException.class, () -> tree.pathTo(end));
+                }
+            }
+            Assertions.assertEquals(reached, tree.getReachedCount());
+        }
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPathTree("Z"));
+
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        ShortestPathTree<String> tree = backend.getShortestPathTree("Memorial Union");
+        Assertions.assertEquals(160, tree.getReachedCount());
+        Assertions.assertEquals(backend.getShortestPath("Memorial Union", "Union South").totalPathCost(),
+                tree.costTo("Union South"), 1e-9);
+        assertThrows(NoSuchElementException.class, () -> backend.getShortestPathTree("Nowhere"));
+    }
+
+    /**
+     * Tests that batch queries return the same walking times as separate searches, both for
+     * plain Dijkstra searches and for bucket-based contraction hierarchy queries.
+     */
+    @Test
+    public void testBatchQueries() throws Exception {
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        List<String> nodes = List.of(LECTURE_NODES);
+        double[][] costs = graph.shortestPathCosts(nodes, nodes);
+        ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(CompactGraph.fromGraph(graph));
+        double[][] hierarchyCosts = hierarchy.shortestPathCosts(nodes, nodes);
+        for (int i = 0; i < LECTURE_NODES.length; i++) {
+            for (int j = 0; j < LECTURE_NODES.length; j++) {
+                double expected = hasPath(graph, LECTURE_NODES[i], LECTURE_NODES[j])
+                        ? graph.shortestPathCost(LECTURE_NODES[i], LECTURE_NODES[j])
+                        : Double.POSITIVE_INFINITY;
+                Assertions.assertEquals(expected, costs[i][j]);
+                Assertions.assertEquals(expected, hierarchyCosts[i][j]);
+            }
+        }
+        Assertions.assertArrayEquals(new double[] { 4.0, 1.0, 4.0 },
+                graph.shortestPathCosts("A", List.of("M", "B", "M")));
+        assertThrows(NoSuchElementException.class, () -> graph.shortestPathCosts("A", List.of("Z")));
+
+        List<String> halls = loadCampusGraph().nodes.getKeys().subList(0, 40);
+        Backend dijkstra = new Backend();
+        dijkstra.readFile("src/campus.dot");
+        Backend hierarchyBackend = new Backend();
+        hierarchyBackend.setContractionHierarchy(true);
+        hierarchyBackend.readFile("src/campus.dot");
+        double[][] walkingTimes = dijkstra.getWalkingTimes(halls, halls);
+        double[][] hierarchyTimes = hierarchyBackend.getWalkingTimes(halls, halls);
+        for (int i = 0; i < halls.size(); i++) {
+            for (int j = 0; j < halls.size(); j++) {
+                double expected = dijkstra.getShortestPath(halls.get(i), halls.get(j)).totalPathCost();
+                Assertions.assertEquals(expected, walkingTimes[i][j], 1e-6);
+                Assertions.assertEquals(expected, hierarchyTimes[i][j], 1e-6);
+            }
+        }
+        assertThrows(NoSuchElementException.class, () -> dijkstra.getWalkingTimes(halls, List.of("Nowhere")));
+    }
+
+    /**
+     * Tests that routes can be queried from many threads while the same backend reloads its
+     * file and switches query modes, without any query failing or seeing a partial graph.
+     */
+    @Test
+    public void testConcurrentQueriesDuringReload() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        double expected = backend.getShortestPath("Memorial Union", "Union South").totalPathCost();
+        List<String> buildings = loadCampusGraph().nodes.getKeys();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(() -> {
+                int queries = 0;
+                for (int i = 0; i < 300; i++) {
+                    Assertions.assertEquals(expected,
+                            backend.getShortestPath("Memorial Union", "Union South").totalPathCost(), 1e-6);
+                    String start = buildings.get(i % buildings.size());
+                    Assertions.assertEquals(160, backend.getShortestPathTree(start).getReachedCount());
+                    queries++;
+                }
+                return queries;
+            }));
+        }
+        for (int i = 0; i < 5; i++) {
+            backend.readFile("src/campus.dot");
+            backend.setAllPairsTable(i % 2 == 0);
+        }
+        for (Future<Integer> result : results)
+            Assertions.assertEquals(300, result.get());
+        executor.shutdown();
+    }
+
+    /**
+     * Tests that route metrics can be replaced and removed while metric queries are running
+     * from many threads, without a route found under old weights being served from the cache
+     * afterwards, or a removed metric still being served.
+     */
+    @Test
+    public void testRouteMetricChangesDuringQueries() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        backend.setRouteCache(100, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        backend.setRouteMetric("changing", (from, to, walkingTime) -> walkingTime);
+        List<String> buildings = loadCampusGraph().nodes.getKeys();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(() -> {
+                int queries = 0;
+                for (int i = 0; i < 300; i++) {
+                    ShortestPath route = backend.getShortestPath("Memorial Union",
+                            buildings.get(i % 10 == 0 ? 0 : 1), "changing");
+                    Assertions.assertEquals(route.times().size(), route.path().size() - 1);
+                    queries++;
+                }
+                return queries;
+            }));
+        }
+        for (int i = 0; i < 20; i++) {
+            double segment = i % 2 == 0 ? 1.0 : 1000.0;
+            backend.setRouteMetric("changing", (from, to, walkingTime) -> segment);
+        }
+        for (Future<Integer> result : results)
+            Assertions.assertEquals(300, result.get());
+        executor.shutdown();
+
+        // the cached routes are the ones under the last weights
+        backend.setRouteMetric("changing", (from, to, walkingTime) -> walkingTime);
+        for (int i = 0; i < 2; i++)
+            Assertions.assertEquals(backend.getShortestPath("Memorial Union", buildings.get(i)).path(),
+                    backend.getShortestPath("Memorial Union", buildings.get(i), "changing").path());
+        backend.setRouteMetric("changing", null);
+        for (int i = 0; i < 2; i++) {
+            String destination = buildings.get(i);
+            assertThrows(NoSuchElementException.class,
+                    () -> backend.getShortestPath("Memorial Union", destination, "changing"));
+        }
+    }
+
+    /**
+     * Tests that asynchronous route queries give the same paths as blocking ones, that
+     * failures are reported through the future, and that queries over the limit are rejected.
+     */
+    @Test
+    public void testAsyncQueries() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        List<String> buildings = loadCampusGraph().nodes.getKeys();
+        List<String> starts = new ArrayList<>();
+        List<String> destinations = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            starts.add(buildings.get(i % buildings.size()));
+            destinations.add(buildings.get((i * 7) % buildings.size()));
+        }
+        List<ShortestPath> paths = backend.getShortestPathsAsync(starts, destinations).get();
+        for (int i = 0; i < starts.size(); i++)
+            Assertions.assertEquals(backend.getShortestPath(starts.get(i), destinations.get(i)).path(),
+                    paths.get(i).path());
+        Assertions.assertEquals(0, backend.getQueriesInFlight());
+        // hierarchy queries on many virtual threads share the hierarchy's pooled workspaces
+        backend.setContractionHierarchy(true);
+        List<ShortestPath> hierarchyPaths = backend.getShortestPathsAsync(starts, destinations).get();
+        for (int i = 0; i < starts.size(); i++)
+            Assertions.assertEquals(paths.get(i).totalPathCost(), hierarchyPaths.get(i).totalPathCost(), 1e-6);
+        backend.setContractionHierarchy(false);
+
+        ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> backend.getShortestPathAsync("Memorial Union", "Nowhere").get());
+        Assertions.assertTrue(missing.getCause() instanceof NoSuchElementException);
+        // a batch is admitted as a whole, so one that doesn't fit runs none of its queries
+        backend.setMaxQueriesInFlight(starts.size() - 1);
+        ExecutionException tooLarge = assertThrows(ExecutionException.class,
+                () -> backend.getShortestPathsAsync(starts, destinations).get());
+        Assertions.assertTrue(tooLarge.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals(0, backend.getQueriesInFlight());
+        backend.setMaxQueriesInFlight(starts.size());
+        Assertions.assertEquals(starts.size(), backend.getShortestPathsAsync(starts, destinations).get().size());
+        Assertions.assertEquals(0, backend.getQueriesInFlight());
+        backend.setMaxQueriesInFlight(0);
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> backend.getShortestPathAsync("Memorial Union", "Union South").get());
+        Assertions.assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+        assertThrows(IllegalArgumentException.class,
+                () -> backend.getShortestPathsAsync(starts, destinations.subList(0, 1)));
+    }
+
+    /**
+     * Tests that the route cache evicts the route its policy picks, and drops every route
+     * once a newer graph version is stored.
+     */
+    @Test
+    public void testRouteCacheEviction() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        ShortestPath path = backend.getShortestPath("Memorial Union", "Union South");
+
+        RouteCache lru = new RouteCache(2, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED, false);
+        lru.put("A", "B", 1, path);
+        lru.put("C", "D", 1, path);
+        lru.get("A", "B", 1);
+        lru.put("E", "F", 1, path);
+        Assertions.assertSame(path, lru.get("A", "B", 1));
+        Assertions.assertNull(lru.get("C", "D", 1));
+        Assertions.assertNull(lru.get("B", "A", 1));
+
+        RouteCache lfu = new RouteCache(2, RouteCache.EvictionPolicy.LEAST_FREQUENTLY_USED, true);
+        lfu.put("A", "B", 1, path);
+        lfu.put("C", "D", 1, path);
+        lfu.get("A", "B", 1);
+        lfu.get("A", "B", 1);
+        lfu.get("C", "D", 1);
+        lfu.put("E", "F", 1, path);
+        Assertions.assertNull(lfu.get("C", "D", 1));
+        Assertions.assertSame(path, lfu.get("A", "B", 1));
+        Assertions.assertEquals(path.path().get(0), lfu.get("B", "A", 1).path().get(path.path().size() - 1));
+        Assertions.assertNull(lfu.get("A", "B", 2));
+        lfu.put("C", "D", 2, path);
+        Assertions.assertEquals(1, lfu.size());
+        Assertions.assertEquals(5, lfu.getHits());
+        Assertions.assertEquals(2, lfu.getMisses());
+
+        // metric routes are cached by metric, and never served reversed
+        lfu.put("A", "B", "fewest segments", 2, path);
+        Assertions.assertSame(path, lfu.get("A", "B", "fewest segments", 2));
+        Assertions.assertNull(lfu.get("B", "A", "fewest segments", 2));
+        Assertions.assertNull(lfu.get("A", "B", "fastest", 2));
+        Assertions.assertNull(lfu.get("A", "B", 2));
+    }
+
+    /**
+     * Tests that the backend serves repeated and reversed routes from its cache, and that
+     * changing the graph invalidates the cached routes.
+     */
+    @Test
+    public void testRouteCacheInvalidation() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        backend.setRouteCache(100, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        ShortestPath first = backend.getShortestPath("Memorial Union", "Union South");
+        Assertions.assertSame(first, backend.getShortestPath("Memorial Union", "Union South"));
+        ShortestPath reversed = backend.getShortestPath("Union South", "Memorial Union");
+        Assertions.assertEquals(first.totalPathCost(), reversed.totalPathCost(), 1e-6);
+        Assertions.assertEquals("Memorial Union", reversed.path().get(reversed.path().size() - 1));
+        Assertions.assertEquals(2, backend.getRouteCacheHits());
+        Assertions.assertEquals(1, backend.getRouteCacheMisses());
+
+        // a direct path that is quicker than the cached route replaces it
+        backend.insertEdge("Memorial Union", "Union South", 1.0);
+        Assertions.assertEquals(List.of("Memorial Union", "Union South"),
+                backend.getShortestPath("Memorial Union", "Union South").path());
+        Assertions.assertTrue(backend.removeEdge("Union South", "Memorial Union"));
+        Assertions.assertFalse(backend.removeEdge("Union South", "Memorial Union"));
+        Assertions.assertEquals(first.path(), backend.getShortestPath("Memorial Union", "Union South").path());
+        Assertions.assertEquals(3, backend.getRouteCacheMisses());
+
+        // removing a building on the route forces a different one, and updates the statistics
+        Assertions.assertTrue(backend.removeNode("Science Hall"));
+        Assertions.assertFalse(backend.getShortestPath("Memorial Union", "Union South").path().contains("Science Hall"));
+        int paths = 508 - loadCampusGraph().nodes.get("Science Hall").edgesLeaving.size();
+        Assertions.assertTrue(backend.getStatistics().contains("Number of Buildings: 159"));
+        Assertions.assertTrue(backend.getStatistics().contains("Number of Paths Connecting Buildings: " + paths));
+    }
+
+    /**
+     * Tests that the DOT parser handles quoted IDs with escapes, edge chains, directed edges,
+     * comments and extra attributes, and reports errors with their line and column.
+     */
+    @Test
+    public void testDotParser() {
+        String dot = "strict graph \"campus map\" {\n"
+                + "  // a comment\n"
+                + "  node [shape=box];\n"
+                + "  rankdir = LR;\n"
+                + "  \"Say \\\"Hi\\\" Hall\" -- B [color=\"red\", seconds=1.5; label=x]\n"
+                + "  B -> C -> \"D\\\\E\" [seconds=\"2\"] [weight=3];\n"
+                + "  /* another\n comment */ Lonely;\n"
+                + "  x1 -- y2 [seconds=-0.25e1]\n"
+                + "}\n";
+        List<String> edges = new ArrayList<>();
+        DotParser.EdgeHandler handler = new DotParser.EdgeHandler() {
+            public void edge(String from, String to, double weight, boolean directed) {
+                edges.add(from + (directed ? "->" : "--") + to + "=" + weight);
+            }
+
+            public void node(String name) {
+                edges.add(name);
+            }
+        };
+        new DotParser(ByteBuffer.wrap(dot.getBytes()), "seconds").parseGraph(handler);
+        Assertions.assertEquals(List.of("Say \"Hi\" Hall--B=1.5", "B->C=2.0", "C->D\\E=2.0", "Lonely", "x1--y2=-2.5"),
+                edges);
+
+        String bad = "graph {\n  A -- B [seconds=1];\n  A -- [seconds=2];\n}";
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> new DotParser(ByteBuffer.wrap(bad.getBytes()), "seconds").parseGraph(handler));
+        Assertions.assertTrue(error.getMessage().startsWith("line 3, column 8:"), error.getMessage());
+        String missing = "graph {\n  A -- B [color=red];\n}";
+        error = assertThrows(IllegalArgumentException.class,
+                () -> new DotParser(ByteBuffer.wrap(missing.getBytes()), "seconds").parseGraph(handler));
+        Assertions.assertTrue(error.getMessage().startsWith("line 2, column 3:"), error.getMessage());
+    }
+
+    /**
+     * Tests that weights parsed by the DOT parser are exactly the values that
+     * Double.parseDouble gives, including values with too many digits for its fast path.
+     */
+    @Test
+    public void testDotParserWeightsAreExact() {
+        Random random = new Random(14);
+        StringBuilder dot = new StringBuilder("graph {\n");
+        List<Double> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String weight = switch (i % 4) {
+                case 0 -> Double.toString(random.nextDouble() * 1000.0);
+                case 1 -> Double.toString(random.nextInt(100000) / 100.0);
+                case 2 -> String.format("%.3f", random.nextDouble() * 500.0);
+                default -> Double.toString(random.nextDouble() * 1e-7);
+            };
+            expected.add(Double.parseDouble(weight));
+            dot.append("a").append(i).append(" -- b [seconds=").append(weight).append("];\n");
+        }
+        dot.append("}");
+        List<Double> weights = new ArrayList<>();
+        new DotParser(ByteBuffer.wrap(dot.toString().getBytes()), "seconds")
+                .parseGraph((from, to, weight, directed) -> weights.add(weight));
+        Assertions.assertEquals(expected, weights);
+    }
+
+    /**
+     * Checks that parsing a large file on several threads loads exactly the graph that
+     * loading it one edge at a time does, including node ids, edge order, repeated edges
+     * and the total weight.
+     */
+    @Test
+    public void testParallelLoadingMatchesSequential() throws Exception {
+        Random random = new Random(15);
+        StringBuilder dot = new StringBuilder("strict graph \"large\" {\n  edge [seconds=1];\n");
+        for (int i = 0; i < 40000; i++) {
+            int from = random.nextInt(3000);
+            int to = random.nextInt(3000);
+            if (i % 97 == 0)
+                dot.append("  // a \"quoted\" comment\n");
+            if (i % 89 == 0)
+                dot.append("  \"lonely ").append(i).append("\";\n");
+            dot.append("  \"n").append(from).append(i % 5 == 0 ? "\" -> \"n" : "\" -- \"n").append(to)
+                    .append("\" [seconds=").append(random.nextInt(100000) / 100.0).append("];\n");
+        }
+        dot.append("}\n");
+        Path file = Files.createTempFile("parallel", ".dot");
+        try {
+            Files.writeString(file, dot);
+            assertLoadsLikeSequential(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+        assertLoadsLikeSequential("src/campus.dot");
+    }
+
+    /**
+     * Checks that a file that can't be split at its line breaks is still loaded, and that
+     * syntax errors are reported at their position in the whole file.
+     */
+    @Test
+    public void testParallelLoadingFallsBack() throws Exception {
+        StringBuilder dot = new StringBuilder("graph {\n");
+        for (int i = 0; i < 20000; i++)
+            dot.append("  a").append(i).append(" -- b").append(i % 100).append(" [seconds=").append(i)
+                    .append("];\n");
+        dot.append("  /* a comment\n  a -- b [seconds=3];\n  */\n}\n");
+        Path file = Files.createTempFile("fallback", ".dot");
+        try {
+            Files.writeString(file, dot);
+            assertLoadsLikeSequential(file.toString());
+            Files.writeString(file, dot.toString().replace("a19999 --", "a19999 - -"));
+            IllegalArgumentException sequential = Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> DotParser.parseFile(file.toString(), "seconds", (from, to, weight, directed) -> {
+                    }));
+            IllegalArgumentException parallel = Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> new ParallelDotLoader("seconds").loadFile(file.toString()));
+            Assertions.assertTrue(sequential.getMessage().startsWith("line 20001,"));
+            Assertions.assertEquals(sequential.getMessage(), parallel.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // loads a file both in parallel and one edge at a time, and checks that the graphs match
+    private static void assertLoadsLikeSequential(String file) throws Exception {
+        DijkstraGraph<String, Double> sequential = new DijkstraGraph<>(new PlaceholderMap<>());
+        double[] total = { 0.0 };
+        DotParser.parseFile(file, "seconds", new DotParser.EdgeHandler() {
+            @Override
+            public void edge(String from, String to, double weight, boolean directed) {
+                sequential.insertNode(from);
+                sequential.insertNode(to);
+                sequential.insertEdge(from, to, weight);
+                if (!directed)
+                    sequential.insertEdge(to, from, weight);
+                total[0] += weight;
+            }
+
+            @Override
+            public void node(String name) {
+                sequential.insertNode(name);
+            }
+        });
+        ParallelDotLoader loader = new ParallelDotLoader("seconds");
+        loader.loadFile(file);
+        Assertions.assertEquals(sequential.getEdgeCount(), loader.getGraph().getEdgeCount());
+        Assertions.assertEquals(describe(sequential), describe(loader.getGraph()));
+        Assertions.assertEquals(total[0], loader.getTotalWeight());
+    }
+
+    // lists every node with its id and both of its edge lists, in order
+    private static String describe(DijkstraGraph<String, Double> graph) {
+        StringBuilder description = new StringBuilder();
+        List<String> names = new ArrayList<>(graph.nodes.getKeys());
+        names.sort(null);
+        for (String name : names) {
+            DijkstraGraph<String, Double>.Node node = graph.nodes.get(name);
+            description.append(name).append('#').append(node.id).append(" ->");
+            for (DijkstraGraph<String, Double>.Edge edge : node.edgesLeaving)
+                description.append(' ').append(edge.successor.data).append('=').append(edge.data);
+            description.append(" <-");
+            for (DijkstraGraph<String, Double>.Edge edge : node.edgesEntering)
+                description.append(' ').append(edge.predecessor.data).append('=').append(edge.data);
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Checks each way that a GraphBuilder handles an edge that is added more than once, and
+     * that the edges keep the order they were first added in.
+     */
+    @Test
+    public void testGraphBuilderDuplicatePolicies() {
+        for (GraphBuilder.DuplicatePolicy policy : GraphBuilder.DuplicatePolicy.values()) {
+            GraphBuilder<String, Integer> builder = new GraphBuilder<>(policy);
+            builder.addNode("Z").addEdge("A", "B", 4).addEdge("A", "C", 2).addEdge("B", "C", 1);
+            Assertions.assertEquals(4, builder.getNodeCount());
+            DijkstraGraph<String, Integer> graph = builder.build(new DijkstraGraph<>(new PlaceholderMap<>()));
+            Assertions.assertEquals(3, graph.getEdgeCount());
+            Assertions.assertEquals(0, graph.nodes.get("Z").id);
+
+            builder.addEdge("A", "B", 7).addEdge("A", "B", 3).addEdge("A", "D", 5).addEdge("A", "B", 6);
+            graph = new DijkstraGraph<>(new PlaceholderMap<>());
+            if (policy == GraphBuilder.DuplicatePolicy.REJECT) {
+                DijkstraGraph<String, Integer> rejecting = graph;
+                Assertions.assertThrows(IllegalArgumentException.class, () -> builder.build(rejecting));
+                Assertions.assertEquals(0, graph.getEdgeCount());
+                continue;
+            }
+            builder.build(graph);
+            Assertions.assertEquals(4, graph.getEdgeCount());
+            Assertions.assertEquals(policy == GraphBuilder.DuplicatePolicy.KEEP_LAST ? 6 : 3, graph.getEdge("A", "B"));
+            List<String> successors = new ArrayList<>();
+            for (DijkstraGraph<String, Integer>.Edge edge : graph.nodes.get("A").edgesLeaving)
+                successors.add(edge.successor.data);
+            Assertions.assertEquals(List.of("B", "C", "D"), successors);
+            Assertions.assertEquals(1, graph.getEdge("B", "C"));
+        }
+
+        // an edge that is already in the graph counts as added before the builder's edges
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        new GraphBuilder<String, Integer>(GraphBuilder.DuplicatePolicy.KEEP_MINIMUM)
+                .addEdge("A", "H", 9).addEdge("A", "M", 4).addEdge("M", "A", 2).build(graph);
+        Assertions.assertEquals(8, graph.getEdge("A", "H"));
+        Assertions.assertEquals(4, graph.getEdge("A", "M"));
+        Assertions.assertEquals(2, graph.getEdge("M", "A"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new GraphBuilder<String, Integer>(GraphBuilder.DuplicatePolicy.REJECT)
+                        .addEdge("A", "B", 1).build(lectureExampleGraph()));
+    }
+
+    /**
+     * Checks that edges of a high-degree node can be found, updated and removed through the
+     * successor index, and that removing edges keeps both edge lists consistent.
+     */
+    @Test
+    public void testHubNodeEdgeOperations() {
+        DijkstraGraph<String, Integer> graph = new DijkstraGraph<>(new PlaceholderMap<>());
+        graph.insertNode("hub");
+        for (int i = 0; i < 5000; i++) {
+            graph.insertNode("n" + i);
+            graph.insertEdge("hub", "n" + i, i);
+            graph.insertEdge("n" + i, "hub", i);
+        }
+        Assertions.assertEquals(10000, graph.getEdgeCount());
+        Assertions.assertTrue(graph.insertEdge("hub", "n42", 7));
+        Assertions.assertEquals(7, graph.getEdge("hub", "n42"));
+        for (int i = 0; i < 5000; i += 2)
+            Assertions.assertTrue(graph.removeEdge("hub", "n" + i));
+        Assertions.assertFalse(graph.removeEdge("hub", "n0"));
+        Assertions.assertFalse(graph.containsEdge("hub", "n42"));
+        Assertions.assertTrue(graph.containsEdge("hub", "n43"));
+        Assertions.assertEquals(7500, graph.getEdgeCount());
+
+        // every remaining edge is in both of its lists, and the hub's list holds the odd nodes
+        DijkstraGraph<String, Integer>.Node hub = graph.nodes.get("hub");
+        Assertions.assertEquals(2500, hub.edgesLeaving.size());
+        for (DijkstraGraph<String, Integer>.Edge edge : hub.edgesLeaving) {
+            Assertions.assertEquals(1, Integer.parseInt(edge.successor.data.substring(1)) % 2);
+            Assertions.assertTrue(edge.successor.edgesEntering.contains(edge));
+            Assertions.assertEquals(edge.data, graph.getEdge("hub", edge.successor.data));
+        }
+        Assertions.assertEquals(21 + 43, graph.shortestPathCost("n21", "n43"));
+
+        Assertions.assertTrue(graph.removeNode("hub"));
+        Assertions.assertEquals(0, graph.getEdgeCount());
+        Assertions.assertTrue(graph.nodes.get("n43").edgesLeaving.isEmpty());
+        Assertions.assertTrue(graph.nodes.get("n43").edgesBySuccessor.isEmpty());
+    }
+
+    /**
+     * Checks that a graph saved to a binary snapshot and loaded back answers the same routes
+     * and statistics, both straight from the mapped file and after the graph is changed.
+     */
+    @Test
+    public void testBinarySnapshotRoundTrip() throws Exception {
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        Path file = Files.createTempFile("campus", ".graph");
+        try {
+            backend.saveSnapshot(file.toString());
+            Backend loaded = new Backend();
+            loaded.loadSnapshot(file.toString());
+            Assertions.assertEquals(backend.getStatistics(), loaded.getStatistics());
+            List<String> buildings = loadCampusGraph().nodes.getKeys();
+            Random random = new Random(18);
+            for (int i = 0; i < 200; i++) {
+                String start = buildings.get(random.nextInt(buildings.size()));
+                String destination = buildings.get(random.nextInt(buildings.size()));
+                ShortestPath expected = backend.getShortestPath(start, destination);
+                ShortestPath actual = loaded.getShortestPath(start, destination);
+                Assertions.assertEquals(expected.totalPathCost(), actual.totalPathCost(), 1e-6);
+                Assertions.assertEquals(start, actual.path().get(0));
+                Assertions.assertEquals(destination, actual.path().get(actual.path().size() - 1));
+            }
+            Assertions.assertThrows(NoSuchElementException.class,
+                    () -> loaded.getShortestPath("Memorial Union", "Nowhere Hall"));
+
+            // the snapshot without landmarks answers the same routes with plain Dijkstra searches
+            MappedGraph graph = MappedGraph.open(file.toString());
+            Assertions.assertEquals(MappedGraph.DEFAULT_LANDMARK_COUNT, graph.getLandmarkCount());
+            MappedGraph.write(loadCampusGraph(), 0.0, false, 0, file.toString());
+            MappedGraph plain = MappedGraph.open(file.toString());
+            Assertions.assertEquals(0, plain.getLandmarkCount());
+            for (String building : buildings)
+                Assertions.assertEquals(graph.shortestPathCost("Union South", building),
+                        plain.shortestPathCost("Union South", building), 1e-6);
+            Assertions.assertEquals(-1, plain.getId("Nowhere Hall"));
+
+            // the searches that need a modifiable graph, and changes, copy the mapped graph into one
+            Assertions.assertEquals(backend.getShortestPathTree("Union South").costTo("Science Hall"),
+                    loaded.getShortestPathTree("Union South").costTo("Science Hall"), 1e-6);
+            Assertions.assertTrue(loaded.insertEdge("Memorial Union", "Union South", 1.0));
+            Assertions.assertEquals(List.of("Memorial Union", "Union South"),
+                    loaded.getShortestPath("Memorial Union", "Union South").path());
+
+            Files.writeString(file, "graph { a -- b [seconds=1]; }");
+            Assertions.assertThrows(IllegalArgumentException.class, () -> loaded.loadSnapshot(file.toString()));
+        } finally {
+            Files.delete(file);
+        }
+        Assertions.assertThrows(NoSuchElementException.class, () -> new Backend().saveSnapshot(file.toString()));
+    }
+
+    /**
+     * Checks that the off-heap graph finds the same shortest paths as a DijkstraGraph, and
+     * that its nodes and edges can be removed and inserted again across page boundaries.
+     */
+    @Test
+    public void testOffHeapGraph() throws Exception {
+        OffHeapGraph campus = OffHeapGraph.loadFile("src/campus.dot", "seconds");
+        DijkstraGraph<String, Double> expected = loadCampusGraph();
+        Assertions.assertEquals(expected.getNodeCount(), campus.getNodeCount());
+        Assertions.assertEquals(expected.getEdgeCount(), campus.getEdgeCount());
+        List<String> buildings = expected.nodes.getKeys();
+        for (String building : buildings) {
+            Assertions.assertEquals(expected.shortestPathCost("Memorial Union", building),
+                    campus.shortestPathCost("Memorial Union", building), 1e-6);
+            Assertions.assertEquals(building, campus.getData(campus.getId(building)));
+        }
+        Assertions.assertEquals(expected.shortestPathData("Memorial Union", "Union South"),
+                campus.shortestPathData("Memorial Union", "Union South"));
+
+        // a graph with more nodes and edges than fit in one page of records
+        OffHeapGraph graph = new OffHeapGraph();
+        for (int i = 0; i < 70000; i++)
+            Assertions.assertTrue(graph.insertNode("n" + i));
+        Assertions.assertFalse(graph.insertNode("n123"));
+        // every name takes one slot of the index, however often the index was rebuilt
+        Assertions.assertEquals(70000, graph.indexUsed);
+        for (int i = 0; i + 1 < 70000; i++) {
+            graph.insertEdge("n" + i, "n" + (i + 1), 1.0);
+            graph.insertEdge("n" + (i + 1), "n" + i, 2.0);
+        }
+        Assertions.assertEquals(139998, graph.getEdgeCount());
+        Assertions.assertEquals(69999.0, graph.shortestPathCost("n0", "n69999"));
+        Assertions.assertTrue(graph.insertEdge("n0", "n69999", 5.0));
+        Assertions.assertEquals(List.of("n0", "n69999"), graph.shortestPathData("n0", "n69999"));
+        Assertions.assertEquals(5.0, graph.getEdge("n0", "n69999"));
+
+        // removing a node takes its edges with it, and its name can be inserted again
+        Assertions.assertTrue(graph.removeNode("n35000"));
+        Assertions.assertFalse(graph.removeNode("n35000"));
+        Assertions.assertEquals(139995, graph.getEdgeCount());
+        Assertions.assertEquals(69999, graph.getNodeCount());
+        Assertions.assertFalse(graph.containsEdge("n34999", "n35000"));
+        Assertions.assertTrue(graph.insertNode("n35000"));
+        Assertions.assertTrue(graph.insertEdge("n34999", "n35000", 1.0));
+        Assertions.assertTrue(graph.insertEdge("n35000", "n35001", 1.0));
+        Assertions.assertEquals(2.0, graph.shortestPathCost("n34999", "n35001"));
+        Assertions.assertTrue(graph.removeEdge("n35000", "n35001"));
+        Assertions.assertFalse(graph.containsEdge("n35000", "n35001"));
+        Assertions.assertFalse(graph.insertEdge("n1", "missing", 1.0));
+        Assertions.assertEquals(-1, graph.getId("missing"));
+    }
+
+    @Test
+    public void testHashtableMaps() {
+        // keys whose hash codes all collide, so that every key lands in one run of slots
+        HashtableMap<Colliding, Integer> map = new HashtableMap<>(4, 0.5);
+        for (int i = 0; i < 200; i++)
+            map.put(new Colliding(i), i);
+        Assertions.assertEquals(200, map.getSize());
+        Assertions.assertTrue(map.getCapacity() >= 400);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(new Colliding(7), 0));
+        // removing from the middle of the run must leave every later key reachable
+        for (int i = 0; i < 200; i += 3)
+            Assertions.assertEquals(i, map.remove(new Colliding(i)));
+        for (int i = 0; i < 200; i++) {
+            final Colliding key = new Colliding(i);
+            if (i % 3 == 0) {
+                Assertions.assertFalse(map.containsKey(key));
+                Assertions.assertThrows(NoSuchElementException.class, () -> map.get(key));
+            } else {
+                Assertions.assertEquals(i, map.get(key));
+            }
+        }
+        Assertions.assertEquals(133, map.getKeys().size());
+        Assertions.assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HashtableMap<String, String>(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HashtableMap<String, String>(8, 1.0));
+        map.clear();
+        Assertions.assertEquals(0, map.getSize());
+        Assertions.assertFalse(map.containsKey(new Colliding(1)));
+
+        // random puts and removes agree with java.util.HashMap
+        IntHashtableMap<String> ints = new IntHashtableMap<>();
+        java.util.HashMap<Integer, String> reference = new java.util.HashMap<>();
+        Random random = new Random(20);
+        for (int step = 0; step < 20000; step++) {
+            int key = random.nextInt(2000) - 1000;
+            if (reference.containsKey(key)) {
+                Assertions.assertEquals(reference.remove(key), ints.remove(key));
+            } else {
+                reference.put(key, "v" + key);
+                ints.put(key, "v" + key);
+            }
+            Assertions.assertEquals(reference.size(), ints.getSize());
+        }
+        for (int key = -1000; key < 1000; key++)
+            Assertions.assertEquals(reference.containsKey(key), ints.containsKey(key));
+        Assertions.assertEquals(reference.get(-5) == null, !ints.containsKey(Integer.valueOf(-5)));
+        Assertions.assertThrows(NullPointerException.class, () -> ints.get(null));
+        Assertions.assertThrows(NoSuchElementException.class, () -> ints.remove(5000));
+    }
+
+    // a key whose hash code is the same for every instance
+    private static class Colliding {
+        private final int value;
+
+        Colliding(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Colliding && ((Colliding) other).value == value;
+        }
+    }
+
+    @Test
+    public void testSyntheticMapsAndLoadTest() throws Exception {
+        Path file = Files.createTempFile("synthetic", ".dot");
+        try {
+            // a 20 by 20 grid has 19 paths along each of its 20 rows and 20 columns
+            Assertions.assertEquals(760, DotGenerator.write(file.toString(), DotGenerator.Topology.GRID, 400, 1, 3L));
+            Backend backend = new Backend();
+            backend.readFile(file.toString());
+            Assertions.assertTrue(backend.getStatistics().contains("Number of Buildings: 400"));
+            Assertions.assertTrue(backend.getStatistics().contains("Number of Paths Connecting Buildings: 760"));
+            List<String> corner = backend.getShortestPath("Building 0", "Building 399").path();
+            Assertions.assertEquals("Building 0", corner.get(0));
+            Assertions.assertEquals("Building 399", corner.get(corner.size() - 1));
+            Assertions.assertTrue(corner.size() >= 39);
+
+            // every building of a geometric map can reach every other one
+            int paths = DotGenerator.write(file.toString(), DotGenerator.Topology.GEOMETRIC, 2000, 3, 5L);
+            backend.readFile(file.toString());
+            Assertions.assertTrue(backend.getStatistics().contains("Number of Paths Connecting Buildings: " + paths));
+            List<String> buildings = LoadTest.readBuildings(file.toString());
+            Assertions.assertEquals(2000, buildings.size());
+            LoadTest.Report report = LoadTest.run(backend, buildings, 2, 300, 1.0, 9L);
+            Assertions.assertEquals(0, report.failures);
+            Assertions.assertEquals(300, report.latencies.getCount());
+            Assertions.assertTrue(report.getThroughput() > 0);
+
+            // a single building has no neighbours and no paths, whatever the topology
+            for (DotGenerator.Topology topology : DotGenerator.Topology.values()) {
+                Assertions.assertEquals(0, DotGenerator.write(file.toString(), topology, 1, 3, 5L));
+                backend.readFile(file.toString());
+                Assertions.assertTrue(backend.getStatistics().contains("Number of Buildings: 1"));
+                Assertions.assertTrue(backend.getStatistics().contains("Number of Paths Connecting Buildings: 0"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // the percentiles of a histogram are within the precision of its buckets
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100000; value++)
+            histogram.record(value);
+        Assertions.assertEquals(100000, histogram.getCount());
+        Assertions.assertEquals(100000, histogram.getMax());
+        Assertions.assertEquals(50000.5, histogram.getMean(), 1e-9);
+        Assertions.assertEquals(50000, histogram.getValueAtPercentile(50), 50000 / 32.0);
+        Assertions.assertEquals(99000, histogram.getValueAtPercentile(99), 99000 / 32.0);
+        Assertions.assertEquals(100000, histogram.getValueAtPercentile(100));
+        Assertions.assertEquals(1, histogram.getValueAtPercentile(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(Long.MAX_VALUE);
+        histogram.add(other);
+        Assertions.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(99));
+
+        // a Zipf sampler with exponent 1 draws rank 0 about twice as often as rank 1
+        LoadTest.ZipfSampler sampler = new LoadTest.ZipfSampler(100, 1.0);
+        int[] draws = new int[100];
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++)
+            draws[sampler.next(random)]++;
+        Assertions.assertEquals(2.0, (double) draws[0] / draws[1], 0.15);
+    }
+
+    @Test
+    public void testSearchMetrics() throws Exception {
+        Backend backend = new Backend();
+        Assertions.assertEquals(0, backend.getMetrics().searchCount());
+        backend.setMetricsEnabled(true);
+        backend.readFile("src/campus.dot");
+        backend.getShortestPath("Memorial Union", "Union South");
+        Assertions.assertThrows(NoSuchElementException.class, () -> backend.getShortestPath("Memorial Union", "Nowhere"));
+
+        SearchMetrics.Snapshot metrics = backend.getMetrics();
+        Assertions.assertEquals(1, metrics.fileLoadCount());
+        Assertions.assertEquals(Files.readAllLines(Path.of("src/campus.dot")).size(), metrics.linesParsed());
+        Assertions.assertTrue(metrics.lastParseTime() > 0);
+        // the missing building is caught before any search starts, but the query is still timed
+        Assertions.assertEquals(1, metrics.searchCount());
+        Assertions.assertEquals(2, metrics.queryCount());
+        Assertions.assertTrue(metrics.nodesSettled() > 1 && metrics.nodesSettled() <= 160);
+        Assertions.assertTrue(metrics.edgesRelaxed() >= metrics.nodesSettled() - 1);
+        Assertions.assertTrue(metrics.peakQueueSize() > 1);
+        Assertions.assertTrue(metrics.searchTimeP50() > 0 && metrics.searchTimeP50() <= metrics.maxSearchTime());
+
+        // the metrics follow the graph through changes, and are published over JMX
+        backend.insertEdge("Memorial Union", "Union South", 1.0);
+        backend.getShortestPath("Memorial Union", "Union South");
+        javax.management.ObjectName name = new javax.management.ObjectName("Backend:type=SearchMetrics,id=*");
+        javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+        boolean published = false;
+        for (javax.management.ObjectName registered : server.queryNames(name, null))
+            published |= Long.valueOf(2).equals(server.getAttribute(registered, "SearchCount"));
+        Assertions.assertTrue(published);
+
+        // the parallel loader counts the same lines, also when the last line has no line break
+        backend.setParallelLoading(true);
+        backend.readFile("src/campus.dot");
+        Assertions.assertEquals(2 * metrics.linesParsed(), backend.getMetrics().linesParsed());
+        String unterminated = "graph {\n\"a\" -- \"b\" [seconds=1];\n}";
+        DotParser parser = new DotParser(ByteBuffer.wrap(unterminated.getBytes()), "seconds");
+        parser.parseGraph((from, to, weight, directed) -> { });
+        Assertions.assertEquals(3, parser.getLineCount());
+        ParallelDotLoader loader = new ParallelDotLoader("seconds");
+        loader.load(ByteBuffer.wrap((unterminated + "\n").getBytes()));
+        Assertions.assertEquals(3, loader.getLineCount());
+
+        backend.setMetricsEnabled(false);
+        Assertions.assertTrue(server.queryNames(name, null).isEmpty());
+        Assertions.assertEquals(0, backend.getMetrics().queryCount());
+
+        // indexed and bidirectional searches never pop stale entries, while the lazy queue may
+        DijkstraGraph<String, Integer> graph = lectureExampleGraph();
+        SearchMetrics graphMetrics = new SearchMetrics();
+        graph.setMetrics(graphMetrics);
+        graph.shortestPathCost("A", "M");
+        Assertions.assertEquals(1, graphMetrics.getSearchCount());
+        graph.setQueueType(DijkstraGraph.QueueType.BINARY_HEAP);
+        graph.shortestPathCost("A", "M");
+        graph.setBidirectional(true);
+        graph.shortestPathCost("A", "M");
+        Assertions.assertEquals(3, graphMetrics.getSearchCount());
+        long lazyStale = graphMetrics.getStalePops();
+        graph.setBidirectional(false);
+        Assertions.assertThrows(NoSuchElementException.class, () -> graph.shortestPathCost("M", "A"));
+        Assertions.assertEquals(1, graphMetrics.getFailedSearchCount());
+        Assertions.assertEquals(lazyStale, graphMetrics.getStalePops());
+        graphMetrics.reset();
+        Assertions.assertEquals(0, graphMetrics.snapshot().nodesSettled());
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("routes", ".jfr");
+        try (jdk.jfr.Recording recording = new jdk.jfr.Recording()) {
+            for (String event : new String[] { "routes.GraphLoad", "routes.RouteQuery", "routes.Search",
+                    "routes.PathReconstruction" })
+                recording.enable(event).withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            Backend backend = new Backend();
+            backend.readFile("src/campus.dot");
+            ShortestPath path = backend.getShortestPath("Memorial Union", "Union South");
+            Assertions.assertThrows(NoSuchElementException.class, () -> backend.getShortestPath("Memorial Union", "Nowhere"));
+            recording.stop();
+            recording.dump(file);
+
+            List<jdk.jfr.consumer.RecordedEvent> events = jdk.jfr.consumer.RecordingFile.readAllEvents(file);
+            List<String> names = new ArrayList<>();
+            for (jdk.jfr.consumer.RecordedEvent event : events) {
+                String name = event.getEventType().getName();
+                names.add(name);
+                if (name.equals("routes.GraphLoad")) {
+                    Assertions.assertEquals(160, event.getInt("nodeCount"));
+                    Assertions.assertEquals(1016, event.getInt("edgeCount"));
+                    Assertions.assertEquals(Files.readAllLines(Path.of("src/campus.dot")).size(), event.getInt("lineCount"));
+                    Assertions.assertTrue(event.getLong("parseTime") > 0);
+                } else if (name.equals("routes.Search")) {
+                    Assertions.assertEquals("Memorial Union", event.getString("start"));
+                    Assertions.assertEquals("Union South", event.getString("end"));
+                    Assertions.assertTrue(event.getBoolean("found"));
+                    Assertions.assertTrue(event.getInt("settled") > 1);
+                } else if (name.equals("routes.PathReconstruction")) {
+                    Assertions.assertEquals(path.path().size(), event.getInt("pathLength"));
+                } else if (name.equals("routes.RouteQuery") && event.getBoolean("found")) {
+                    Assertions.assertEquals(path.path().size(), event.getInt("pathLength"));
+                    Assertions.assertEquals(path.totalPathCost(), event.getDouble("walkingTime"));
+                } else if (name.equals("routes.RouteQuery")) {
+                    Assertions.assertEquals("Nowhere", event.getString("destination"));
+                }
+            }
+            Assertions.assertEquals(1, java.util.Collections.frequency(names, "routes.GraphLoad"));
+            Assertions.assertEquals(1, java.util.Collections.frequency(names, "routes.Search"));
+            Assertions.assertEquals(1, java.util.Collections.frequency(names, "routes.PathReconstruction"));
+            Assertions.assertEquals(2, java.util.Collections.frequency(names, "routes.RouteQuery"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Checks that maintained trees match fresh searches after every batch of
+     * weight changes, insertions, removals and closures, that a batch naming a
+     * missing node changes nothing, and that Backend answers routes from its
+     * maintained trees.
+     */
+    @Test
+    public void testDynamicShortestPaths() throws Exception {
+        Random random = new Random(24);
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>(new HashtableMap<>());
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+            graph.insertNode(i);
+        for (int i = 0; i < 1200; i++) {
+            int from = random.nextInt(300);
+            int to = random.nextInt(300);
+            if (from != to) {
+                graph.insertEdge(from, to, (double) (1 + random.nextInt(20)));
+                edges.add(new int[] { from, to });
+            }
+        }
+        DynamicShortestPaths<Integer, Double> dynamic = new DynamicShortestPaths<>(graph);
+        for (int origin : new int[] { 0, 17, 123 })
+            dynamic.addOrigin(origin);
+        assertMatchesFreshTrees(dynamic);
+        for (int round = 0; round < 40; round++) {
+            DynamicShortestPaths.Batch<Integer, Double> batch = new DynamicShortestPaths.Batch<>();
+            for (int change = 0; change < 6; change++) {
+                int[] edge = edges.get(random.nextInt(edges.size()));
+                int kind = random.nextInt(20);
+                if (kind == 0)
+                    batch.closeNode(edge[0]);
+                else if (kind < 5)
+                    batch.removeEdge(edge[0], edge[1]);
+                else if (kind < 8)
+                    batch.setWeight(random.nextInt(300), edge[1], (double) random.nextInt(30));
+                else
+                    batch.setWeight(edge[0], edge[1], (double) random.nextInt(30));
+            }
+            dynamic.apply(batch);
+            assertMatchesFreshTrees(dynamic);
+        }
+
+        // making an edge that no tree uses more expensive repairs nothing, and a tree edge only its subtree
+        ShortestPathTree<Integer> tree = dynamic.getTree(0);
+        int leaf = tree.getReachedNodes().get(tree.getReachedCount() - 1);
+        List<Integer> path = tree.pathTo(leaf);
+        int[] unused = null;
+        for (int[] edge : edges)
+            if (unused == null && graph.containsEdge(edge[0], edge[1]) && !isTreeEdge(dynamic, edge))
+                unused = edge;
+        Assertions.assertEquals(0, dynamic.apply(new DynamicShortestPaths.Batch<Integer, Double>()
+                .setWeight(unused[0], unused[1], 1000.0)).nodesRepaired());
+        DynamicShortestPaths.Result result = dynamic.apply(new DynamicShortestPaths.Batch<Integer, Double>()
+                .setWeight(path.get(path.size() - 2), leaf, 1000.0));
+        Assertions.assertEquals(1, result.edgesChanged());
+        Assertions.assertTrue(result.nodesRepaired() < 300);
+        assertMatchesFreshTrees(dynamic);
+        List<Integer> reached = dynamic.getTree(17).getReachedNodes();
+        for (int i = 1; i < reached.size(); i++)
+            Assertions.assertTrue(dynamic.getTree(17).costTo(reached.get(i - 1)) <= dynamic.getTree(17).costTo(reached.get(i)));
+
+        // a batch that names a missing node is rejected before any of it is applied
+        int edgeCount = graph.getEdgeCount();
+        Assertions.assertThrows(NoSuchElementException.class, () -> dynamic.apply(
+                new DynamicShortestPaths.Batch<Integer, Double>().closeNode(0).removeEdge(1, 999)));
+        Assertions.assertEquals(edgeCount, graph.getEdgeCount());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new DynamicShortestPaths.Batch<Integer, Double>().setWeight(0, 1, -1.0));
+
+        // Backend answers routes from a maintained origin the same way as after ordinary edits
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        Assertions.assertThrows(NoSuchElementException.class, () -> backend.setMaintainedOrigins(List.of("Nowhere")));
+        backend.setMaintainedOrigins(List.of("Memorial Union"));
+        List<String> route = backend.getShortestPath("Memorial Union", "Union South").path();
+        DynamicShortestPaths.Batch<String, Double> batch = new DynamicShortestPaths.Batch<String, Double>()
+                .setWeight(route.get(0), route.get(1), 5000.0).closeNode(route.get(route.size() - 2));
+        Assertions.assertTrue(backend.updateWalkingTimes(batch).edgesChanged() > 2);
+        Backend reference = new Backend();
+        reference.readFile("src/campus.dot");
+        reference.insertEdge(route.get(0), route.get(1), 5000.0);
+        reference.removeNode(route.get(route.size() - 2));
+        for (String destination : new String[] { "Union South", "UW Credit Union", "Bascom Hall" }) {
+            ShortestPath expected = reference.getShortestPath("Memorial Union", destination);
+            ShortestPath actual = backend.getShortestPath("Memorial Union", destination);
+            Assertions.assertEquals(expected.path(), actual.path());
+            Assertions.assertEquals(expected.totalPathCost(), actual.totalPathCost(), 1e-9);
+        }
+        Assertions.assertThrows(NoSuchElementException.class, () -> backend.getShortestPath("Memorial Union", "Nowhere"));
+        Assertions.assertFalse(backend.getShortestPathTree("Memorial Union").reaches(route.get(route.size() - 2)));
+
+        // a mapped snapshot loaded with a maintained origin answers from the tree over its paths
+        Path file = Files.createTempFile("campus", ".graph");
+        try {
+            reference.saveSnapshot(file.toString());
+            Backend loaded = new Backend();
+            loaded.setMaintainedOrigins(List.of("Memorial Union"));
+            loaded.loadSnapshot(file.toString());
+            Assertions.assertEquals(reference.getShortestPath("Memorial Union", "Bascom Hall").path(),
+                    loaded.getShortestPath("Memorial Union", "Bascom Hall").path());
+            Assertions.assertEquals(reference.getShortestPathTree("Memorial Union").getReachedCount(),
+                    loaded.getShortestPathTree("Memorial Union").getReachedCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // returns whether an edge is on the path to its successor in any maintained tree
+    private static boolean isTreeEdge(DynamicShortestPaths<Integer, Double> dynamic, int[] edge) {
+        for (int origin : dynamic.getOrigins()) {
+            ShortestPathTree<Integer> tree = dynamic.getTree(origin);
+            if (tree.reaches(edge[1]) && edge[1] != origin) {
+                List<Integer> path = tree.pathTo(edge[1]);
+                if (path.get(path.size() - 2) == edge[0])
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // checks every maintained tree of dynamic against a fresh search of its graph
+    private static void assertMatchesFreshTrees(DynamicShortestPaths<Integer, Double> dynamic) {
+        for (int origin : dynamic.getOrigins()) {
+            ShortestPathTree<Integer> expected = dynamic.getGraph().shortestPathTree(origin);
+            ShortestPathTree<Integer> actual = dynamic.getTree(origin);
+            Assertions.assertEquals(expected.getReachedCount(), actual.getReachedCount());
+            for (int node = 0; node < 300; node++) {
+                Assertions.assertEquals(expected.reaches(node), actual.reaches(node));
+                if (expected.reaches(node))
+                    Assertions.assertEquals(expected.costTo(node), actual.costTo(node));
+            }
+        }
+    }
+
+    /**
+     * Checks that a customizable contraction hierarchy finds the same shortest
+     * path costs as Dijkstra under every metric it is customized for, in
+     * directed graphs and with edges that a metric closes, and that Backend
+     * finds routes under a metric by name.
+     */
+    @Test
+    public void testCustomizableMetrics() throws Exception {
+        // a directed graph, whose edges often have no reverse edge or a different reverse weight
+        Random random = new Random(25);
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>(new HashtableMap<>());
+        for (int i = 0; i < 200; i++)
+            graph.insertNode(i);
+        for (int i = 0; i < 700; i++) {
+            int from = random.nextInt(200);
+            int to = random.nextInt(200);
+            if (from != to)
+                graph.insertEdge(from, to, (double) (1 + random.nextInt(20)));
+        }
+        CustomizableContractionHierarchy<Integer> hierarchy = new CustomizableContractionHierarchy<>(
+                CompactGraph.fromGraph(graph));
+        int arcCount = hierarchy.getArcCount();
+        hierarchy.customize("time", (pred, succ, weight) -> weight);
+        hierarchy.customize("hops", (pred, succ, weight) -> 1.0);
+        // the closed metric can't use any edge into a node divisible by 7
+        hierarchy.customize("closed", (pred, succ, weight) -> succ % 7 == 0 ? Double.POSITIVE_INFINITY : weight);
+        Assertions.assertEquals(arcCount, hierarchy.getArcCount());
+        Assertions.assertEquals(3, hierarchy.getMetricNames().size());
+
+        DijkstraGraph<Integer, Double> hops = new DijkstraGraph<>(new HashtableMap<>());
+        DijkstraGraph<Integer, Double> closed = new DijkstraGraph<>(new HashtableMap<>());
+        for (int i = 0; i < 200; i++) {
+            hops.insertNode(i);
+            closed.insertNode(i);
+        }
+        for (int node : graph.nodes.getKeys())
+            for (BaseGraph<Integer, Double>.Edge edge : graph.nodes.get(node).edgesLeaving) {
+                hops.insertEdge(node, edge.successor.data, 1.0);
+                if (edge.successor.data % 7 != 0)
+                    closed.insertEdge(node, edge.successor.data, edge.data);
+            }
+        for (int i = 0; i < 300; i++) {
+            int start = random.nextInt(200);
+            int end = random.nextInt(200);
+            assertSameCost(graph, hierarchy, "time", start, end);
+            assertSameCost(hops, hierarchy, "hops", start, end);
+            assertSameCost(closed, hierarchy, "closed", start, end);
+        }
+
+        // a metric can be replaced and removed, and rejected weights leave the previous metric in place
+        hierarchy.customize("hops", (pred, succ, weight) -> 2.0);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> hierarchy.customize("hops", (pred, succ, weight) -> -1.0));
+        Assertions.assertTrue(hierarchy.removeMetric("time"));
+        Assertions.assertFalse(hierarchy.removeMetric("time"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> hierarchy.shortestPathCost("time", 0, 1));
+        int start = graph.nodes.getKeys().get(0);
+        for (int end = 0; end < 200; end++) {
+            if (hasPath(hops, start, end))
+                Assertions.assertEquals(2.0 * hops.shortestPathCost(start, end), hierarchy.shortestPathCost("hops", start, end));
+        }
+
+        // new weights on the same edges reuse the preprocessing, while changed edges need it again
+        DijkstraGraph<Integer, Double> reweighted = new DijkstraGraph<>(new HashtableMap<>());
+        for (int i = 0; i < 200; i++)
+            reweighted.insertNode(i);
+        for (int node : graph.nodes.getKeys())
+            for (BaseGraph<Integer, Double>.Edge edge : graph.nodes.get(node).edgesLeaving)
+                reweighted.insertEdge(node, edge.successor.data, (double) (1 + random.nextInt(20)));
+        CustomizableContractionHierarchy<Integer> customized = hierarchy.reweight(reweighted);
+        Assertions.assertEquals(arcCount, customized.getArcCount());
+        Assertions.assertTrue(customized.getMetricNames().isEmpty());
+        customized.customize("time", (pred, succ, weight) -> weight);
+        for (int i = 0; i < 100; i++)
+            assertSameCost(reweighted, customized, "time", random.nextInt(200), random.nextInt(200));
+        BaseGraph<Integer, Double>.Edge removed = reweighted.nodes.get(start).edgesLeaving.iterator().next();
+        reweighted.removeEdge(start, removed.successor.data);
+        Assertions.assertNull(hierarchy.reweight(reweighted));
+        reweighted.insertEdge(start, start, 1.0);
+        Assertions.assertNull(hierarchy.reweight(reweighted));
+
+        // Backend finds the route with the fewest segments by name, and the fastest route as before
+        Backend backend = new Backend();
+        backend.readFile("src/campus.dot");
+        backend.setRouteMetric("fewest segments", (from, to, walkingTime) -> 1.0);
+        Assertions.assertEquals(List.of("fewest segments"), backend.getRouteMetrics());
+        DijkstraGraph<String, Double> campus = loadCampusGraph();
+        DijkstraGraph<String, Double> segments = new DijkstraGraph<>(new HashtableMap<>());
+        for (String building : campus.nodes.getKeys())
+            segments.insertNode(building);
+        for (String building : campus.nodes.getKeys())
+            for (BaseGraph<String, Double>.Edge edge : campus.nodes.get(building).edgesLeaving)
+                segments.insertEdge(building, edge.successor.data, 1.0);
+        for (String destination : new String[] { "Union South", "Bascom Hall", "UW Credit Union" }) {
+            ShortestPath route = backend.getShortestPath("Memorial Union", destination, "fewest segments");
+            Assertions.assertEquals(segments.shortestPathCost("Memorial Union", destination), (double) (route.path().size() - 1));
+            Assertions.assertEquals(route.times().size(), route.path().size() - 1);
+            Assertions.assertEquals(campus.shortestPathData("Memorial Union", destination),
+                    backend.getShortestPath("Memorial Union", destination).path());
+        }
+        Assertions.assertThrows(NoSuchElementException.class,
+                () -> backend.getShortestPath("Memorial Union", "Union South", "most accessible"));
+        // a walking time update is picked up by the metrics that depend on walking times
+        backend.setRouteMetric("fastest", (from, to, walkingTime) -> walkingTime);
+        List<String> fastest = backend.getShortestPath("Memorial Union", "Union South", "fastest").path();
+        backend.updateWalkingTimes(new DynamicShortestPaths.Batch<String, Double>()
+                .setWeight(fastest.get(0), fastest.get(1), 5000.0));
+        Assertions.assertEquals(backend.getShortestPath("Memorial Union", "Union South").path(),
+                backend.getShortestPath("Memorial Union", "Union South", "fastest").path());
+        Assertions.assertNotEquals(fastest, backend.getShortestPath("Memorial Union", "Union South", "fastest").path());
+        // metric routes are counted as queries and cached apart from the walking time routes,
+        // and replacing a metric's weights drops its cached routes
+        backend.setMetricsEnabled(true);
+        backend.setRouteCache(16, RouteCache.EvictionPolicy.LEAST_FREQUENTLY_USED);
+        ShortestPath cached = backend.getShortestPath("Memorial Union", "Union South", "fastest");
+        Assertions.assertSame(cached, backend.getShortestPath("Memorial Union", "Union South", "fastest"));
+        backend.getShortestPath("Memorial Union", "Union South");
+        Assertions.assertEquals(1, backend.getRouteCacheHits());
+        Assertions.assertEquals(3, backend.getMetrics().queryCount());
+        backend.setRouteMetric("fastest", (from, to, walkingTime) -> 1.0);
+        Assertions.assertEquals(backend.getShortestPath("Memorial Union", "Union South", "fewest segments").path().size(),
+                backend.getShortestPath("Memorial Union", "Union South", "fastest").path().size());
+        Assertions.assertEquals(1, backend.getRouteCacheHits());
+        Assertions.assertEquals(5, backend.getMetrics().queryCount());
+        backend.setMetricsEnabled(false);
+        backend.setRouteCache(0, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        backend.setRouteMetric("fastest", null);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> backend.setRouteMetric("broken", (from, to, walkingTime) -> Double.NaN));
+        Assertions.assertEquals(List.of("fewest segments"), backend.getRouteMetrics());
+        backend.setRouteMetric("fewest segments", null);
+        Assertions.assertThrows(NoSuchElementException.class,
+                () -> backend.getShortestPath("Memorial Union", "Union South", "fewest segments"));
+    }
+
+    // checks that the hierarchy finds a path exactly when Dijkstra does, with the same cost
+    private static void assertSameCost(DijkstraGraph<Integer, Double> graph,
+            CustomizableContractionHierarchy<Integer> hierarchy, String metric, int start, int end) {
+        if (!hasPath(graph, start, end)) {
+            Assertions.assertThrows(NoSuchElementException.class, () -> hierarchy.shortestPathData(metric, start, end));
+            return;
+        }
+        Assertions.assertEquals(graph.shortestPathCost(start, end), hierarchy.shortestPathCost(metric, start, end));
+        // the unpacked path is made of edges of the graph whose weights add up to the cost
+        List<Integer> path = hierarchy.shortestPathData(metric, start, end);
+        double cost = 0.0;
+        for (int i = 1; i < path.size(); i++)
+            cost += graph.getEdge(path.get(i - 1), path.get(i));
+        Assertions.assertEquals(graph.shortestPathCost(start, end), cost);
+    }
+
+    /**
+     * Checks that a file with one-way paths keeps them one-way: the route cache
+     * doesn't serve a reversed route, removing a building drops the one-way
+     * paths into it from the total, each path is counted once in the statistics,
+     * walking time updates only change the named direction, and a snapshot
+     * remembers that the graph is directed.
+     */
+    @Test
+    public void testOneWayPaths() throws Exception {
+        Path file = Files.createTempFile("oneway", ".dot");
+        Path snapshotFile = Files.createTempFile("oneway", ".graph");
+        try {
+            Files.writeString(file, "graph oneway {\n  \"A\" -- \"B\" [seconds=1];\n  \"B\" -> \"C\" [seconds=1];\n"
+                    + "  \"C\" -- \"D\" [seconds=1];\n  \"A\" -- \"D\" [seconds=10];\n  \"E\" -> \"A\" [seconds=4];\n}\n");
+            for (boolean parallel : new boolean[] { false, true }) {
+                Backend backend = new Backend();
+                backend.setParallelLoading(parallel);
+                backend.readFile(file.toString());
+                backend.setRouteCache(10, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED);
+                Assertions.assertEquals(List.of("C", "D", "A"), backend.getShortestPath("C", "A").path());
+                Assertions.assertEquals(List.of("A", "B", "C"), backend.getShortestPath("A", "C").path());
+                Assertions.assertTrue(backend.getStatistics().contains("Total Walking Time: 17.0"));
+                Assertions.assertTrue(backend.getStatistics().contains("Number of Paths Connecting Buildings: 5"));
+
+                backend.saveSnapshot(snapshotFile.toString());
+                Backend loaded = new Backend();
+                loaded.loadSnapshot(snapshotFile.toString());
+                loaded.setRouteCache(10, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED);
+                Assertions.assertEquals(List.of("C", "D", "A"), loaded.getShortestPath("C", "A").path());
+                Assertions.assertEquals(List.of("A", "B", "C"), loaded.getShortestPath("A", "C").path());
+
+                // only the named direction changes, and the whole change counts in the total
+                backend.updateWalkingTimes(new DynamicShortestPaths.Batch<String, Double>().setWeight("A", "B", 5.0));
+                Assertions.assertEquals(1.0, backend.getShortestPath("B", "A").totalPathCost());
+                Assertions.assertEquals(6.0, backend.getShortestPath("A", "C").totalPathCost());
+                Assertions.assertTrue(backend.getStatistics().contains("Total Walking Time: 21.0"));
+                Assertions.assertThrows(NoSuchElementException.class, () -> backend.getShortestPath("A", "E"));
+
+                // C loses B -> C and its path to D, which counts once
+                backend.removeNode("C");
+                Assertions.assertTrue(backend.getStatistics().contains("Total Walking Time: 19.0"));
+                Assertions.assertTrue(backend.getStatistics().contains("Number of Paths Connecting Buildings: 3"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    private static final String[] LECTURE_NODES = { "A", "B", "D", "E", "F", "G", "H", "I", "L", "M" };
+
+    // builds the directed graph from the lecture example used by the DijkstraGraph tests
+    private static DijkstraGraph<String, Integer> lectureExampleGraph() {
+        DijkstraGraph<String, Integer> graph = new DijkstraGraph<>(new PlaceholderMap<>());
+        for (String name : LECTURE_NODES)
+            graph.insertNode(name);
+        graph.insertEdge("A", "B", 1);
+        graph.insertEdge("A", "H", 8);
+        graph.insertEdge("A", "M", 5);
+        graph.insertEdge("B", "M", 3);
+        graph.insertEdge("D", "A", 7);
+        graph.insertEdge("D", "G", 2);
+        graph.insertEdge("F", "G", 9);
+        graph.insertEdge("G", "L", 7);
+        graph.insertEdge("H", "B", 6);
+        graph.insertEdge("H", "I", 2);
+        graph.insertEdge("I", "D", 1);
+        graph.insertEdge("I", "L", 5);
+        graph.insertEdge("I", "H", 2);
+        graph.insertEdge("M", "E", 3);
+        graph.insertEdge("M", "F", 4);
+        return graph;
+    }
+
+    // checks for a path with the original graph, which reports a missing path by throwing
+    private static <NodeType> boolean hasPath(DijkstraGraph<NodeType, ?> graph, NodeType start, NodeType end) {
+        try {
+            graph.shortestPathCost(start, end);
+            return true;
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
+
 }
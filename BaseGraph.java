@@ -1,6 +1,9 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 /**
  * This BaseGraph class contains stores a set of nodes, along with a set of
@@ -8,25 +11,34 @@ import java.util.NoSuchElementException;
  */
 public class BaseGraph<NodeType, EdgeType extends Number> {
 
-    // Each node contains unique data along with two lists of directed edges
+    // Each node contains unique data along with two lists of directed edges,
+    // and an int id that is unique among all nodes ever inserted into this graph.
+    // The leaving edges are also indexed by the data of their successors, so an
+    // edge can be found without searching the list
     protected class Node {
         public NodeType data;
-        public List<Edge> edgesLeaving = new LinkedList<>();
-        public List<Edge> edgesEntering = new LinkedList<>();
+        public int id;
+        public List<Edge> edgesLeaving = new EdgeList(true);
+        public List<Edge> edgesEntering = new EdgeList(false);
+        public HashMap<NodeType, Edge> edgesBySuccessor = new HashMap<>();
 
         public Node(NodeType data) {
             this.data = data;
+            this.id = nextNodeId++;
         }
     }
 
     // Nodes can be retrieved from this map by their unique data
     protected MapADT<NodeType, Node> nodes = null;
 
-    // Each edge contains data/weight, and two nodes that it connects
+    // Each edge contains data/weight, and two nodes that it connects, along
+    // with its positions in the predecessor's and the successor's edge lists
     protected class Edge {
         public EdgeType data; // the weight or cost of this edge
         public Node predecessor;
         public Node successor;
+        protected int leavingIndex = -1;
+        protected int enteringIndex = -1;
 
         public Edge(EdgeType data, Node pred, Node succ) {
             this.data = data;
@@ -35,7 +47,98 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         }
     }
 
+    /**
+     * An EdgeList keeps the edges leaving or entering a node in an array, so
+     * iterating over them is fast. Each edge remembers its position in the
+     * list, so an edge is removed in O(1) time by moving the last edge of the
+     * list into its place. Removing an edge therefore changes the order of
+     * the remaining edges, while adding one appends it.
+     */
+    protected class EdgeList extends AbstractList<Edge> implements RandomAccess {
+        // true for a list of leaving edges, which stores positions in leavingIndex
+        private final boolean leaving;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Edge[] edges = (Edge[]) new BaseGraph.Edge[4];
+        private int size = 0;
+
+        public EdgeList(boolean leaving) {
+            this.leaving = leaving;
+        }
+
+        @Override
+        public Edge get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+            return edges[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean add(Edge edge) {
+            if (size == edges.length)
+                edges = Arrays.copyOf(edges, size * 2);
+            setIndex(edge, size);
+            edges[size++] = edge;
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof BaseGraph<?, ?>.Edge))
+                return -1;
+            @SuppressWarnings("unchecked")
+            int index = getIndex((Edge) o);
+            return index >= 0 && index < size && edges[index] == o ? index : -1;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int index = indexOf(o);
+            if (index < 0)
+                return false;
+            remove(index);
+            return true;
+        }
+
+        @Override
+        public Edge remove(int index) {
+            Edge removed = get(index);
+            // move the last edge into the removed edge's place
+            Edge last = edges[--size];
+            edges[index] = last;
+            setIndex(last, index);
+            edges[size] = null;
+            setIndex(removed, -1);
+            modCount++;
+            return removed;
+        }
+
+        private int getIndex(Edge edge) {
+            return leaving ? edge.leavingIndex : edge.enteringIndex;
+        }
+
+        private void setIndex(Edge edge, int index) {
+            if (leaving)
+                edge.leavingIndex = index;
+            else
+                edge.enteringIndex = index;
+        }
+    }
+
     protected int edgeCount = 0;
+    // Node ids are handed out in insertion order and are never reused, so every
+    // node id is less than nextNodeId and can index arrays of that length
+    protected int nextNodeId = 0;
     // Edges can be retrieved through the edge lists in either connected node
 
     /**
@@ -78,11 +181,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
             return false; // throws NPE when data==null
         Node oldNode = nodes.remove(data);
         // remove all edges entering neighboring nodes from this one
-        for (Edge edge : oldNode.edgesLeaving)
+        for (Edge edge : oldNode.edgesLeaving) {
             edge.successor.edgesEntering.remove(edge);
+            this.edgeCount--;
+        }
         // remove all edges leaving neighboring nodes toward this one
-        for (Edge edge : oldNode.edgesEntering)
+        for (Edge edge : oldNode.edgesEntering) {
             edge.predecessor.edgesLeaving.remove(edge);
+            edge.predecessor.edgesBySuccessor.remove(data);
+            this.edgeCount--;
+        }
         return true;
     }
 
@@ -123,17 +231,15 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         Node succNode = nodes.get(succ);
         if (predNode == null || succNode == null)
             return false;
-        try {
+        Edge existingEdge = findEdge(predNode, succ);
+        if (existingEdge != null) {
             // when an edge alread exists within the graph, update its weight
-            Edge existingEdge = getEdgeHelper(pred, succ);
             existingEdge.data = weight;
-        } catch (NoSuchElementException e) {
+        } else {
             // otherwise create a new edges
             Edge newEdge = new Edge(weight, predNode, succNode);
-            this.edgeCount++;
-            // and insert it into each of its adjacent nodes' respective lists
-            predNode.edgesLeaving.add(newEdge);
-            succNode.edgesEntering.add(newEdge);
+            // and insert it into each of its adjacent nodes' respective lists, counting it
+            addEdgeHelper(newEdge);
         }
         return true;
     }
@@ -147,19 +253,15 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      *         false if such an edge is not found in the graph
      */
     public boolean removeEdge(NodeType pred, NodeType succ) {
-        try {
-            // when an edge exists
-            Edge oldEdge = getEdgeHelper(pred, succ);
-            // remove it from the edge lists of each adjacent node
-            oldEdge.predecessor.edgesLeaving.remove(oldEdge);
-            oldEdge.successor.edgesEntering.remove(oldEdge);
-            // and decrement the edge count before removing
-            this.edgeCount--;
-            return true;
-        } catch (NoSuchElementException e) {
-            // when no such edge exists, return false instead
+        // when no such edge exists, return false
+        if (!containsNode(pred))
             return false;
-        }
+        Edge oldEdge = findEdge(nodes.get(pred), succ);
+        if (oldEdge == null)
+            return false;
+        // remove it from the edge lists of each adjacent node
+        removeEdgeHelper(oldEdge);
+        return true;
     }
 
     /**
@@ -170,12 +272,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      * @return true if the edge is found in the graph, or false other
      */
     public boolean containsEdge(NodeType pred, NodeType succ) {
-        try {
-            getEdgeHelper(pred, succ);
-            return true;
-        } catch (NoSuchElementException e) {
-            return false;
-        }
+        return containsNode(pred) && findEdge(nodes.get(pred), succ) != null;
     }
 
     /**
@@ -192,15 +289,81 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     }
 
     protected Edge getEdgeHelper(NodeType pred, NodeType succ) {
-        Node predNode = nodes.get(pred);
-        // search for edge through the predecessor's list of leaving edges
-        for (Edge edge : predNode.edgesLeaving)
-            // compare succ to the data in each leaving edge's successor
-            if (edge.successor.data.equals(succ))
-                return edge;
+        Edge edge = findEdge(nodes.get(pred), succ);
         // when no such edge can be found, throw NSE
-        throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
-                succ.toString());
+        if (edge == null)
+            throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
+                    succ.toString());
+        return edge;
+    }
+
+    // returns the edge from predNode to the node holding succ, or null when there is none
+    protected Edge findEdge(Node predNode, NodeType succ) {
+        return predNode.edgesBySuccessor.get(succ);
+    }
+
+    // adds a new edge to the edge lists and the index of its nodes, and counts it
+    protected void addEdgeHelper(Edge edge) {
+        edge.predecessor.edgesLeaving.add(edge);
+        edge.predecessor.edgesBySuccessor.put(edge.successor.data, edge);
+        edge.successor.edgesEntering.add(edge);
+        this.edgeCount++;
+    }
+
+    // removes an edge from the edge lists and the index of its nodes, and uncounts it
+    protected void removeEdgeHelper(Edge edge) {
+        edge.predecessor.edgesLeaving.remove(edge);
+        edge.predecessor.edgesBySuccessor.remove(edge.successor.data);
+        edge.successor.edgesEntering.remove(edge);
+        this.edgeCount--;
+    }
+
+    /**
+     * Inserts many edges at once. Every edge list keeps insertion order, and an
+     * edge that is inserted more than once (or that is already in the graph)
+     * keeps its first position, while its weight is picked by the policy:
+     * KEEP_LAST gives the same result as calling insertEdge for each edge in
+     * order, KEEP_MINIMUM keeps the smallest weight, and REJECT inserts nothing
+     * at all. Each repeated edge is found with a single lookup in the index of
+     * its predecessor, so this takes O(E) expected time.
+     *
+     * @param preds   the predecessor node of each edge
+     * @param succs   the successor node of each edge
+     * @param weights the weight of each edge
+     * @param count   the number of edges to insert from these arrays
+     * @param policy  how the weight of a repeated edge is picked
+     * @throws IllegalArgumentException if the policy is REJECT and an edge is
+     *                                  repeated or already in the graph
+     */
+    protected void insertEdges(Node[] preds, Node[] succs, EdgeType[] weights, int count,
+            GraphBuilder.DuplicatePolicy policy) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Edge[] created = (Edge[]) new BaseGraph.Edge[count];
+        int createdCount = 0;
+        for (int e = 0; e < count; e++) {
+            Edge edge = findEdge(preds[e], succs[e].data);
+            if (edge == null) {
+                edge = new Edge(weights[e], preds[e], succs[e]);
+                addEdgeHelper(edge);
+                created[createdCount++] = edge;
+            } else if (policy == GraphBuilder.DuplicatePolicy.REJECT) {
+                // take the new edges back out, newest first, so every edge list is restored
+                while (createdCount > 0)
+                    removeEdgeHelper(created[--createdCount]);
+                throw new IllegalArgumentException("duplicate edge from " + preds[e].data.toString()
+                        + " to " + succs[e].data.toString());
+            } else if (policy == GraphBuilder.DuplicatePolicy.KEEP_LAST
+                    || weights[e].doubleValue() < edge.data.doubleValue()) {
+                edge.data = weights[e];
+            }
+        }
+    }
+
+    // creates an array of nodes, which can't be done with new Node[] because
+    // Node is an inner class of a generic class
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Node[] newNodeArray(int length) {
+        return (Node[]) new BaseGraph.Node[length];
     }
 
     /**
@@ -0,0 +1,341 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is a frozen, read-optimized copy of a directed graph with
+ * non-negative edge weights. Every node is interned to a dense int id, and the
+ * edges are stored in compressed sparse row (CSR) form: the edges leaving the
+ * node with id i are stored at positions offsets[i] through offsets[i+1]-1 of
+ * the targets and weights arrays. Weights are kept as primitive doubles, so a
+ * search over this graph never unboxes a weight or follows a pointer to reach
+ * the next edge.
+ *
+ * A CompactGraph cannot be modified once it is built: all of the GraphADT
+ * mutators throw an UnsupportedOperationException.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class CompactGraph<NodeType> implements GraphADT<NodeType, Double> {
+
+    // the node data for each id, and the map from node data back to its id
+    protected NodeType[] nodeData;
+    protected MapADT<NodeType, Integer> ids;
+
+    // the CSR adjacency arrays, which are never modified after construction
+    protected int[] offsets;
+    protected int[] targets;
+    protected double[] weights;
+
+    /**
+     * Constructor used by the Builder to wrap already interned CSR arrays.
+     */
+    protected CompactGraph(NodeType[] nodeData, MapADT<NodeType, Integer> ids,
+            int[] offsets, int[] targets, double[] weights) {
+        this.nodeData = nodeData;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds a CompactGraph containing the same nodes and edges as the
+     * provided graph. The edges leaving each node keep the order they have in
+     * that node's edgesLeaving list.
+     *
+     * @param graph the graph to copy
+     * @return a new CompactGraph with the same nodes and edges as graph
+     */
+    public static <NodeType, EdgeType extends Number> CompactGraph<NodeType> fromGraph(
+            BaseGraph<NodeType, EdgeType> graph) {
+        Builder<NodeType> builder = new Builder<>();
+        List<NodeType> keys = graph.nodes.getKeys();
+        // add every node first, so that isolated nodes are kept as well
+        for (NodeType data : keys)
+            builder.addNode(data);
+        for (NodeType data : keys)
+            for (BaseGraph<NodeType, EdgeType>.Edge edge : graph.nodes.get(data).edgesLeaving)
+                builder.addEdge(data, edge.successor.data, edge.data.doubleValue());
+        return builder.build();
+    }
+
+    /**
+     * A Builder collects nodes and weighted edges, and then interns them into a
+     * CompactGraph in a single pass. Nodes that are named by an edge are added
+     * automatically, and when the same edge is added more than once, the last
+     * weight added is kept (just like insertEdge updates an existing edge).
+     *
+     * @param NodeType is the data type stored at each graph node
+     */
+    public static class Builder<NodeType> {
+        private MapADT<NodeType, Integer> ids = new HashtableMap<>();
+        private List<NodeType> nodeData = new ArrayList<>();
+        private int[] edgeSources = new int[16];
+        private int[] edgeTargets = new int[16];
+        private double[] edgeWeights = new double[16];
+        private int edgeCount = 0;
+
+        /**
+         * Adds a node to the graph being built.
+         *
+         * @param data is the data item stored in the new node
+         * @return the id of the node containing data
+         * @throws NullPointerException if data is null
+         */
+        public int addNode(NodeType data) {
+            if (ids.containsKey(data))
+                return ids.get(data); // throws NPE when data's null
+            int id = nodeData.size();
+            ids.put(data, id);
+            nodeData.add(data);
+            return id;
+        }
+
+        /**
+         * Adds a directed edge to the graph being built, adding its nodes as
+         * well when they have not been added yet.
+         *
+         * @param pred   is the data item contained in the edge's predecessor node
+         * @param succ   is the data item contained in the edge's successor node
+         * @param weight is the non-negative weight of the edge
+         * @throws IllegalArgumentException if weight is negative or NaN
+         */
+        public void addEdge(NodeType pred, NodeType succ, double weight) {
+            if (!(weight >= 0.0))
+                throw new IllegalArgumentException("edge weights must be non-negative");
+            int source = addNode(pred);
+            int target = addNode(succ);
+            if (edgeCount == edgeSources.length) {
+                edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+                edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+                edgeWeights = Arrays.copyOf(edgeWeights, edgeCount * 2);
+            }
+            edgeSources[edgeCount] = source;
+            edgeTargets[edgeCount] = target;
+            edgeWeights[edgeCount] = weight;
+            edgeCount++;
+        }
+
+        /**
+         * Interns the collected nodes and edges into a new CompactGraph.
+         *
+         * @return a new CompactGraph containing every added node and edge
+         */
+        @SuppressWarnings("unchecked")
+        public CompactGraph<NodeType> build() {
+            int n = nodeData.size();
+            // count the edges leaving each node, then prefix sum the counts
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < edgeCount; e++)
+                offsets[edgeSources[e] + 1]++;
+            for (int i = 0; i < n; i++)
+                offsets[i + 1] += offsets[i];
+            // place each edge into its source's range, keeping the order they were added
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edgeCount];
+            double[] weights = new double[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int position = next[edgeSources[e]]++;
+                targets[position] = edgeTargets[e];
+                weights[position] = edgeWeights[e];
+            }
+            // drop duplicate edges, keeping the weight that was added last
+            int[] lastSeen = new int[n];
+            Arrays.fill(lastSeen, -1);
+            int[] compactOffsets = new int[n + 1];
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                int start = kept;
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    int target = targets[e];
+                    if (lastSeen[target] >= start) {
+                        weights[lastSeen[target]] = weights[e];
+                        continue;
+                    }
+                    lastSeen[target] = kept;
+                    targets[kept] = target;
+                    weights[kept] = weights[e];
+                    kept++;
+                }
+                compactOffsets[i + 1] = kept;
+            }
+            return new CompactGraph<>((NodeType[]) nodeData.toArray(),
+                    ids, compactOffsets, Arrays.copyOf(targets, kept), Arrays.copyOf(weights, kept));
+        }
+    }
+
+    /**
+     * Returns the dense id of the node containing the provided data.
+     *
+     * @param data the node contents to look up
+     * @return the id of that node, or -1 if no node contains data
+     */
+    public int getId(NodeType data) {
+        if (!ids.containsKey(data))
+            return -1;
+        return ids.get(data);
+    }
+
+    /**
+     * Returns the data stored in the node with the provided id.
+     *
+     * @param id the id of the node
+     * @return the data stored in that node
+     * @throws IndexOutOfBoundsException if id is not a node id in this graph
+     */
+    public NodeType getData(int id) {
+        return nodeData[id];
+    }
+
+    @Override
+    public boolean insertNode(NodeType data) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public boolean removeNode(NodeType data) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public boolean containsNode(NodeType data) {
+        return ids.containsKey(data);
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeData.length;
+    }
+
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, Double weight) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ) {
+        return findEdge(getId(pred), getId(succ)) >= 0;
+    }
+
+    @Override
+    public Double getEdge(NodeType pred, NodeType succ) {
+        int edge = findEdge(getId(pred), getId(succ));
+        if (edge < 0)
+            throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+        return weights[edge];
+    }
+
+    /**
+     * Returns the position of the edge between two node ids within the
+     * targets and weights arrays.
+     *
+     * @param source the id of the edge's predecessor node
+     * @param target the id of the edge's successor node
+     * @return the position of that edge, or -1 when there is no such edge
+     */
+    protected int findEdge(int source, int target) {
+        if (source < 0 || target < 0)
+            return -1;
+        for (int e = offsets[source]; e < offsets[source + 1]; e++)
+            if (targets[e] == target)
+                return e;
+        return -1;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm over the CSR arrays from the source node
+     * until the target node is settled, recording the predecessor of every
+     * settled node in pred.
+     *
+     * @param source the id of the starting node
+     * @param target the id of the destination node
+     * @param pred   an array with one entry per node that receives the id of
+     *               each settled node's predecessor (-1 for the source)
+     * @return the cost of the shortest path from source to target
+     * @throws NoSuchElementException when no path from source to target exists
+     */
+    protected double computeShortestPath(int source, int target, int[] pred) {
+        double[] dist = new double[nodeData.length];
+        boolean[] settled = new boolean[nodeData.length];
+        IndexedMinHeap queue = new IndexedMinHeap(nodeData.length);
+        dist[source] = 0.0;
+        pred[source] = -1;
+        queue.insert(source, 0.0);
+        while (!queue.isEmpty()) {
+            int node = queue.removeMin();
+            settled[node] = true;
+            if (node == target)
+                return dist[node];
+            // relax every edge leaving this node toward an unsettled node
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int next = targets[e];
+                if (settled[next])
+                    continue;
+                double cost = dist[node] + weights[e];
+                if (queue.insertOrDecrease(next, cost)) {
+                    dist[next] = cost;
+                    pred[next] = node;
+                }
+            }
+        }
+        throw new NoSuchElementException("no path found between these nodes");
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path
+     * from the node with the provided start value through the node with the
+     * provided end value, using Dijkstra's algorithm over the CSR arrays.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    @Override
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        int source = getId(start);
+        int target = getId(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        int[] pred = new int[nodeData.length];
+        computeShortestPath(source, target, pred);
+        // follow the predecessor ids back from the target to the source
+        LinkedList<NodeType> pathData = new LinkedList<>();
+        for (int node = target; node != -1; node = pred[node])
+            pathData.addFirst(nodeData[node]);
+        return pathData;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the node containing the
+     * start data to the node containing the end data, using Dijkstra's
+     * algorithm over the CSR arrays.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end) {
+        int source = getId(start);
+        int target = getId(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        return computeShortestPath(source, target, new int[nodeData.length]);
+    }
+
+}
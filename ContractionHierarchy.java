@@ -0,0 +1,660 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class preprocesses a CompactGraph into a contraction hierarchy, and
+ * then answers shortest path queries with it. Preprocessing contracts the
+ * nodes one at a time, from the least to the most important: whenever the
+ * only shortest path between two remaining neighbors of a node runs through
+ * that node, a shortcut edge with the cost of that path is added between them.
+ * The order in which nodes are contracted becomes their rank.
+ *
+ * Every shortest path then has a version that first only climbs to nodes of
+ * higher rank, and then only descends. A query runs a forward search from the
+ * start over upward edges and a backward search from the end over downward
+ * edges, which both settle only a small part of the graph, and then unpacks
+ * the shortcuts along the path they meet on back into the original edges.
+ *
+ * A hierarchy describes the graph it was built from, which can't change since
+ * CompactGraphs are read-only. Queries may run concurrently from any number of
+ * threads.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ContractionHierarchy<NodeType> {
+
+    // the number of nodes that a witness search may settle before it gives up, when
+    // contracting a node and when only estimating the shortcuts for its priority
+    protected static final int WITNESS_SETTLE_LIMIT = 500;
+    protected static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    // the graph this hierarchy was built from
+    protected CompactGraph<NodeType> graph;
+
+    // the order in which each node was contracted
+    protected int[] rank;
+
+    // the edges of the hierarchy: the original edges of the graph followed by the
+    // shortcuts, where a shortcut replaces its two child edges (which are -1 for originals)
+    protected int[] edgeFrom;
+    protected int[] edgeTo;
+    protected double[] edgeWeight;
+    protected int[] edgeFirst;
+    protected int[] edgeSecond;
+    protected int edgeCount = 0;
+    protected int shortcutCount = 0;
+
+    // the ids of the edges leading to a higher ranked node, grouped by the node they leave
+    protected int[] upOffsets;
+    protected int[] upEdges;
+    // the ids of the edges coming from a higher ranked node, grouped by the node they enter
+    protected int[] downOffsets;
+    protected int[] downEdges;
+
+    // a growable list of edge ids, used for the adjacency lists during preprocessing
+    private static class EdgeList {
+        int[] edges = new int[4];
+        int size = 0;
+
+        void add(int edge) {
+            if (size == edges.length)
+                edges = Arrays.copyOf(edges, size * 2);
+            edges[size++] = edge;
+        }
+
+        // removes the edges whose endpoint at the far side has been contracted
+        void removeContracted(int[] far, boolean[] contracted) {
+            int kept = 0;
+            for (int i = 0; i < size; i++)
+                if (!contracted[far[edges[i]]])
+                    edges[kept++] = edges[i];
+            size = kept;
+        }
+    }
+
+    /**
+     * Constructor that preprocesses the provided graph into a contraction
+     * hierarchy.
+     *
+     * @param graph the graph to answer shortest path queries on
+     */
+    public ContractionHierarchy(CompactGraph<NodeType> graph) {
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        int capacity = Math.max(16, graph.getEdgeCount() * 2);
+        edgeFrom = new int[capacity];
+        edgeTo = new int[capacity];
+        edgeWeight = new double[capacity];
+        edgeFirst = new int[capacity];
+        edgeSecond = new int[capacity];
+
+        // start from the original edges, listed at both of the nodes they connect
+        EdgeList[] out = new EdgeList[n];
+        EdgeList[] in = new EdgeList[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = new EdgeList();
+            in[i] = new EdgeList();
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int edge = addEdge(u, graph.targets[e], graph.weights[e], -1, -1);
+                out[u].add(edge);
+                in[graph.targets[e]].add(edge);
+            }
+        }
+        contractAll(out, in);
+        buildSearchGraphs();
+    }
+
+    // appends an edge to the hierarchy's edge arrays and returns its id
+    private int addEdge(int from, int to, double weight, int first, int second) {
+        if (edgeCount == edgeFrom.length) {
+            int capacity = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+            edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeWeight[edgeCount] = weight;
+        edgeFirst[edgeCount] = first;
+        edgeSecond[edgeCount] = second;
+        return edgeCount++;
+    }
+
+    // the state of the preprocessing: which nodes are contracted, and the witness search arrays
+    private boolean[] contracted;
+    private int[] deletedNeighbors;
+    private int[] level;
+    private int[] updatedAfter; // the node whose contraction last updated each node's priority
+    private double[] witnessCost;
+    private int[] witnessStamp;
+    private int[] witnessTarget;
+    private int witnessGeneration = 0;
+    private IndexedMinHeap witnessQueue;
+
+    /**
+     * Contracts every node, always picking the node with the smallest
+     * priority next. A node's priority is twice the number of shortcuts its
+     * contraction would add minus the number of edges it would remove, plus
+     * the number of its neighbors that were already contracted and the depth
+     * of the hierarchy below it (both of which spread the contractions evenly
+     * over the graph). The priorities of a node's neighbors are recomputed
+     * after it is contracted, and a node whose priority has grown by the time
+     * it reaches the front of the queue is put back.
+     */
+    private void contractAll(EdgeList[] out, EdgeList[] in) {
+        int n = graph.getNodeCount();
+        rank = new int[n];
+        contracted = new boolean[n];
+        deletedNeighbors = new int[n];
+        level = new int[n];
+        updatedAfter = new int[n];
+        Arrays.fill(updatedAfter, -1);
+        witnessCost = new double[n];
+        witnessStamp = new int[n];
+        witnessTarget = new int[n];
+        witnessQueue = new IndexedMinHeap(n);
+        IndexedMinHeap order = new IndexedMinHeap(n);
+        for (int v = 0; v < n; v++)
+            order.insert(v, priority(v, out, in));
+
+        int nextRank = 0;
+        while (!order.isEmpty()) {
+            int v = order.removeMin();
+            double priority = priority(v, out, in);
+            if (!order.isEmpty() && priority > order.peekKey()) {
+                order.insert(v, priority);
+                continue;
+            }
+            contract(v, out, in, false);
+            contracted[v] = true;
+            rank[v] = nextRank++;
+            // the remaining neighbors of v lose an edge and may gain shortcuts, so update them
+            for (int i = 0; i < out[v].size + in[v].size; i++) {
+                int neighbor = i < out[v].size ? edgeTo[out[v].edges[i]] : edgeFrom[in[v].edges[i - out[v].size]];
+                if (contracted[neighbor] || !order.contains(neighbor) || updatedAfter[neighbor] == v)
+                    continue;
+                updatedAfter[neighbor] = v;
+                // drop the edges to v from the neighbor's lists, so that later searches skip them
+                out[neighbor].removeContracted(edgeTo, contracted);
+                in[neighbor].removeContracted(edgeFrom, contracted);
+                deletedNeighbors[neighbor]++;
+                level[neighbor] = Math.max(level[neighbor], level[v] + 1);
+                // a higher priority is noticed lazily, when the neighbor reaches the front of the queue
+                double updated = priority(neighbor, out, in);
+                if (updated < order.getKey(neighbor))
+                    order.decreaseKey(neighbor, updated);
+            }
+        }
+        // the preprocessing state is no longer needed once every node has a rank
+        contracted = null;
+        deletedNeighbors = null;
+        level = null;
+        updatedAfter = null;
+        witnessCost = null;
+        witnessStamp = null;
+        witnessTarget = null;
+        witnessQueue = null;
+    }
+
+    // computes the contraction priority of node v
+    private double priority(int v, EdgeList[] out, EdgeList[] in) {
+        int removed = 0;
+        for (int i = 0; i < out[v].size; i++)
+            if (!contracted[edgeTo[out[v].edges[i]]])
+                removed++;
+        for (int i = 0; i < in[v].size; i++)
+            if (!contracted[edgeFrom[in[v].edges[i]]])
+                removed++;
+        int shortcuts = contract(v, out, in, true);
+        return 2 * shortcuts - removed + deletedNeighbors[v] + level[v];
+    }
+
+    /**
+     * Finds the shortcuts that contracting v requires: for every remaining
+     * in-neighbor u and out-neighbor w of v, a shortcut from u to w is needed
+     * unless a witness search from u that avoids v finds a path to w that is
+     * no more expensive than the path through v.
+     *
+     * @param v        the node to contract
+     * @param simulate true to only count the shortcuts, or false to add them
+     * @return the number of shortcuts that contracting v requires
+     */
+    private int contract(int v, EdgeList[] out, EdgeList[] in, boolean simulate) {
+        int[] ins = cheapestEdges(in[v], v, true);
+        int[] outs = cheapestEdges(out[v], v, false);
+        int shortcuts = 0;
+        for (int inEdge : ins) {
+            int u = edgeFrom[inEdge];
+            // only search as far as the most expensive path through v
+            double limit = -1.0;
+            for (int outEdge : outs)
+                if (edgeTo[outEdge] != u)
+                    limit = Math.max(limit, edgeWeight[inEdge] + edgeWeight[outEdge]);
+            if (limit < 0.0)
+                continue;
+            witnessSearch(u, v, outs, limit, simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT, out);
+            for (int outEdge : outs) {
+                int w = edgeTo[outEdge];
+                if (w == u)
+                    continue;
+                double cost = edgeWeight[inEdge] + edgeWeight[outEdge];
+                if (witnessStamp[w] == witnessGeneration && witnessCost[w] <= cost)
+                    continue;
+                shortcuts++;
+                if (!simulate) {
+                    int shortcut = addEdge(u, w, cost, inEdge, outEdge);
+                    out[u].add(shortcut);
+                    in[w].add(shortcut);
+                    shortcutCount++;
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    // returns the cheapest edge between v and each of its uncontracted neighbors
+    private int[] cheapestEdges(EdgeList list, int v, boolean incoming) {
+        int[] cheapest = new int[list.size];
+        int count = 0;
+        for (int i = 0; i < list.size; i++) {
+            int edge = list.edges[i];
+            int neighbor = incoming ? edgeFrom[edge] : edgeTo[edge];
+            if (contracted[neighbor] || neighbor == v)
+                continue;
+            // replace a more expensive edge to the same neighbor, or add this one
+            int j = 0;
+            while (j < count && (incoming ? edgeFrom[cheapest[j]] : edgeTo[cheapest[j]]) != neighbor)
+                j++;
+            if (j == count)
+                cheapest[count++] = edge;
+            else if (edgeWeight[edge] < edgeWeight[cheapest[j]])
+                cheapest[j] = edge;
+        }
+        return Arrays.copyOf(cheapest, count);
+    }
+
+    // runs a Dijkstra search from source over uncontracted nodes other than skip, until it
+    // has settled the far end of every edge in targets or the next node costs more than limit
+    private void witnessSearch(int source, int skip, int[] targets, double limit, int settleLimit,
+            EdgeList[] out) {
+        if (++witnessGeneration == 0) {
+            Arrays.fill(witnessStamp, 0);
+            Arrays.fill(witnessTarget, 0);
+            witnessGeneration = 1;
+        }
+        int remaining = 0;
+        for (int edge : targets) {
+            int target = edgeTo[edge];
+            if (target != source && witnessTarget[target] != witnessGeneration) {
+                witnessTarget[target] = witnessGeneration;
+                remaining++;
+            }
+        }
+        witnessQueue.clear();
+        witnessCost[source] = 0.0;
+        witnessStamp[source] = witnessGeneration;
+        witnessQueue.insert(source, 0.0);
+        int settled = 0;
+        while (!witnessQueue.isEmpty() && settled++ < settleLimit) {
+            if (witnessQueue.peekKey() > limit)
+                break;
+            int node = witnessQueue.removeMin();
+            if (witnessTarget[node] == witnessGeneration && --remaining == 0)
+                break;
+            for (int i = 0; i < out[node].size; i++) {
+                int edge = out[node].edges[i];
+                int next = edgeTo[edge];
+                if (next == skip || contracted[next])
+                    continue;
+                double cost = witnessCost[node] + edgeWeight[edge];
+                if (witnessStamp[next] != witnessGeneration || cost < witnessCost[next]) {
+                    // nodes that were already settled are never improved, so this only updates queued nodes
+                    witnessStamp[next] = witnessGeneration;
+                    witnessCost[next] = cost;
+                    witnessQueue.insertOrDecrease(next, cost);
+                }
+            }
+        }
+    }
+
+    // groups the hierarchy's edges into the upward and downward search graphs
+    private void buildSearchGraphs() {
+        int n = graph.getNodeCount();
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]])
+                upOffsets[edgeFrom[e] + 1]++;
+            else
+                downOffsets[edgeTo[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            upOffsets[i + 1] += upOffsets[i];
+            downOffsets[i + 1] += downOffsets[i];
+        }
+        upEdges = new int[upOffsets[n]];
+        downEdges = new int[downOffsets[n]];
+        int[] upNext = Arrays.copyOf(upOffsets, n);
+        int[] downNext = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]])
+                upEdges[upNext[edgeFrom[e]]++] = e;
+            else
+                downEdges[downNext[edgeTo[e]]++] = e;
+        }
+    }
+
+    /**
+     * Returns the number of shortcut edges that preprocessing added.
+     *
+     * @return the number of shortcuts in this hierarchy
+     */
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * A QueryWorkspace holds the arrays that one query's forward and backward
+     * searches work in. Queries take a workspace from a shared pool and put it
+     * back when they are done, and entries are stamped with the query's
+     * generation instead of being cleared.
+     */
+    private class QueryWorkspace {
+        double[][] cost = new double[2][graph.getNodeCount()];
+        int[][] predEdge = new int[2][graph.getNodeCount()];
+        int[][] stamp = new int[2][graph.getNodeCount()];
+        IndexedMinHeap[] queue = { new IndexedMinHeap(graph.getNodeCount()),
+                new IndexedMinHeap(graph.getNodeCount()) };
+        int generation = 0;
+
+        void reset() {
+            queue[0].clear();
+            queue[1].clear();
+            if (++generation == 0) {
+                Arrays.fill(stamp[0], 0);
+                Arrays.fill(stamp[1], 0);
+                generation = 1;
+            }
+        }
+    }
+
+    // the workspaces that no query is using, shared by all threads so that short-lived
+    // threads such as virtual ones reuse them instead of each allocating their own
+    private final ConcurrentLinkedQueue<QueryWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    // takes a workspace from the pool, or allocates one when every workspace is in use
+    private QueryWorkspace acquireWorkspace() {
+        QueryWorkspace workspace = workspaces.poll();
+        return workspace != null ? workspace : new QueryWorkspace();
+    }
+
+    /**
+     * Finds the shortest path from source to target as the list of original
+     * edge ids along it.
+     *
+     * @param source the id of the starting node
+     * @param target the id of the destination node
+     * @return the ids of the original edges along the shortest path, in order
+     * @throws NoSuchElementException when no path from source to target exists
+     */
+    protected int[] queryEdges(int source, int target) {
+        if (source == target)
+            return new int[0];
+        QueryWorkspace workspace = acquireWorkspace();
+        try {
+            return queryEdges(workspace, source, target);
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    // finds the shortest path from source to target in a workspace, as queryEdges does
+    private int[] queryEdges(QueryWorkspace workspace, int source, int target) {
+        workspace.reset();
+        int generation = workspace.generation;
+        for (int side = 0; side < 2; side++) {
+            int origin = side == 0 ? source : target;
+            workspace.cost[side][origin] = 0.0;
+            workspace.predEdge[side][origin] = -1;
+            workspace.stamp[side][origin] = generation;
+            workspace.queue[side].insert(origin, 0.0);
+        }
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (true) {
+            // advance the search whose next node is closest, until neither can find a cheaper path
+            IndexedMinHeap forward = workspace.queue[0];
+            IndexedMinHeap backward = workspace.queue[1];
+            boolean forwardDone = forward.isEmpty() || forward.peekKey() >= bestCost;
+            boolean backwardDone = backward.isEmpty() || backward.peekKey() >= bestCost;
+            if (forwardDone && backwardDone)
+                break;
+            int side = backwardDone || (!forwardDone && forward.peekKey() <= backward.peekKey()) ? 0 : 1;
+            double[] cost = workspace.cost[side];
+            int[] stamp = workspace.stamp[side];
+            int node = workspace.queue[side].removeMin();
+
+            // a node reached by both searches joins a path from source to target
+            int other = 1 - side;
+            if (workspace.stamp[other][node] == generation) {
+                double pathCost = cost[node] + workspace.cost[other][node];
+                if (pathCost < bestCost) {
+                    bestCost = pathCost;
+                    meet = node;
+                }
+            }
+
+            // the forward search climbs upward edges, the backward search climbs downward edges in reverse
+            int[] offsets = side == 0 ? upOffsets : downOffsets;
+            int[] edges = side == 0 ? upEdges : downEdges;
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int edge = edges[i];
+                int next = side == 0 ? edgeTo[edge] : edgeFrom[edge];
+                double nextCost = cost[node] + edgeWeight[edge];
+                if (stamp[next] != generation || nextCost < cost[next]) {
+                    stamp[next] = generation;
+                    cost[next] = nextCost;
+                    workspace.predEdge[side][next] = edge;
+                    workspace.queue[side].insertOrDecrease(next, nextCost);
+                }
+            }
+        }
+        if (meet < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+
+        // collect the hierarchy edges from source up to meet, and from meet down to target
+        LinkedList<Integer> hierarchyEdges = new LinkedList<>();
+        for (int edge = workspace.predEdge[0][meet]; edge != -1; edge = workspace.predEdge[0][edgeFrom[edge]])
+            hierarchyEdges.addFirst(edge);
+        for (int edge = workspace.predEdge[1][meet]; edge != -1; edge = workspace.predEdge[1][edgeTo[edge]])
+            hierarchyEdges.addLast(edge);
+        return unpack(hierarchyEdges);
+    }
+
+    /**
+     * Runs a complete upward search (side 0) or backward downward search
+     * (side 1) from origin, leaving the costs in the workspace.
+     *
+     * @param workspace the workspace to search in, which is reset first
+     * @param side      0 for a forward search, or 1 for a backward search
+     * @param origin    the id of the node to search from
+     * @param settled   receives the ids of the settled nodes
+     * @return the number of settled nodes
+     */
+    private int searchUpward(QueryWorkspace workspace, int side, int origin, int[] settled) {
+        workspace.reset();
+        int generation = workspace.generation;
+        double[] cost = workspace.cost[side];
+        int[] stamp = workspace.stamp[side];
+        IndexedMinHeap queue = workspace.queue[side];
+        int[] offsets = side == 0 ? upOffsets : downOffsets;
+        int[] edges = side == 0 ? upEdges : downEdges;
+        cost[origin] = 0.0;
+        stamp[origin] = generation;
+        queue.insert(origin, 0.0);
+        int count = 0;
+        while (!queue.isEmpty()) {
+            int node = queue.removeMin();
+            settled[count++] = node;
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int edge = edges[i];
+                int next = side == 0 ? edgeTo[edge] : edgeFrom[edge];
+                double nextCost = cost[node] + edgeWeight[edge];
+                if (stamp[next] != generation || nextCost < cost[next]) {
+                    stamp[next] = generation;
+                    cost[next] = nextCost;
+                    queue.insertOrDecrease(next, nextCost);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the costs of the shortest paths between every pair of nodes from
+     * a list of starting nodes and a list of destination nodes, with the
+     * bucket-based many-to-many algorithm: a backward search from every
+     * destination leaves its cost to each node it settles in that node's
+     * bucket, and then a forward search from every start combines its own cost
+     * to each node it settles with the entries in that node's bucket. Since
+     * every search only climbs the hierarchy, each one settles only a small
+     * part of the graph.
+     *
+     * @param starts the data items in the starting nodes
+     * @param ends   the data items in the destination nodes
+     * @return a matrix whose entry [i][j] holds the cost of the shortest path
+     *         from starts.get(i) to ends.get(j), or Double.POSITIVE_INFINITY
+     *         when there is no such path
+     * @throws NoSuchElementException if any of starts or ends is not a node
+     */
+    public double[][] shortestPathCosts(List<NodeType> starts, List<NodeType> ends) {
+        int[] sources = new int[starts.size()];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = nodeId(starts.get(i));
+        int[] targets = new int[ends.size()];
+        for (int j = 0; j < targets.length; j++)
+            targets[j] = nodeId(ends.get(j));
+        QueryWorkspace workspace = acquireWorkspace();
+        try {
+            return shortestPathCosts(workspace, sources, targets);
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    // runs the bucket-based many-to-many searches between node ids in a workspace
+    private double[][] shortestPathCosts(QueryWorkspace workspace, int[] sources, int[] targets) {
+        int n = graph.getNodeCount();
+        int[] settled = new int[n];
+
+        // the bucket entries of each node form a linked list, starting at bucketHead
+        int[] bucketHead = new int[n];
+        Arrays.fill(bucketHead, -1);
+        int[] entryNext = new int[16];
+        int[] entryTarget = new int[16];
+        double[] entryCost = new double[16];
+        int entryCount = 0;
+        for (int j = 0; j < targets.length; j++) {
+            int count = searchUpward(workspace, 1, targets[j], settled);
+            for (int k = 0; k < count; k++) {
+                int node = settled[k];
+                if (entryCount == entryNext.length) {
+                    entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+                    entryTarget = Arrays.copyOf(entryTarget, entryCount * 2);
+                    entryCost = Arrays.copyOf(entryCost, entryCount * 2);
+                }
+                entryNext[entryCount] = bucketHead[node];
+                entryTarget[entryCount] = j;
+                entryCost[entryCount] = workspace.cost[1][node];
+                bucketHead[node] = entryCount++;
+            }
+        }
+
+        double[][] costs = new double[sources.length][targets.length];
+        for (int i = 0; i < sources.length; i++) {
+            double[] row = costs[i];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            int count = searchUpward(workspace, 0, sources[i], settled);
+            for (int k = 0; k < count; k++) {
+                int node = settled[k];
+                double cost = workspace.cost[0][node];
+                for (int entry = bucketHead[node]; entry != -1; entry = entryNext[entry])
+                    row[entryTarget[entry]] = Math.min(row[entryTarget[entry]], cost + entryCost[entry]);
+            }
+        }
+        return costs;
+    }
+
+    // replaces every shortcut in the list with the original edges it stands for
+    private int[] unpack(LinkedList<Integer> hierarchyEdges) {
+        int[] path = new int[16];
+        int length = 0;
+        while (!hierarchyEdges.isEmpty()) {
+            int edge = hierarchyEdges.removeFirst();
+            if (edgeFirst[edge] >= 0) {
+                hierarchyEdges.addFirst(edgeSecond[edge]);
+                hierarchyEdges.addFirst(edgeFirst[edge]);
+                continue;
+            }
+            if (length == path.length)
+                path = Arrays.copyOf(path, length * 2);
+            path[length++] = edge;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    // looks up the id of a node, reporting missing nodes the way DijkstraGraph does
+    private int nodeId(NodeType data) {
+        int id = graph.getId(data);
+        if (id < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        return id;
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path
+     * from the node with the provided start value through the node with the
+     * provided end value.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        int source = nodeId(start);
+        int target = nodeId(end);
+        List<NodeType> pathData = new LinkedList<>();
+        pathData.add(start);
+        for (int edge : queryEdges(source, target))
+            pathData.add(graph.getData(edgeTo[edge]));
+        return pathData;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the node containing the
+     * start data to the node containing the end data. The edge weights are
+     * added up in path order, so the cost is the same as the one that
+     * DijkstraGraph computes for the same path.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    public double shortestPathCost(NodeType start, NodeType end) {
+        double cost = 0.0;
+        for (int edge : queryEdges(nodeId(start), nodeId(end)))
+            cost += edgeWeight[edge];
+        return cost;
+    }
+
+}
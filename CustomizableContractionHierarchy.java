@@ -0,0 +1,672 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class answers shortest path queries over one graph under any number
+ * of metrics, which each give the graph's edges their own weights (such as
+ * walking time, a penalty for stairs, or one for every outdoor segment). It
+ * works in the three phases of a customizable contraction hierarchy:
+ *
+ * 1. Preprocessing only looks at which nodes are connected, never at the
+ *    weights. It ranks the nodes by eliminating them one at a time (always
+ *    the one with the fewest remaining neighbors next), and connects the
+ *    remaining neighbors of each eliminated node to each other. The result is
+ *    a set of undirected arcs, each joining a node to a higher ranked one,
+ *    where every two higher ranked neighbors of a node are joined by an arc
+ *    themselves, so every pair of a node's arcs forms a lower triangle with
+ *    a third arc.
+ * 2. Customization gives every arc the weight of the cheapest original edge
+ *    it stands for in each direction, and then visits the lower triangles in
+ *    rank order, lowering each arc's weights to the cost of going around its
+ *    triangles. It is a single pass over precomputed arrays, so a new metric
+ *    only takes a few milliseconds.
+ * 3. A query runs the same forward and backward upward searches as a
+ *    ContractionHierarchy, over the arc weights of the metric it names, and
+ *    unpacks the arcs along the path it finds through their triangles.
+ *
+ * Unlike a ContractionHierarchy, no witness searches are run, so there are
+ * more arcs than there would be shortcuts, but none of them depend on a
+ * metric. Metrics may be added and removed while queries run from any number
+ * of threads.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class CustomizableContractionHierarchy<NodeType> {
+
+    /**
+     * Gives the edges of a graph their weights under one metric.
+     *
+     * @param NodeType is the data type stored at each graph node
+     */
+    @FunctionalInterface
+    public interface EdgeWeights<NodeType> {
+        /**
+         * Returns the weight of an edge under the metric, which may be
+         * Double.POSITIVE_INFINITY to keep routes off the edge altogether.
+         *
+         * @param pred       the data item in the edge's predecessor node
+         * @param succ       the data item in the edge's successor node
+         * @param baseWeight the weight the edge has in the graph
+         * @return the non-negative weight of the edge under the metric
+         */
+        public double weight(NodeType pred, NodeType succ, double baseWeight);
+    }
+
+    // the weights of every arc under one metric, in both directions, and the lower triangle
+    // whose two other arcs each weight goes around (-1 for the weight of an original edge)
+    protected static class Metric {
+        protected final double[] up;
+        protected final double[] down;
+        protected final int[] upVia;
+        protected final int[] downVia;
+
+        protected Metric(int arcCount) {
+            up = new double[arcCount];
+            down = new double[arcCount];
+            upVia = new int[arcCount];
+            downVia = new int[arcCount];
+        }
+    }
+
+    // the graph this hierarchy was built from
+    protected CompactGraph<NodeType> graph;
+
+    // the order in which each node was eliminated
+    protected int[] rank;
+
+    // the arcs leading from each node to its higher ranked neighbors, sorted by the rank of
+    // their head, where the arcs of node u are upOffsets[u] through upOffsets[u + 1] - 1
+    protected int[] upOffsets;
+    protected int[] arcTail;
+    protected int[] arcHead;
+
+    // the lower triangles in the rank order of their lowest node x: the arc from x to the
+    // lower of its other two nodes u, the arc from x to the higher one v, and the arc from u to v
+    protected int[] triangleLower;
+    protected int[] triangleUpper;
+    protected int[] triangleTarget;
+    protected int triangleCount = 0;
+
+    // the arc that each edge of the graph is part of (-1 for loops), and whether the edge
+    // leads up that arc from its tail to its head
+    protected int[] edgeArc;
+    protected boolean[] edgeUpward;
+
+    // the customized metrics by name, which are replaced instead of changed so queries never lock
+    private volatile MapADT<String, Metric> metrics = new HashtableMap<>();
+
+    // the query workspaces that no query is using, shared by all threads so that short-lived
+    // threads such as virtual ones reuse them instead of each allocating their own, and by the
+    // copies of this hierarchy, whose graphs have the same nodes
+    private final ConcurrentLinkedQueue<QueryWorkspace> workspaces;
+
+    /**
+     * Constructor that runs the metric-independent preprocessing of the
+     * provided graph. No metrics are customized yet.
+     *
+     * @param graph the graph to answer shortest path queries on
+     */
+    public CustomizableContractionHierarchy(CompactGraph<NodeType> graph) {
+        this.graph = graph;
+        this.workspaces = new ConcurrentLinkedQueue<>();
+        int[][] upper = eliminateAll();
+        buildArcs(upper);
+        findTriangles();
+        edgeArc = new int[graph.getEdgeCount()];
+        edgeUpward = new boolean[graph.getEdgeCount()];
+        for (int u = 0; u < graph.getNodeCount(); u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int w = graph.targets[e];
+                edgeArc[e] = u == w ? -1 : rank[u] < rank[w] ? findArc(u, w) : findArc(w, u);
+                edgeUpward[e] = rank[u] < rank[w];
+            }
+        }
+    }
+
+    /**
+     * Ranks every node by eliminating them one at a time, always picking the
+     * node with the fewest remaining neighbors next, and joining the remaining
+     * neighbors of each eliminated node to each other. A node whose number of
+     * neighbors has grown by the time it reaches the front of the queue is put
+     * back.
+     *
+     * @return the remaining neighbors of each node when it was eliminated
+     */
+    private int[][] eliminateAll() {
+        int n = graph.getNodeCount();
+        // the undirected neighbors of each node, ignoring the direction and weight of every edge
+        int[][] neighbors = new int[n][];
+        int[] sizes = new int[n];
+        for (int u = 0; u < n; u++)
+            neighbors[u] = new int[4];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int w = graph.targets[e];
+                if (w != u) {
+                    neighbors[u] = append(neighbors[u], sizes[u]++, w);
+                    neighbors[w] = append(neighbors[w], sizes[w]++, u);
+                }
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            int[] sorted = Arrays.copyOf(neighbors[u], sizes[u]);
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < sorted.length; i++)
+                if (i == 0 || sorted[i] != sorted[i - 1])
+                    sorted[count++] = sorted[i];
+            neighbors[u] = sorted;
+            sizes[u] = count;
+        }
+
+        rank = new int[n];
+        boolean[] eliminated = new boolean[n];
+        int[] stamp = new int[n];
+        int generation = 0;
+        int[][] upper = new int[n][];
+        IndexedMinHeap order = new IndexedMinHeap(Math.max(1, n));
+        for (int v = 0; v < n; v++)
+            order.insert(v, sizes[v]);
+        int nextRank = 0;
+        while (!order.isEmpty()) {
+            int v = order.removeMin();
+            sizes[v] = removeEliminated(neighbors[v], sizes[v], eliminated);
+            if (!order.isEmpty() && sizes[v] > order.peekKey()) {
+                order.insert(v, sizes[v]);
+                continue;
+            }
+            eliminated[v] = true;
+            rank[v] = nextRank++;
+            upper[v] = Arrays.copyOf(neighbors[v], sizes[v]);
+            neighbors[v] = null;
+            // join every two remaining neighbors of v that aren't joined yet
+            for (int a : upper[v]) {
+                sizes[a] = removeEliminated(neighbors[a], sizes[a], eliminated);
+                generation++;
+                for (int i = 0; i < sizes[a]; i++)
+                    stamp[neighbors[a][i]] = generation;
+                for (int b : upper[v])
+                    if (b != a && stamp[b] != generation)
+                        neighbors[a] = append(neighbors[a], sizes[a]++, b);
+                // a larger number of neighbors is noticed lazily, when a reaches the front of the queue
+                if (sizes[a] < order.getKey(a))
+                    order.decreaseKey(a, sizes[a]);
+            }
+        }
+        return upper;
+    }
+
+    // stores value at position size of array, growing the array when it is full
+    private static int[] append(int[] array, int size, int value) {
+        if (size == array.length)
+            array = Arrays.copyOf(array, size * 2);
+        array[size] = value;
+        return array;
+    }
+
+    // drops the eliminated nodes from the first size entries of a list, returning its new size
+    private static int removeEliminated(int[] list, int size, boolean[] eliminated) {
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+            if (!eliminated[list[i]])
+                list[kept++] = list[i];
+        return kept;
+    }
+
+    // constructor for a copy of a hierarchy over a graph with the same edges, which shares
+    // its preprocessing but starts without metrics
+    private CustomizableContractionHierarchy(CustomizableContractionHierarchy<NodeType> hierarchy,
+            CompactGraph<NodeType> graph) {
+        this.graph = graph;
+        this.workspaces = hierarchy.workspaces;
+        this.rank = hierarchy.rank;
+        this.upOffsets = hierarchy.upOffsets;
+        this.arcTail = hierarchy.arcTail;
+        this.arcHead = hierarchy.arcHead;
+        this.triangleLower = hierarchy.triangleLower;
+        this.triangleUpper = hierarchy.triangleUpper;
+        this.triangleTarget = hierarchy.triangleTarget;
+        this.triangleCount = hierarchy.triangleCount;
+        this.edgeArc = hierarchy.edgeArc;
+        this.edgeUpward = hierarchy.edgeUpward;
+    }
+
+    /**
+     * Returns a hierarchy for a graph that has the same nodes and edges as
+     * this hierarchy's graph, but new edge weights, without preprocessing
+     * again. The new hierarchy has no metrics yet, and each metric is then
+     * customized with the new weights as the base weights of the edges. This
+     * hierarchy is left unchanged.
+     *
+     * @param weights the graph with the new edge weights
+     * @return the new hierarchy, or null if the graph's nodes or edges differ
+     *         from this hierarchy's graph
+     */
+    public CustomizableContractionHierarchy<NodeType> reweight(GraphADT<NodeType, Double> weights) {
+        if (weights.getNodeCount() != graph.getNodeCount() || weights.getEdgeCount() != graph.getEdgeCount())
+            return null;
+        // with the same number of edges, finding every old edge means the edges are the same
+        double[] newWeights = new double[graph.getEdgeCount()];
+        for (int u = 0; u < graph.getNodeCount(); u++) {
+            NodeType pred = graph.getData(u);
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                NodeType succ = graph.getData(graph.targets[e]);
+                if (!weights.containsEdge(pred, succ))
+                    return null;
+                newWeights[e] = weights.getEdge(pred, succ);
+            }
+        }
+        return new CustomizableContractionHierarchy<>(this, new CompactGraph<>(graph.nodeData, graph.ids,
+                graph.offsets, graph.targets, newWeights));
+    }
+
+    /**
+     * Returns a copy of this hierarchy that shares its preprocessing and
+     * starts with its current metrics, so that metrics can be customized or
+     * removed in the copy while this hierarchy is left unchanged.
+     *
+     * @return the new hierarchy
+     */
+    public CustomizableContractionHierarchy<NodeType> copy() {
+        CustomizableContractionHierarchy<NodeType> copy = new CustomizableContractionHierarchy<>(this, graph);
+        synchronized (this) {
+            copy.metrics = copyMetrics();
+        }
+        return copy;
+    }
+
+    // groups the arcs from each node to its higher ranked neighbors, sorted by their rank
+    private void buildArcs(int[][] upper) {
+        int n = graph.getNodeCount();
+        upOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++)
+            upOffsets[u + 1] = upOffsets[u] + upper[u].length;
+        arcTail = new int[upOffsets[n]];
+        arcHead = new int[upOffsets[n]];
+        for (int u = 0; u < n; u++) {
+            Integer[] heads = new Integer[upper[u].length];
+            for (int i = 0; i < heads.length; i++)
+                heads[i] = upper[u][i];
+            Arrays.sort(heads, (a, b) -> Integer.compare(rank[a], rank[b]));
+            for (int i = 0; i < heads.length; i++) {
+                arcTail[upOffsets[u] + i] = u;
+                arcHead[upOffsets[u] + i] = heads[i];
+            }
+        }
+    }
+
+    // returns the arc from u to its higher ranked neighbor v, or -1 if they aren't joined
+    private int findArc(int u, int v) {
+        int low = upOffsets[u];
+        int high = upOffsets[u + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = Integer.compare(rank[arcHead[middle]], rank[v]);
+            if (cmp == 0)
+                return middle;
+            if (cmp < 0)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return -1;
+    }
+
+    // lists the lower triangles of every node, in the order the nodes were eliminated
+    private void findTriangles() {
+        int n = graph.getNodeCount();
+        int[] byRank = new int[n];
+        for (int v = 0; v < n; v++)
+            byRank[rank[v]] = v;
+        int capacity = 16;
+        triangleLower = new int[capacity];
+        triangleUpper = new int[capacity];
+        triangleTarget = new int[capacity];
+        for (int x : byRank) {
+            for (int i = upOffsets[x]; i < upOffsets[x + 1]; i++) {
+                for (int j = i + 1; j < upOffsets[x + 1]; j++) {
+                    // elimination joined every two higher ranked neighbors of x, so this arc exists
+                    int target = findArc(arcHead[i], arcHead[j]);
+                    if (triangleCount == triangleLower.length) {
+                        capacity = triangleCount * 2;
+                        triangleLower = Arrays.copyOf(triangleLower, capacity);
+                        triangleUpper = Arrays.copyOf(triangleUpper, capacity);
+                        triangleTarget = Arrays.copyOf(triangleTarget, capacity);
+                    }
+                    triangleLower[triangleCount] = i;
+                    triangleUpper[triangleCount] = j;
+                    triangleTarget[triangleCount] = target;
+                    triangleCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of arcs that preprocessing produced, which is the
+     * same for every metric.
+     *
+     * @return the number of arcs in this hierarchy
+     */
+    public int getArcCount() {
+        return arcHead.length;
+    }
+
+    /**
+     * Customizes the hierarchy for a metric, replacing any metric that
+     * already has the same name. Queries that are already running keep using
+     * the previous weights.
+     *
+     * @param name    the name that queries use to pick the metric
+     * @param weights the weights of the graph's edges under the metric
+     * @throws NullPointerException     if name or weights is null
+     * @throws IllegalArgumentException if a weight is negative or NaN
+     */
+    public void customize(String name, EdgeWeights<NodeType> weights) {
+        if (name == null || weights == null)
+            throw new NullPointerException("null names and weights not allowed");
+        double[] edgeWeights = new double[graph.getEdgeCount()];
+        for (int u = 0; u < graph.getNodeCount(); u++)
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+                edgeWeights[e] = weights.weight(graph.getData(u), graph.getData(graph.targets[e]), graph.weights[e]);
+        customize(name, edgeWeights);
+    }
+
+    /**
+     * Customizes the hierarchy for a metric given as the weight of every edge
+     * of the graph, in the order of the graph's CSR arrays.
+     *
+     * @param name        the name that queries use to pick the metric
+     * @param edgeWeights the weight of each edge under the metric
+     * @throws IllegalArgumentException if a weight is negative or NaN
+     */
+    protected void customize(String name, double[] edgeWeights) {
+        Metric metric = new Metric(arcHead.length);
+        Arrays.fill(metric.up, Double.POSITIVE_INFINITY);
+        Arrays.fill(metric.down, Double.POSITIVE_INFINITY);
+        Arrays.fill(metric.upVia, -1);
+        Arrays.fill(metric.downVia, -1);
+        // every arc starts with its cheapest original edge in each direction
+        for (int e = 0; e < edgeWeights.length; e++) {
+            double weight = edgeWeights[e];
+            if (!(weight >= 0.0))
+                throw new IllegalArgumentException("edge weights must be non-negative");
+            int arc = edgeArc[e];
+            if (arc < 0)
+                continue;
+            if (edgeUpward[e])
+                metric.up[arc] = Math.min(metric.up[arc], weight);
+            else
+                metric.down[arc] = Math.min(metric.down[arc], weight);
+        }
+        // going around a lower triangle through x may be cheaper than the arc between u and v
+        double[] up = metric.up;
+        double[] down = metric.down;
+        for (int t = 0; t < triangleCount; t++) {
+            int lower = triangleLower[t];
+            int upper = triangleUpper[t];
+            int target = triangleTarget[t];
+            double cost = down[lower] + up[upper];
+            if (cost < up[target]) {
+                up[target] = cost;
+                metric.upVia[target] = t;
+            }
+            cost = down[upper] + up[lower];
+            if (cost < down[target]) {
+                down[target] = cost;
+                metric.downVia[target] = t;
+            }
+        }
+        synchronized (this) {
+            MapADT<String, Metric> updated = copyMetrics();
+            if (updated.containsKey(name))
+                updated.remove(name);
+            updated.put(name, metric);
+            metrics = updated;
+        }
+    }
+
+    /**
+     * Removes a metric, so that queries can no longer pick it.
+     *
+     * @param name the name of the metric
+     * @return true if the metric was removed, or false if there is no such metric
+     */
+    public synchronized boolean removeMetric(String name) {
+        if (name == null || !metrics.containsKey(name))
+            return false;
+        MapADT<String, Metric> updated = copyMetrics();
+        updated.remove(name);
+        metrics = updated;
+        return true;
+    }
+
+    // copies the map of metrics, while holding this hierarchy's lock
+    private MapADT<String, Metric> copyMetrics() {
+        MapADT<String, Metric> copy = new HashtableMap<>();
+        for (String key : metrics.getKeys())
+            copy.put(key, metrics.get(key));
+        return copy;
+    }
+
+    /**
+     * Returns the names of the metrics that queries can pick.
+     *
+     * @return a new list of the names
+     */
+    public List<String> getMetricNames() {
+        return metrics.getKeys();
+    }
+
+    // looks up a metric by name
+    private Metric metric(String name) {
+        MapADT<String, Metric> metrics = this.metrics;
+        if (name == null || !metrics.containsKey(name))
+            throw new NoSuchElementException("no metric named " + name);
+        return metrics.get(name);
+    }
+
+    /**
+     * A QueryWorkspace holds the arrays that one query's forward and backward
+     * searches work in. Queries take a workspace from a shared pool and put it
+     * back when they are done, and entries are stamped with the query's
+     * generation instead of being cleared.
+     */
+    private class QueryWorkspace {
+        double[][] cost = new double[2][graph.getNodeCount()];
+        int[][] predArc = new int[2][graph.getNodeCount()];
+        int[][] stamp = new int[2][graph.getNodeCount()];
+        IndexedMinHeap[] queue = { new IndexedMinHeap(Math.max(1, graph.getNodeCount())),
+                new IndexedMinHeap(Math.max(1, graph.getNodeCount())) };
+        int generation = 0;
+
+        void reset() {
+            queue[0].clear();
+            queue[1].clear();
+            if (++generation == 0) {
+                Arrays.fill(stamp[0], 0);
+                Arrays.fill(stamp[1], 0);
+                generation = 1;
+            }
+        }
+    }
+
+    // takes a workspace from the pool, or allocates one when every workspace is in use
+    private QueryWorkspace acquireWorkspace() {
+        QueryWorkspace workspace = workspaces.poll();
+        return workspace != null ? workspace : new QueryWorkspace();
+    }
+
+    /**
+     * Finds the shortest path from source to target under a metric, as the
+     * list of arcs along it with the direction each one is walked in: arc * 2
+     * + 1 for an arc walked up from its tail to its head, and arc * 2 for one
+     * walked down.
+     *
+     * @param metric the weights to search with
+     * @param source the id of the starting node
+     * @param target the id of the destination node
+     * @return the walked arcs along the shortest path, in order
+     * @throws NoSuchElementException when no path from source to target exists
+     */
+    protected int[] queryArcs(Metric metric, int source, int target) {
+        if (source == target)
+            return new int[0];
+        QueryWorkspace workspace = acquireWorkspace();
+        try {
+            return queryArcs(workspace, metric, source, target);
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    // finds the shortest path from source to target under a metric in a workspace, as queryArcs does
+    private int[] queryArcs(QueryWorkspace workspace, Metric metric, int source, int target) {
+        workspace.reset();
+        int generation = workspace.generation;
+        for (int side = 0; side < 2; side++) {
+            int origin = side == 0 ? source : target;
+            workspace.cost[side][origin] = 0.0;
+            workspace.predArc[side][origin] = -1;
+            workspace.stamp[side][origin] = generation;
+            workspace.queue[side].insert(origin, 0.0);
+        }
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (true) {
+            // advance the search whose next node is closest, until neither can find a cheaper path
+            IndexedMinHeap forward = workspace.queue[0];
+            IndexedMinHeap backward = workspace.queue[1];
+            boolean forwardDone = forward.isEmpty() || forward.peekKey() >= bestCost;
+            boolean backwardDone = backward.isEmpty() || backward.peekKey() >= bestCost;
+            if (forwardDone && backwardDone)
+                break;
+            int side = backwardDone || (!forwardDone && forward.peekKey() <= backward.peekKey()) ? 0 : 1;
+            double[] cost = workspace.cost[side];
+            int[] stamp = workspace.stamp[side];
+            int node = workspace.queue[side].removeMin();
+
+            // a node reached by both searches joins a path from source to target
+            int other = 1 - side;
+            if (workspace.stamp[other][node] == generation) {
+                double pathCost = cost[node] + workspace.cost[other][node];
+                if (pathCost < bestCost) {
+                    bestCost = pathCost;
+                    meet = node;
+                }
+            }
+
+            // both searches climb the arcs, the forward one walking them up and the backward one down
+            double[] weights = side == 0 ? metric.up : metric.down;
+            for (int arc = upOffsets[node]; arc < upOffsets[node + 1]; arc++) {
+                int next = arcHead[arc];
+                double nextCost = cost[node] + weights[arc];
+                if (nextCost == Double.POSITIVE_INFINITY)
+                    continue;
+                if (stamp[next] != generation || nextCost < cost[next]) {
+                    stamp[next] = generation;
+                    cost[next] = nextCost;
+                    workspace.predArc[side][next] = arc;
+                    workspace.queue[side].insertOrDecrease(next, nextCost);
+                }
+            }
+        }
+        if (meet < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+
+        // collect the arcs walked up from source to meet, and down from meet to target
+        LinkedList<Integer> walked = new LinkedList<>();
+        for (int arc = workspace.predArc[0][meet]; arc != -1; arc = workspace.predArc[0][arcTail[arc]])
+            walked.addFirst(arc * 2 + 1);
+        for (int arc = workspace.predArc[1][meet]; arc != -1; arc = workspace.predArc[1][arcTail[arc]])
+            walked.addLast(arc * 2);
+        return unpack(metric, walked);
+    }
+
+    // replaces every walked arc that goes around a triangle with the two arcs it goes through,
+    // until only arcs that stand for original edges are left
+    private int[] unpack(Metric metric, LinkedList<Integer> walked) {
+        int[] path = new int[16];
+        int length = 0;
+        while (!walked.isEmpty()) {
+            int step = walked.removeFirst();
+            int arc = step >> 1;
+            boolean upward = (step & 1) == 1;
+            int t = upward ? metric.upVia[arc] : metric.downVia[arc];
+            if (t >= 0) {
+                // up from u to v goes down to x and up to v, and down from v to u the other way round
+                if (upward) {
+                    walked.addFirst(triangleUpper[t] * 2 + 1);
+                    walked.addFirst(triangleLower[t] * 2);
+                } else {
+                    walked.addFirst(triangleLower[t] * 2 + 1);
+                    walked.addFirst(triangleUpper[t] * 2);
+                }
+                continue;
+            }
+            if (length == path.length)
+                path = Arrays.copyOf(path, length * 2);
+            path[length++] = step;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    // looks up the id of a node, reporting missing nodes the way DijkstraGraph does
+    private int nodeId(NodeType data) {
+        int id = graph.getId(data);
+        if (id < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        return id;
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path
+     * under a metric from the node with the provided start value through the
+     * node with the provided end value.
+     *
+     * @param metricName the name of the metric to find the shortest path under
+     * @param start      the data item in the starting node for the path
+     * @param end        the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException when the metric or either node is missing,
+     *                                or no path exists
+     */
+    public List<NodeType> shortestPathData(String metricName, NodeType start, NodeType end) {
+        Metric metric = metric(metricName);
+        int source = nodeId(start);
+        int target = nodeId(end);
+        List<NodeType> pathData = new LinkedList<>();
+        pathData.add(start);
+        for (int step : queryArcs(metric, source, target)) {
+            int arc = step >> 1;
+            pathData.add(graph.getData((step & 1) == 1 ? arcHead[arc] : arcTail[arc]));
+        }
+        return pathData;
+    }
+
+    /**
+     * Returns the cost under a metric of the shortest path from the node
+     * containing the start data to the node containing the end data. The
+     * edge weights are added up in path order, so the cost is the same as the
+     * one a Dijkstra search computes over the metric's weights.
+     *
+     * @param metricName the name of the metric to find the shortest path under
+     * @param start      the data item in the starting node for the path
+     * @param end        the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException when the metric or either node is missing,
+     *                                or no path exists
+     */
+    public double shortestPathCost(String metricName, NodeType start, NodeType end) {
+        Metric metric = metric(metricName);
+        double cost = 0.0;
+        for (int step : queryArcs(metric, nodeId(start), nodeId(end)))
+            cost += (step & 1) == 1 ? metric.up[step >> 1] : metric.down[step >> 1];
+        return cost;
+    }
+
+}
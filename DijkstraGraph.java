@@ -6,6 +6,7 @@
 // Lecturer: Gary Dahl
 // Notes to Grader: <optional extra notes>
 
+import java.util.Arrays;
 import java.util.PriorityQueue;
 import java.util.List;
 import java.util.LinkedList;
@@ -57,6 +58,28 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         }
     }
 
+    /**
+     * The kinds of priority queue that computeShortestPath can search with.
+     * LAZY_PRIORITY_QUEUE adds a new SearchNode to a java.util.PriorityQueue
+     * for every relaxed edge and skips stale entries when they are removed.
+     * BINARY_HEAP and QUATERNARY_HEAP keep at most one entry per node in an
+     * IndexedMinHeap, and lower that entry's priority when a cheaper path to
+     * its node is found.
+     */
+    public enum QueueType {
+        LAZY_PRIORITY_QUEUE(0), BINARY_HEAP(2), QUATERNARY_HEAP(4);
+
+        // the arity of the IndexedMinHeap used by this queue type
+        private final int arity;
+
+        private QueueType(int arity) {
+            this.arity = arity;
+        }
+    }
+
+    // the priority queue that computeShortestPath searches with
+    protected QueueType queueType = QueueType.LAZY_PRIORITY_QUEUE;
+
     /**
      * Constructor that sets the map that the graph uses.
      * @param map the map that the graph uses to map a data object to the node
@@ -66,6 +89,27 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         super(map);
     }
 
+    /**
+     * Selects the priority queue that shortest path searches use.
+     *
+     * @param queueType the kind of priority queue to search with
+     * @throws NullPointerException if queueType is null
+     */
+    public void setQueueType(QueueType queueType) {
+        if (queueType == null)
+            throw new NullPointerException("queueType is null");
+        this.queueType = queueType;
+    }
+
+    /**
+     * Returns the priority queue that shortest path searches use.
+     *
+     * @return the current queue type
+     */
+    public QueueType getQueueType() {
+        return queueType;
+    }
+
     /**
      * This helper method creates a network of SearchNodes while computing the
      * shortest path between the provided start and end locations. The
@@ -86,12 +130,29 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         if (!nodes.containsKey(start) || !nodes.containsKey(end))
             throw new NoSuchElementException("no path found between these nodes");
 
-        // create a map of visited nodes and a priority queue of nodes to visit
-        MapADT<NodeType, Node> visited = new PlaceholderMap<>();
+        // search from both ends at once when bidirectional search has been selected
+        if (bidirectional)
+            return computeShortestPathBidirectional(nodes.get(start), nodes.get(end));
+
+        // search with an indexed heap when one has been selected, or when a heuristic is used
+        if (searchesIndexed())
+            return computeShortestPathIndexed(nodes.get(start), nodes.get(end));
+
+        // create a map of visited nodes (by id) and a priority queue of nodes to visit
+        IntHashtableMap<Node> visited = new IntHashtableMap<>();
 
         // create a priority queue of nodes to visit
         PriorityQueue<SearchNode> queue = new PriorityQueue<>();
 
+        // count the search's work locally, and only time it when metrics are recorded
+        SearchMetrics metrics = this.metrics;
+        long startTime = metrics == null ? 0L : System.nanoTime();
+        RouteEvents.Search event = new RouteEvents.Search();
+        event.begin();
+        int relaxed = 0;
+        int stale = 0;
+        int peakQueueSize = 1;
+
         // create a start node and add it to the queue
         SearchNode startNode = new SearchNode(nodes.get(start), 0.0, null);
 
@@ -100,30 +161,558 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
             SearchNode current = queue.remove();
 
             // skip this node if we have already visited it
-            if (visited.containsKey(current.node.data)){
+            if (visited.containsKey(current.node.id)){
+                stale++;
                 continue;
             }
 
             // if we have reached the end node, return the current node
             if (current.node.data.equals(end)){
-                visited.put(current.node.data, current.node);
+                visited.put(current.node.id, current.node);
+                finishSearch(metrics, startTime, event, start, end, visited.getSize(), relaxed, stale,
+                        peakQueueSize, true);
                 return current;
             }
 
             // add this node to the visited map
-            visited.put(current.node.data, current.node);
+            visited.put(current.node.id, current.node);
 
             // add all of the current node's neighbors to the queue
             for (Edge edge : current.node.edgesLeaving){
                 // check if we have already visited this node
-                if (!visited.containsKey(edge.successor.data)){
+                if (!visited.containsKey(edge.successor.id)){
                     queue.add(new SearchNode(edge.successor, edge.data.doubleValue() + current.cost, current));
+                    relaxed++;
                 }
             }
+            peakQueueSize = Math.max(peakQueueSize, queue.size());
         }
+        finishSearch(metrics, startTime, event, start, end, visited.getSize(), relaxed, stale, peakQueueSize,
+                false);
         throw new NoSuchElementException("no path found between these nodes");
     }
 
+    /**
+     * A SearchWorkspace holds the per-node arrays that an indexed search
+     * works in, indexed by node id. Rather than clearing these arrays before
+     * each search, a workspace stamps every node it settles with the number
+     * of the current search (its generation), so starting a new search only
+     * takes time proportional to the entries left in the queue by the last one.
+     * Tentative costs and predecessors are only read for nodes that the current
+     * search has queued, so their stale values never need to be cleared.
+     */
+    protected class SearchWorkspace {
+        public double[] cost = new double[0];
+        public Node[] pred = newNodeArray(0);
+        public Node[] queued = newNodeArray(0); // the node for each queued id
+        public double[] estimate = new double[0]; // the heuristic estimate for each queued node
+        public int[] settled = new int[0]; // the generation that settled each node
+        public int generation = 0;
+        public IndexedMinHeap queue = null;
+
+        /**
+         * Prepares this workspace for a new search.
+         *
+         * @param capacity the number of node ids the search may touch
+         * @param arity    the arity of the heap to search with
+         */
+        public void reset(int capacity, int arity) {
+            if (queue == null || queue.arity != arity)
+                queue = new IndexedMinHeap(capacity, arity);
+            queue.clear();
+            queue.ensureCapacity(capacity);
+            if (settled.length < capacity) {
+                cost = new double[queue.getCapacity()];
+                pred = newNodeArray(queue.getCapacity());
+                queued = newNodeArray(queue.getCapacity());
+                estimate = new double[queue.getCapacity()];
+                settled = new int[queue.getCapacity()];
+            }
+            // start a new generation, clearing the stamps only when the counter wraps around
+            if (++generation == 0) {
+                Arrays.fill(settled, 0);
+                generation = 1;
+            }
+        }
+
+        public boolean isSettled(Node node) {
+            return settled[node.id] == generation;
+        }
+    }
+
+    // whether indexed searches reuse one SearchWorkspace per thread instead of allocating their own
+    protected boolean reuseWorkspaces = false;
+    protected ThreadLocal<SearchWorkspace> workspaces = ThreadLocal.withInitial(SearchWorkspace::new);
+    // bidirectional searches run their backward half in a second workspace
+    protected ThreadLocal<SearchWorkspace> backwardWorkspaces = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    // whether searches expand from both the start and the end node
+    protected boolean bidirectional = false;
+
+    // the estimate of the remaining cost that guides searches toward the end node (A*), or null
+    protected SearchHeuristic<NodeType> heuristic = null;
+
+    // where point-to-point searches record what they did, or null to record nothing
+    protected volatile SearchMetrics metrics = null;
+
+    /**
+     * Selects whether searches with an indexed heap reuse a SearchWorkspace
+     * that is kept for each thread, instead of allocating new per-node arrays
+     * for every search. With workspaces reused, a steady-state shortestPathCost
+     * call allocates nothing, and a shortestPathData call only allocates the
+     * list it returns. Searches with the lazy priority queue are not affected.
+     *
+     * @param reuseWorkspaces true to reuse per-thread workspaces
+     */
+    public void setReuseWorkspaces(boolean reuseWorkspaces) {
+        this.reuseWorkspaces = reuseWorkspaces;
+    }
+
+    /**
+     * Selects whether shortest path searches expand from both ends at once: a
+     * forward search from the start node over edgesLeaving, and a backward
+     * search from the end node over edgesEntering. Bidirectional searches
+     * always use an indexed heap (a binary heap when the lazy priority queue
+     * is selected), and reuse workspaces when setReuseWorkspaces is enabled.
+     *
+     * @param bidirectional true to search from both ends
+     */
+    public void setBidirectional(boolean bidirectional) {
+        this.bidirectional = bidirectional;
+    }
+
+    /**
+     * Selects a heuristic that guides shortest path searches toward the end
+     * node, turning them into A* searches: nodes are settled in order of
+     * their cost from the start plus the heuristic's estimate of their cost
+     * to the end. The heuristic must be consistent (see SearchHeuristic) for
+     * the paths found to be shortest paths. Searches with a heuristic always
+     * use an indexed heap (a binary heap when the lazy priority queue is
+     * selected). Bidirectional searches do not use the heuristic.
+     *
+     * @param heuristic the heuristic to search with, or null for none
+     */
+    public void setHeuristic(SearchHeuristic<NodeType> heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Selects where shortest path searches between two nodes record the
+     * nodes they settle, the edges they relax, the size of their queue and
+     * their wall time. Searches only read the clock when metrics are set.
+     *
+     * @param metrics the metrics to record into, or null to record nothing
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // reports a finished search to the metrics, when they are set, and to the flight recorder,
+    // when it is recording searches
+    private void finishSearch(SearchMetrics metrics, long startTime, RouteEvents.Search event, NodeType start,
+            NodeType end, int settled, int relaxed, int stale, int peakQueueSize, boolean found) {
+        if (metrics != null)
+            metrics.recordSearch(settled, relaxed, stale, peakQueueSize, System.nanoTime() - startTime, found);
+        if (event.shouldCommit()) {
+            event.start = String.valueOf(start);
+            event.end = String.valueOf(end);
+            event.queueType = queueType.name();
+            event.bidirectional = bidirectional;
+            event.found = found;
+            event.settled = settled;
+            event.relaxed = relaxed;
+            event.stalePops = stale;
+            event.peakQueueSize = peakQueueSize;
+            event.commit();
+        }
+    }
+
+    // checks whether unidirectional searches run in a SearchWorkspace with an indexed heap
+    private boolean searchesIndexed() {
+        return !bidirectional && (queueType != QueueType.LAZY_PRIORITY_QUEUE || heuristic != null);
+    }
+
+    // returns a pooled workspace when workspaces are reused, or a new one otherwise
+    private SearchWorkspace acquireWorkspace(ThreadLocal<SearchWorkspace> pool) {
+        return reuseWorkspaces ? pool.get() : new SearchWorkspace();
+    }
+
+    /**
+     * This helper method runs the same search as computeShortestPath, but with
+     * an IndexedMinHeap of node ids instead of a queue of SearchNodes. Each node
+     * is queued at most once, and its tentative cost is lowered in place when a
+     * cheaper path to it is found. When a heuristic has been selected, each
+     * node is queued by its cost plus its estimated cost to the end node. The
+     * search stops once the end node is settled, and leaves the costs and
+     * predecessors along the shortest path in the workspace that it returns.
+     *
+     * @param startNode the starting node for the path
+     * @param endNode   the destination node for the path
+     * @return the workspace that the search ran in
+     * @throws NoSuchElementException when no path from start to end is found
+     */
+    protected SearchWorkspace searchIndexed(Node startNode, Node endNode) {
+        SearchHeuristic<NodeType> heuristic = this.heuristic;
+        SearchWorkspace workspace = acquireWorkspace(workspaces);
+        workspace.reset(nextNodeId, Math.max(2, queueType.arity));
+        double[] cost = workspace.cost;
+        double[] estimate = workspace.estimate;
+        Node[] pred = workspace.pred;
+        Node[] queued = workspace.queued;
+        IndexedMinHeap queue = workspace.queue;
+        // an indexed heap never holds stale entries, so only settled nodes and relaxed edges are counted
+        SearchMetrics metrics = this.metrics;
+        long startTime = metrics == null ? 0L : System.nanoTime();
+        RouteEvents.Search event = new RouteEvents.Search();
+        event.begin();
+        int settled = 0;
+        int relaxed = 0;
+        int peakQueueSize = 1;
+
+        cost[startNode.id] = 0.0;
+        pred[startNode.id] = null;
+        queued[startNode.id] = startNode;
+        queue.insert(startNode.id, 0.0);
+        while (!queue.isEmpty()) {
+            Node current = queued[queue.removeMin()];
+            workspace.settled[current.id] = workspace.generation;
+            settled++;
+
+            // once the end node is settled, its path can be read from the workspace
+            if (current == endNode) {
+                finishSearch(metrics, startTime, event, startNode.data, endNode.data, settled, relaxed, 0,
+                        peakQueueSize, true);
+                return workspace;
+            }
+
+            // relax every edge leaving the current node toward an unsettled node
+            for (Edge edge : current.edgesLeaving) {
+                Node next = edge.successor;
+                if (workspace.isSettled(next))
+                    continue;
+                double nextCost = cost[current.id] + edge.data.doubleValue();
+                // estimate each node's remaining cost only once, when it is first queued
+                double nextEstimate = 0.0;
+                if (heuristic != null)
+                    nextEstimate = queue.contains(next.id) ? estimate[next.id]
+                            : heuristic.estimate(next.data, endNode.data);
+                relaxed++;
+                if (queue.insertOrDecrease(next.id, nextCost + nextEstimate)) {
+                    cost[next.id] = nextCost;
+                    estimate[next.id] = nextEstimate;
+                    pred[next.id] = current;
+                    queued[next.id] = next;
+                }
+            }
+            peakQueueSize = Math.max(peakQueueSize, queue.size());
+        }
+        finishSearch(metrics, startTime, event, startNode.data, endNode.data, settled, relaxed, 0, peakQueueSize,
+                false);
+        throw new NoSuchElementException("no path found between these nodes");
+    }
+
+    /**
+     * Computes the cost of the shortest path between the source node and
+     * every node of the graph, by running Dijkstra's algorithm until every
+     * reachable node is settled.
+     *
+     * @param start   the data item in the node that every path starts (or ends) at
+     * @param forward true to follow edgesLeaving and compute the costs of paths
+     *                from source, or false to follow edgesEntering and compute
+     *                the costs of paths to source
+     * @return an array indexed by node id holding the cost of each node's
+     *         shortest path, or infinity for nodes with no such path
+     * @throws NoSuchElementException if start is not stored in a graph node
+     */
+    protected double[] computeCostsFrom(NodeType start, boolean forward) {
+        return computeShortestPathTree(nodes.get(start), forward).distances;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source node until every reachable
+     * node is settled, and returns the cost and predecessor of every node.
+     *
+     * @param source  the node that every path starts (or ends) at
+     * @param forward true to follow edgesLeaving and find the paths from
+     *                source, or false to follow edgesEntering and find the
+     *                paths to source (whose predecessors are then the next
+     *                node toward source)
+     * @return the tree of shortest paths from (or to) source
+     */
+    @SuppressWarnings("unchecked")
+    protected ShortestPathTree<NodeType> computeShortestPathTree(Node source, boolean forward) {
+        NodeType[] data = (NodeType[]) new Object[nextNodeId];
+        double[] cost = new double[nextNodeId];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        int[] pred = new int[nextNodeId];
+        Arrays.fill(pred, -1);
+        int[] order = new int[nextNodeId];
+        int reached = 0;
+        Node[] queued = newNodeArray(nextNodeId);
+        IndexedMinHeap queue = new IndexedMinHeap(nextNodeId, Math.max(2, queueType.arity));
+        cost[source.id] = 0.0;
+        queued[source.id] = source;
+        queue.insert(source.id, 0.0);
+        while (!queue.isEmpty()) {
+            Node current = queued[queue.removeMin()];
+            // a node's data is only set once it is settled, which marks it as settled
+            data[current.id] = current.data;
+            order[reached++] = current.id;
+            for (Edge edge : forward ? current.edgesLeaving : current.edgesEntering) {
+                Node next = forward ? edge.successor : edge.predecessor;
+                if (data[next.id] != null)
+                    continue;
+                double nextCost = cost[current.id] + edge.data.doubleValue();
+                if (queue.insertOrDecrease(next.id, nextCost)) {
+                    cost[next.id] = nextCost;
+                    pred[next.id] = current.id;
+                    queued[next.id] = next;
+                }
+            }
+        }
+        return new ShortestPathTree<>(source.data, data, cost, pred, order, reached,
+                node -> nodes.containsKey(node) ? nodes.get(node).id : -1);
+    }
+
+    /**
+     * Returns the shortest paths from the node containing the start data to
+     * every node that can be reached from it. This runs a single Dijkstra
+     * search that settles the whole reachable part of the graph, so it is
+     * much cheaper than calling shortestPathCost once for every destination.
+     *
+     * @param start the data item in the starting node for every path
+     * @return the tree of shortest paths from start
+     * @throws NoSuchElementException if start is not stored in a graph node
+     */
+    public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+        if (!nodes.containsKey(start))
+            throw new NoSuchElementException("no path found between these nodes");
+        return computeShortestPathTree(nodes.get(start), true);
+    }
+
+    /**
+     * Returns the costs of the shortest paths from one node to each of a
+     * list of nodes, found with a single search that stops as soon as every
+     * one of those nodes has been settled.
+     *
+     * @param start the data item in the starting node for every path
+     * @param ends  the data items in the destination nodes
+     * @return the cost of the path to each destination, in the order of ends,
+     *         or Double.POSITIVE_INFINITY when there is no such path
+     * @throws NoSuchElementException if start or any of ends is not stored in a graph node
+     */
+    public double[] shortestPathCosts(NodeType start, List<NodeType> ends) {
+        return shortestPathCosts(List.of(start), ends)[0];
+    }
+
+    /**
+     * Returns the costs of the shortest paths between every pair of nodes from
+     * a list of starting nodes and a list of destination nodes. One search runs
+     * from each starting node, and each one stops as soon as every destination
+     * has been settled, so a whole matrix costs one (partial) search per row
+     * rather than one search per entry.
+     *
+     * @param starts the data items in the starting nodes
+     * @param ends   the data items in the destination nodes
+     * @return a matrix whose entry [i][j] holds the cost of the shortest path
+     *         from starts.get(i) to ends.get(j), or Double.POSITIVE_INFINITY
+     *         when there is no such path
+     * @throws NoSuchElementException if any of starts or ends is not stored in a graph node
+     */
+    public double[][] shortestPathCosts(List<NodeType> starts, List<NodeType> ends) {
+        Node[] sources = newNodeArray(starts.size());
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = nodes.containsKey(starts.get(i)) ? nodes.get(starts.get(i)) : null;
+            if (sources[i] == null)
+                throw new NoSuchElementException("no path found between these nodes");
+        }
+        Node[] targets = newNodeArray(ends.size());
+        // mark every destination once, counting repeated destinations only once
+        boolean[] isTarget = new boolean[nextNodeId];
+        int targetCount = 0;
+        for (int j = 0; j < targets.length; j++) {
+            targets[j] = nodes.containsKey(ends.get(j)) ? nodes.get(ends.get(j)) : null;
+            if (targets[j] == null)
+                throw new NoSuchElementException("no path found between these nodes");
+            if (!isTarget[targets[j].id]) {
+                isTarget[targets[j].id] = true;
+                targetCount++;
+            }
+        }
+        double[][] costs = new double[sources.length][];
+        for (int i = 0; i < sources.length; i++)
+            costs[i] = searchTargets(sources[i], targets, isTarget, targetCount);
+        return costs;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source node until every target node
+     * is settled (or every reachable node is, when some targets can't be
+     * reached), and returns the cost of the shortest path to each target.
+     *
+     * @param source      the starting node
+     * @param targets     the destination nodes
+     * @param isTarget    marks the ids of the destination nodes
+     * @param targetCount the number of distinct destination nodes
+     * @return the cost of the path to each target, or infinity when there is none
+     */
+    protected double[] searchTargets(Node source, Node[] targets, boolean[] isTarget, int targetCount) {
+        SearchWorkspace workspace = acquireWorkspace(workspaces);
+        workspace.reset(nextNodeId, Math.max(2, queueType.arity));
+        double[] cost = workspace.cost;
+        Node[] queued = workspace.queued;
+        IndexedMinHeap queue = workspace.queue;
+        cost[source.id] = 0.0;
+        queued[source.id] = source;
+        queue.insert(source.id, 0.0);
+        int remaining = targetCount;
+        while (remaining > 0 && !queue.isEmpty()) {
+            Node current = queued[queue.removeMin()];
+            workspace.settled[current.id] = workspace.generation;
+            if (isTarget[current.id])
+                remaining--;
+            for (Edge edge : current.edgesLeaving) {
+                Node next = edge.successor;
+                if (workspace.isSettled(next))
+                    continue;
+                double nextCost = cost[current.id] + edge.data.doubleValue();
+                if (queue.insertOrDecrease(next.id, nextCost)) {
+                    cost[next.id] = nextCost;
+                    queued[next.id] = next;
+                }
+            }
+        }
+        double[] row = new double[targets.length];
+        for (int j = 0; j < targets.length; j++)
+            row[j] = workspace.isSettled(targets[j]) ? cost[targets[j].id] : Double.POSITIVE_INFINITY;
+        return row;
+    }
+
+    /**
+     * Runs searchIndexed and links the nodes along the shortest path that it
+     * finds together into SearchNodes.
+     *
+     * @param startNode the starting node for the path
+     * @param endNode   the destination node for the path
+     * @return SearchNode for the final end node within the shortest path
+     * @throws NoSuchElementException when no path from start to end is found
+     */
+    protected SearchNode computeShortestPathIndexed(Node startNode, Node endNode) {
+        SearchWorkspace workspace = searchIndexed(startNode, endNode);
+        return buildSearchPath(endNode, workspace.cost, workspace.pred);
+    }
+
+    /**
+     * This helper method finds the shortest path from startNode to endNode by
+     * alternating between a forward search from startNode and a backward
+     * search from endNode, always advancing the search whose next node is
+     * closer to its own origin. Whenever an edge joins a node reached by one
+     * search to a node reached by the other, the path through that edge is
+     * remembered if it is the cheapest seen so far. The searches stop once the
+     * costs of their next nodes add up to at least the cost of that path, since
+     * no path through unsettled nodes can be cheaper.
+     *
+     * @param startNode the starting node for the path
+     * @param endNode   the destination node for the path
+     * @return SearchNode for the final end node within the shortest path
+     * @throws NoSuchElementException when no path from start to end is found
+     */
+    protected SearchNode computeShortestPathBidirectional(Node startNode, Node endNode) {
+        if (startNode == endNode)
+            return new SearchNode(startNode, 0.0, null);
+        // the work of both halves is counted together, with the queue sizes added up
+        SearchMetrics metrics = this.metrics;
+        long startTime = metrics == null ? 0L : System.nanoTime();
+        RouteEvents.Search event = new RouteEvents.Search();
+        event.begin();
+        int settled = 0;
+        int relaxed = 0;
+        int peakQueueSize = 2;
+        int arity = Math.max(2, queueType.arity);
+        SearchWorkspace forward = acquireWorkspace(workspaces);
+        SearchWorkspace backward = acquireWorkspace(backwardWorkspaces);
+        forward.reset(nextNodeId, arity);
+        backward.reset(nextNodeId, arity);
+        forward.cost[startNode.id] = 0.0;
+        forward.pred[startNode.id] = null;
+        forward.queued[startNode.id] = startNode;
+        forward.queue.insert(startNode.id, 0.0);
+        backward.cost[endNode.id] = 0.0;
+        backward.pred[endNode.id] = null;
+        backward.queued[endNode.id] = endNode;
+        backward.queue.insert(endNode.id, 0.0);
+
+        // the cheapest path found so far runs through the edge from meetFrom to meetTo
+        double bestCost = Double.POSITIVE_INFINITY;
+        Node meetFrom = null;
+        Node meetTo = null;
+        while (!forward.queue.isEmpty() && !backward.queue.isEmpty()
+                && forward.queue.peekKey() + backward.queue.peekKey() < bestCost) {
+            boolean isForward = forward.queue.peekKey() <= backward.queue.peekKey();
+            SearchWorkspace search = isForward ? forward : backward;
+            SearchWorkspace other = isForward ? backward : forward;
+            Node current = search.queued[search.queue.removeMin()];
+            search.settled[current.id] = search.generation;
+            settled++;
+
+            // the forward search follows edges leaving each node, the backward search edges entering it
+            for (Edge edge : isForward ? current.edgesLeaving : current.edgesEntering) {
+                Node next = isForward ? edge.successor : edge.predecessor;
+                if (search.isSettled(next))
+                    continue;
+                relaxed++;
+                double nextCost = search.cost[current.id] + edge.data.doubleValue();
+                if (search.queue.insertOrDecrease(next.id, nextCost)) {
+                    search.cost[next.id] = nextCost;
+                    search.pred[next.id] = current;
+                    search.queued[next.id] = next;
+                }
+                // when the other search has reached next, this edge joins the two searches
+                if (other.isSettled(next) || other.queue.contains(next.id)) {
+                    double pathCost = nextCost + other.cost[next.id];
+                    if (pathCost < bestCost) {
+                        bestCost = pathCost;
+                        meetFrom = isForward ? current : next;
+                        meetTo = isForward ? next : current;
+                    }
+                }
+            }
+            peakQueueSize = Math.max(peakQueueSize, forward.queue.size() + backward.queue.size());
+        }
+        finishSearch(metrics, startTime, event, startNode.data, endNode.data, settled, relaxed, 0, peakQueueSize,
+                meetFrom != null);
+        if (meetFrom == null)
+            throw new NoSuchElementException("no path found between these nodes");
+
+        // link the forward half of the path from the start through meetFrom
+        SearchNode searchNode = buildSearchPath(meetFrom, forward.cost, forward.pred);
+        // then extend it through meetTo toward the end, following the backward predecessors
+        for (Node node = meetTo; node != null; node = backward.pred[node.id])
+            searchNode = new SearchNode(node, bestCost - backward.cost[node.id], searchNode);
+        return searchNode;
+    }
+
+    /**
+     * Creates the chain of SearchNodes for the path that ends at endNode, by
+     * following the predecessor of each node back to the start of the search.
+     *
+     * @param endNode the last node of the path
+     * @param cost    the cost of reaching each node, indexed by node id
+     * @param pred    the predecessor of each node, indexed by node id (null
+     *                for the starting node)
+     * @return SearchNode for endNode, linked to the SearchNodes before it
+     */
+    protected SearchNode buildSearchPath(Node endNode, double[] cost, Node[] pred) {
+        // create the SearchNodes from the end backward, linking each one to the one before it
+        SearchNode last = new SearchNode(endNode, cost[endNode.id], null);
+        SearchNode searchNode = last;
+        for (Node node = pred[endNode.id]; node != null; node = pred[node.id]) {
+            searchNode.predecessor = new SearchNode(node, cost[node.id], null);
+            searchNode = searchNode.predecessor;
+        }
+        return last;
+    }
+
     /**
      * Returns the list of data values from nodes along the shortest path
      * from the node with the provided start value through the node with the
@@ -141,12 +730,21 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         if (!nodes.containsKey(start) || !nodes.containsKey(end))
             throw new NoSuchElementException("no path found between these nodes");
 
-        // initialize the list of data to return
-        SearchNode pathNode = computeShortestPath(start, end);
-
         // create a list to store the data
         List<NodeType> pathData = new LinkedList<>();
 
+        // indexed searches leave their predecessors in a workspace, so no SearchNodes are needed
+        if (searchesIndexed()) {
+            Node endNode = nodes.get(end);
+            Node[] pred = searchIndexed(nodes.get(start), endNode).pred;
+            for (Node node = endNode; node != null; node = pred[node.id])
+                pathData.add(0, node.data);
+            return pathData;
+        }
+
+        // initialize the list of data to return
+        SearchNode pathNode = computeShortestPath(start, end);
+
         // add the data to the list
         while (pathNode != null){
             pathData.add(0, pathNode.node.data);
@@ -170,6 +768,12 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         if (!nodes.containsKey(start) || !nodes.containsKey(end))
             throw new NoSuchElementException("no path found between these nodes");
 
+        // indexed searches leave the cost in a workspace, so no SearchNodes are needed
+        if (searchesIndexed()) {
+            Node endNode = nodes.get(end);
+            return searchIndexed(nodes.get(start), endNode).cost[endNode.id];
+        }
+
         // initialize the list of data to return
         SearchNode pathNode = computeShortestPath(start, end);
         return pathNode.cost;
@@ -0,0 +1,276 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * This class writes synthetic campus maps of any size, in exactly the format
+ * that Backend.readFile reads: one undirected path per line, written as
+ *
+ *     "Building 12" -- "Building 40" [seconds=131.7];
+ *
+ * The maps come in two topologies. A GRID is a lattice of buildings, where
+ * each building has a path to its right and lower neighbour. A GEOMETRIC map
+ * scatters the buildings over a square and gives each one a path to its
+ * nearest neighbours, which looks much more like a real campus. Either way
+ * the walking times are about two minutes per path and every building can
+ * reach every other one, and the same seed always writes the same file.
+ *
+ * Run it with: java DotGenerator file [grid|geometric] [buildings] [degree] [seed]
+ */
+public class DotGenerator {
+
+    /**
+     * The shape of the generated maps.
+     */
+    public enum Topology {
+        // a lattice with paths between horizontal and vertical neighbours
+        GRID,
+        // random points with paths to each point's nearest neighbours
+        GEOMETRIC
+    }
+
+    // the typical walking time in seconds between neighbouring buildings
+    protected static final double SPACING = 120.0;
+
+    /**
+     * Main method that writes one map.
+     *
+     * @param args the file to write, and optionally the topology, building
+     *             count, number of nearest neighbours per building (for
+     *             GEOMETRIC maps) and random seed
+     * @throws IOException if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("usage: java DotGenerator file [grid|geometric] [buildings] [degree] [seed]");
+            return;
+        }
+        Topology topology = args.length > 1 ? Topology.valueOf(args[1].toUpperCase()) : Topology.GEOMETRIC;
+        int nodeCount = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        int degree = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 21L;
+        long start = System.nanoTime();
+        int paths = write(args[0], topology, nodeCount, degree, seed);
+        System.out.printf("wrote %d buildings and %d paths to %s in %.1f s%n", nodeCount, paths, args[0],
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes a synthetic map to a file.
+     *
+     * @param file      the path of the file to write
+     * @param topology  the shape of the map
+     * @param nodeCount the number of buildings
+     * @param degree    the number of nearest neighbours each building gets a
+     *                  path to in a GEOMETRIC map, which GRID maps ignore
+     * @param seed      the seed of the random walking times and positions
+     * @return the number of paths written
+     * @throws IllegalArgumentException if nodeCount or degree is not positive
+     * @throws IOException              if the file can't be written
+     */
+    public static int write(String file, Topology topology, int nodeCount, int degree, long seed)
+            throws IOException {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8),
+                1 << 16)) {
+            return write(writer, topology, nodeCount, degree, seed);
+        }
+    }
+
+    /**
+     * Writes a synthetic map.
+     *
+     * @param writer    where to write the map, which is not closed
+     * @param topology  the shape of the map
+     * @param nodeCount the number of buildings
+     * @param degree    the number of nearest neighbours each building gets a
+     *                  path to in a GEOMETRIC map, which GRID maps ignore
+     * @param seed      the seed of the random walking times and positions
+     * @return the number of paths written
+     * @throws IllegalArgumentException if nodeCount or degree is not positive
+     * @throws IOException              if the map can't be written
+     */
+    public static int write(Writer writer, Topology topology, int nodeCount, int degree, long seed)
+            throws IOException {
+        if (nodeCount <= 0 || degree <= 0)
+            throw new IllegalArgumentException("building count and degree must be positive");
+        Random random = new Random(seed);
+        writer.write("graph synthetic {\n");
+        int paths = topology == Topology.GRID ? writeGrid(writer, nodeCount, random)
+                : writeGeometric(writer, nodeCount, degree, random);
+        writer.write("}\n");
+        return paths;
+    }
+
+    // writes the paths of a lattice that is as close to square as possible
+    private static int writeGrid(Writer writer, int nodeCount, Random random) throws IOException {
+        int width = (int) Math.ceil(Math.sqrt(nodeCount));
+        int paths = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            // the path to the right neighbour, unless this building ends its row
+            if ((i + 1) % width != 0 && i + 1 < nodeCount) {
+                writePath(writer, i, i + 1, SPACING * (0.5 + random.nextDouble()));
+                paths++;
+            }
+            if (i + width < nodeCount) {
+                writePath(writer, i, i + width, SPACING * (0.5 + random.nextDouble()));
+                paths++;
+            }
+        }
+        // a single building has no paths, so it is written on its own
+        if (nodeCount == 1)
+            writer.write("\t\"" + name(0) + "\";\n");
+        return paths;
+    }
+
+    // writes paths from every point to its nearest neighbours, plus the paths that connect the map
+    private static int writeGeometric(Writer writer, int nodeCount, int degree, Random random)
+            throws IOException {
+        // the side of the square, chosen so that neighbouring points are about SPACING apart
+        double side = Math.sqrt(nodeCount) * SPACING;
+        double[] xs = new double[nodeCount];
+        double[] ys = new double[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            xs[i] = random.nextDouble() * side;
+            ys[i] = random.nextDouble() * side;
+        }
+
+        // bucket the points into a grid of cells that hold about two points each
+        int cellsPerSide = Math.max(1, (int) Math.sqrt(nodeCount / 2.0));
+        double cellSize = side / cellsPerSide;
+        int[] cellStart = new int[cellsPerSide * cellsPerSide + 1];
+        int[] cellOf = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            cellOf[i] = cell(xs[i], cellSize, cellsPerSide) * cellsPerSide + cell(ys[i], cellSize, cellsPerSide);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cellsPerSide * cellsPerSide; c++)
+            cellStart[c + 1] += cellStart[c];
+        int[] cellPoints = new int[nodeCount];
+        int[] filled = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int i = 0; i < nodeCount; i++)
+            cellPoints[filled[cellOf[i]]++] = i;
+
+        int[] parents = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++)
+            parents[i] = i;
+        HashSet<Long> written = new HashSet<>();
+        int k = Math.min(degree, nodeCount - 1);
+        int[] nearest = new int[k];
+        double[] nearestDistances = new double[k];
+        int paths = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int found = nearestNeighbours(i, k, xs, ys, cellSize, cellsPerSide, cellStart, cellPoints, nearest,
+                    nearestDistances);
+            for (int n = 0; n < found; n++) {
+                int j = nearest[n];
+                // a path between two points that are each other's neighbours is written once
+                if (written.add((long) Math.min(i, j) * nodeCount + Math.max(i, j))) {
+                    writePath(writer, i, j, nearestDistances[n]);
+                    union(parents, i, j);
+                    paths++;
+                }
+            }
+        }
+        // join every group of points that can't reach the previous point to it
+        for (int i = 1; i < nodeCount; i++) {
+            if (find(parents, i) != find(parents, i - 1)) {
+                writePath(writer, i - 1, i, Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]));
+                union(parents, i - 1, i);
+                paths++;
+            }
+        }
+        // a single building has no paths, so it is written on its own
+        if (nodeCount == 1)
+            writer.write("\t\"" + name(0) + "\";\n");
+        return paths;
+    }
+
+    // returns the row or column of the cell that a coordinate falls into
+    private static int cell(double coordinate, double cellSize, int cellsPerSide) {
+        return Math.min(cellsPerSide - 1, (int) (coordinate / cellSize));
+    }
+
+    /*
+     * Finds the k points nearest to point i, sorted by distance, by searching rings of cells
+     * around its cell until no point outside the rings can be nearer than the kth point found.
+     * Returns the number of points found, which is k unless there are fewer other points.
+     */
+    private static int nearestNeighbours(int i, int k, double[] xs, double[] ys, double cellSize,
+            int cellsPerSide, int[] cellStart, int[] cellPoints, int[] nearest, double[] nearestDistances) {
+        // a lone point has no neighbours to find
+        if (k == 0)
+            return 0;
+        int row = cell(xs[i], cellSize, cellsPerSide);
+        int column = cell(ys[i], cellSize, cellsPerSide);
+        int found = 0;
+        for (int ring = 0; ring < cellsPerSide; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                for (int c = column - ring; c <= column + ring; c++) {
+                    // only visit the cells on the edge of this ring, and skip those off the map
+                    if (Math.max(Math.abs(r - row), Math.abs(c - column)) != ring || r < 0 || c < 0
+                            || r >= cellsPerSide || c >= cellsPerSide)
+                        continue;
+                    int cell = r * cellsPerSide + c;
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        int j = cellPoints[p];
+                        if (j == i)
+                            continue;
+                        double distance = Math.hypot(xs[j] - xs[i], ys[j] - ys[i]);
+                        if (found == k && distance >= nearestDistances[k - 1])
+                            continue;
+                        // insert j into the sorted list of the nearest points
+                        int position = found == k ? k - 1 : found++;
+                        while (position > 0 && nearestDistances[position - 1] > distance) {
+                            nearest[position] = nearest[position - 1];
+                            nearestDistances[position] = nearestDistances[position - 1];
+                            position--;
+                        }
+                        nearest[position] = j;
+                        nearestDistances[position] = distance;
+                    }
+                }
+            }
+            // every point beyond this ring is at least ring cells away
+            if (found == k && nearestDistances[k - 1] <= ring * cellSize)
+                break;
+        }
+        return found;
+    }
+
+    // returns the representative of the group of connected points that point i is in
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    // merges the groups of connected points that i and j are in
+    private static void union(int[] parents, int i, int j) {
+        parents[find(parents, i)] = find(parents, j);
+    }
+
+    // writes one undirected path, with its walking time rounded to a tenth of a second
+    private static void writePath(Writer writer, int from, int to, double seconds) throws IOException {
+        double rounded = Math.max(1.0, Math.round(seconds * 10.0) / 10.0);
+        writer.write("\t\"" + name(from) + "\" -- \"" + name(to) + "\" [seconds=" + rounded + "];\n");
+    }
+
+    /**
+     * Returns the name of a generated building.
+     *
+     * @param index the index of the building, from 0 to the building count - 1
+     * @return the name of the building
+     */
+    public static String name(int index) {
+        return "Building " + index;
+    }
+
+}
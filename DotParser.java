@@ -0,0 +1,591 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class is a single-pass tokenizer and parser for the subset of the DOT
+ * graph language that our maps are written in. It reads bytes straight from a
+ * ByteBuffer (usually a memory-mapped file), and reports every edge it finds
+ * to an EdgeHandler along with the numeric value of one attribute, such as
+ * the seconds attribute that holds each path's walking time.
+ *
+ * The parser accepts:
+ * - a graph or digraph header (optionally strict and named) around a list of
+ *   statements in braces,
+ * - edge statements joining two or more IDs with -- or -> (so a -- b -- c
+ *   adds two edges),
+ * - node statements, attribute statements (graph, node and edge [...]) and
+ *   ID = ID statements,
+ * - any number of attribute lists on a statement, with any attributes,
+ * - IDs that are unquoted names, numerals, or quoted strings in which \" and
+ *   \\ escape a quote and a backslash, and a backslash before a line break
+ *   continues the string on the next line,
+ * - // and C style comments, and lines starting with #.
+ *
+ * Weights are parsed directly from the bytes of the attribute value. Values
+ * with at most 19 significant digits and a small decimal exponent are
+ * converted exactly with a single multiplication or division (the same
+ * result Double.parseDouble gives), and only longer values are handed to
+ * Double.parseDouble. No String is built for attribute names or values.
+ *
+ * Syntax errors are reported as IllegalArgumentExceptions whose message
+ * starts with the line and column where the error was found.
+ */
+public class DotParser {
+
+    /**
+     * An EdgeHandler receives the nodes and edges that a DotParser finds, in
+     * the order they appear in the file.
+     */
+    public interface EdgeHandler {
+
+        /**
+         * Called for every edge in the file.
+         *
+         * @param from     the ID of the node the edge starts at
+         * @param to       the ID of the node the edge ends at
+         * @param weight   the value of the edge's weight attribute
+         * @param directed true for an edge written with ->, and false for --
+         */
+        public void edge(String from, String to, double weight, boolean directed);
+
+        /**
+         * Called for every node statement, which names a node without an edge.
+         *
+         * @param name the ID of the node
+         */
+        public default void node(String name) {
+        }
+    }
+
+    // the exactly representable powers of ten, used by the fast path for weights
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // the largest mantissa that a double holds exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // the bytes being parsed, the position of the next byte, and the end of the input
+    protected final ByteBuffer input;
+    protected int position;
+    protected final int end;
+
+    // the line of the next byte, and the position at which that line starts
+    protected int line = 1;
+    protected int lineStart;
+
+    // the name of the attribute that holds each edge's weight
+    protected final byte[] weightKey;
+
+    // the content of the last ID scanned (without its quotes), and whether it had escapes
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenQuoted;
+    private boolean tokenEscaped;
+
+    /**
+     * Constructor for a DotParser over the remaining bytes of a buffer.
+     *
+     * @param input           the bytes to parse, from its position to its limit
+     * @param weightAttribute the name of the attribute holding each edge's weight
+     */
+    public DotParser(ByteBuffer input, String weightAttribute) {
+        this.input = input;
+        this.position = input.position();
+        this.end = input.limit();
+        this.lineStart = position;
+        this.weightKey = weightAttribute.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Memory-maps a DOT file and parses the graph in it.
+     *
+     * @param file            the path of the DOT file
+     * @param weightAttribute the name of the attribute holding each edge's weight
+     * @param handler         receives every node and edge in the file
+     * @throws FileNotFoundException    if the file doesn't exist
+     * @throws IllegalArgumentException if the file isn't a valid DOT graph
+     * @throws UncheckedIOException     if the file can't be read
+     */
+    public static void parseFile(String file, String weightAttribute, EdgeHandler handler)
+            throws FileNotFoundException {
+        new DotParser(mapFile(file), weightAttribute).parseGraph(handler);
+    }
+
+    /**
+     * Memory-maps a whole file for reading.
+     *
+     * @param file the path of the file
+     * @return a read-only buffer holding the file's bytes
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws UncheckedIOException  if the file can't be read
+     */
+    public static ByteBuffer mapFile(String file) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(file + " (No such file or directory)");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a whole graph: its header, its statements and its closing brace.
+     *
+     * @param handler receives every node and edge in the graph
+     * @throws IllegalArgumentException if the input isn't a valid DOT graph
+     */
+    public void parseGraph(EdgeHandler handler) {
+        parseHeader();
+        parseStatements(handler, true);
+        expect('}');
+        skipSpace();
+        if (position < end)
+            throw error(position, "unexpected input after the end of the graph");
+    }
+
+    /**
+     * Returns the number of lines read so far, counting a last line that
+     * doesn't end with a line break. Once parseGraph returns, this is the
+     * number of lines in the input.
+     *
+     * @return the number of lines read
+     */
+    public int getLineCount() {
+        return position > lineStart ? line : line - 1;
+    }
+
+    /**
+     * Parses the header of a graph, up to and including its opening brace.
+     *
+     * @return the position just after the opening brace
+     * @throws IllegalArgumentException if the input doesn't start with a valid header
+     */
+    public int parseHeader() {
+        skipSpace();
+        scanId();
+        if (isKeyword("strict")) {
+            skipSpace();
+            scanId();
+        }
+        if (!isKeyword("graph") && !isKeyword("digraph"))
+            throw error(tokenStart, "expected 'graph' or 'digraph'");
+        skipSpace();
+        // the graph's name is optional
+        if (position < end && peek() != '{') {
+            scanId();
+            skipSpace();
+        }
+        expect('{');
+        return position;
+    }
+
+    /**
+     * Parses statements until the end of the input, or until a closing brace
+     * when one is expected.
+     *
+     * @param handler    receives every node and edge in the statements
+     * @param untilBrace true to stop before a closing brace
+     * @throws IllegalArgumentException if a statement isn't valid DOT
+     */
+    public void parseStatements(EdgeHandler handler, boolean untilBrace) {
+        while (true) {
+            skipSpace();
+            if (position == end) {
+                if (untilBrace)
+                    throw error(position, "expected '}'");
+                return;
+            }
+            byte next = peek();
+            if (next == '}' && untilBrace)
+                return;
+            if (next == ';') {
+                position++;
+                continue;
+            }
+            parseStatement(handler);
+        }
+    }
+
+    // parses one node, edge, attribute or ID = ID statement
+    private void parseStatement(EdgeHandler handler) {
+        int statementStart = position;
+        scanId();
+        if (isKeyword("subgraph"))
+            throw error(statementStart, "subgraphs are not supported");
+        skipSpace();
+        // graph, node and edge attribute statements only set defaults, which are ignored
+        if (!tokenQuoted && position < end && peek() == '['
+                && (isKeyword("graph") || isKeyword("node") || isKeyword("edge"))) {
+            parseAttributes(statementStart, false);
+            return;
+        }
+        // an ID = ID statement sets a graph attribute, which is ignored
+        if (position < end && peek() == '=') {
+            position++;
+            skipSpace();
+            scanId();
+            return;
+        }
+        if (position < end && peek() == ':')
+            throw error(position, "ports are not supported");
+        String first = tokenString();
+        if (!atEdgeOperator()) {
+            if (position < end && peek() == '[')
+                parseAttributes(statementStart, false);
+            handler.node(first);
+            return;
+        }
+
+        // collect every ID of an edge chain, and whether each edge is directed
+        String[] ids = { first, null, null, null };
+        boolean[] directed = new boolean[4];
+        int count = 1;
+        while (atEdgeOperator()) {
+            boolean arrow = peekAt(position + 1) == '>';
+            position += 2;
+            skipSpace();
+            scanId();
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                directed = Arrays.copyOf(directed, count * 2);
+            }
+            directed[count - 1] = arrow;
+            ids[count++] = tokenString();
+            skipSpace();
+            if (position < end && peek() == ':')
+                throw error(position, "ports are not supported");
+        }
+        double weight = parseAttributes(statementStart, true);
+        for (int i = 0; i + 1 < count; i++)
+            handler.edge(ids[i], ids[i + 1], weight, directed[i]);
+    }
+
+    // checks whether the next bytes are -- or ->
+    private boolean atEdgeOperator() {
+        return position + 1 < end && peek() == '-' && (peekAt(position + 1) == '-' || peekAt(position + 1) == '>');
+    }
+
+    /**
+     * Parses any number of attribute lists, and returns the value of the
+     * weight attribute when it is required.
+     *
+     * @param statementStart the position of the statement, for errors
+     * @param needWeight     true when the statement must have a weight
+     * @return the weight, or NaN when it is not required
+     */
+    private double parseAttributes(int statementStart, boolean needWeight) {
+        double weight = Double.NaN;
+        boolean found = false;
+        while (position < end && peek() == '[') {
+            position++;
+            while (true) {
+                skipSpace();
+                if (position == end)
+                    throw error(position, "expected ']'");
+                if (peek() == ']') {
+                    position++;
+                    break;
+                }
+                scanId();
+                boolean isWeight = tokenMatches(weightKey);
+                skipSpace();
+                if (position < end && peek() == '=') {
+                    position++;
+                    skipSpace();
+                    int valueStart = position;
+                    scanId();
+                    if (isWeight) {
+                        weight = parseNumber(valueStart);
+                        found = true;
+                    }
+                    skipSpace();
+                }
+                if (position < end && (peek() == ',' || peek() == ';'))
+                    position++;
+            }
+            skipSpace();
+        }
+        if (needWeight && !found)
+            throw error(statementStart,
+                    "edge has no " + new String(weightKey, StandardCharsets.UTF_8) + " attribute");
+        return weight;
+    }
+
+    /**
+     * Scans the ID at the current position, recording the range of its
+     * content in tokenStart and tokenEnd.
+     */
+    private void scanId() {
+        if (position == end)
+            throw error(position, "expected an ID");
+        byte first = peek();
+        tokenQuoted = false;
+        tokenEscaped = false;
+        if (first == '"') {
+            tokenQuoted = true;
+            tokenStart = ++position;
+            while (true) {
+                if (position == end)
+                    throw error(tokenStart - 1, "unterminated string");
+                byte next = input.get(position);
+                if (next == '"')
+                    break;
+                if (next == '\\' && position + 1 < end) {
+                    tokenEscaped = true;
+                    position++;
+                    if (input.get(position) == '\n')
+                        newLine(position);
+                } else if (next == '\n') {
+                    newLine(position);
+                }
+                position++;
+            }
+            tokenEnd = position++;
+            return;
+        }
+        tokenStart = position;
+        if (isNameStart(first)) {
+            while (position < end && (isNameStart(peek()) || isDigit(peek())))
+                position++;
+        } else if (isDigit(first) || first == '.' || (first == '-' && position + 1 < end
+                && (isDigit(peekAt(position + 1)) || peekAt(position + 1) == '.'))) {
+            scanNumeral();
+        } else {
+            throw error(position, "expected an ID");
+        }
+        tokenEnd = position;
+    }
+
+    // scans an unquoted numeral, also accepting an exponent as Double.toString writes it
+    private void scanNumeral() {
+        if (peek() == '-')
+            position++;
+        while (position < end && (isDigit(peek()) || peek() == '.'))
+            position++;
+        if (position < end && (peek() == 'e' || peek() == 'E')) {
+            int exponent = position + 1;
+            if (exponent < end && (peekAt(exponent) == '-' || peekAt(exponent) == '+'))
+                exponent++;
+            if (exponent < end && isDigit(peekAt(exponent))) {
+                position = exponent;
+                while (position < end && isDigit(peek()))
+                    position++;
+            }
+        }
+    }
+
+    /**
+     * Parses the last scanned ID as a number, without building a String for
+     * it unless it has too many digits for the exact fast path.
+     *
+     * @param valueStart the position of the value, for errors
+     * @return the value of the number
+     */
+    protected double parseNumber(int valueStart) {
+        int i = tokenStart;
+        boolean negative = false;
+        if (i < tokenEnd && (input.get(i) == '-' || input.get(i) == '+'))
+            negative = input.get(i++) == '-';
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean seenPoint = false;
+        for (; i < tokenEnd; i++) {
+            byte next = input.get(i);
+            if (next == '.' && !seenPoint) {
+                seenPoint = true;
+                continue;
+            }
+            if (!isDigit(next))
+                break;
+            anyDigits = true;
+            // leading zeros don't count toward the digits that a long can hold
+            if (mantissa != 0 || next != '0') {
+                significantDigits++;
+                if (significantDigits <= 19)
+                    mantissa = mantissa * 10 + (next - '0');
+            }
+            // only the fast path uses the exponent, and it only handles up to 19 digits
+            if (seenPoint)
+                exponent--;
+        }
+        if (!anyDigits)
+            throw error(valueStart, "expected a number");
+        if (i < tokenEnd && (input.get(i) == 'e' || input.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < tokenEnd && (input.get(i) == '-' || input.get(i) == '+'))
+                negativeExponent = input.get(i++) == '-';
+            if (i == tokenEnd)
+                throw error(valueStart, "expected a number");
+            int written = 0;
+            for (; i < tokenEnd && isDigit(input.get(i)); i++)
+                written = Math.min(written * 10 + (input.get(i) - '0'), 100000);
+            exponent += negativeExponent ? -written : written;
+        }
+        if (i != tokenEnd)
+            throw error(valueStart, "expected a number");
+
+        // a mantissa and power of ten that are both exact give a correctly rounded result
+        if (significantDigits <= 19 && mantissa <= MAX_EXACT_MANTISSA
+                && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent]
+                    : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        byte[] digits = new byte[tokenEnd - tokenStart];
+        input.get(tokenStart, digits);
+        return Double.parseDouble(new String(digits, StandardCharsets.ISO_8859_1));
+    }
+
+    // builds the String for the last scanned ID, resolving its escapes
+    private String tokenString() {
+        byte[] bytes = new byte[tokenEnd - tokenStart];
+        input.get(tokenStart, bytes);
+        if (!tokenEscaped)
+            return new String(bytes, StandardCharsets.UTF_8);
+        int length = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\\' && i + 1 < bytes.length) {
+                byte next = bytes[i + 1];
+                if (next == '"' || next == '\\') {
+                    bytes[length++] = next;
+                    i++;
+                    continue;
+                }
+                // a backslash before a line break joins the two lines
+                if (next == '\n') {
+                    i++;
+                    continue;
+                }
+                if (next == '\r' && i + 2 < bytes.length && bytes[i + 2] == '\n') {
+                    i += 2;
+                    continue;
+                }
+            }
+            bytes[length++] = bytes[i];
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // checks whether the last scanned ID holds exactly the provided bytes
+    private boolean tokenMatches(byte[] expected) {
+        if (tokenEscaped || tokenEnd - tokenStart != expected.length)
+            return false;
+        for (int i = 0; i < expected.length; i++)
+            if (input.get(tokenStart + i) != expected[i])
+                return false;
+        return true;
+    }
+
+    // checks whether the last scanned ID is an unquoted keyword, ignoring case like DOT does
+    private boolean isKeyword(String keyword) {
+        if (tokenQuoted || tokenEnd - tokenStart != keyword.length())
+            return false;
+        for (int i = 0; i < keyword.length(); i++)
+            if (Character.toLowerCase((char) input.get(tokenStart + i)) != keyword.charAt(i))
+                return false;
+        return true;
+    }
+
+    // skips whitespace and comments, keeping track of line breaks
+    private void skipSpace() {
+        while (position < end) {
+            byte next = peek();
+            if (next == '\n') {
+                newLine(position);
+                position++;
+            } else if (next == ' ' || next == '\t' || next == '\r' || next == '\f') {
+                position++;
+            } else if (next == '#' && position == lineStart) {
+                skipLine();
+            } else if (next == '/' && position + 1 < end && peekAt(position + 1) == '/') {
+                skipLine();
+            } else if (next == '/' && position + 1 < end && peekAt(position + 1) == '*') {
+                int commentStart = position;
+                position += 2;
+                while (!(position + 1 < end && peek() == '*' && peekAt(position + 1) == '/')) {
+                    if (position >= end)
+                        throw error(commentStart, "unterminated comment");
+                    if (peek() == '\n')
+                        newLine(position);
+                    position++;
+                }
+                position += 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // skips to the line break at the end of the current line
+    private void skipLine() {
+        while (position < end && peek() != '\n')
+            position++;
+    }
+
+    // records a line break at the provided position
+    private void newLine(int breakPosition) {
+        line++;
+        lineStart = breakPosition + 1;
+    }
+
+    // skips any whitespace, and then consumes the expected byte
+    private void expect(char expected) {
+        skipSpace();
+        if (position == end || peek() != expected)
+            throw error(position, "expected '" + expected + "'");
+        position++;
+    }
+
+    private byte peek() {
+        return input.get(position);
+    }
+
+    private byte peekAt(int index) {
+        return input.get(index);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // letters, underscores and every byte of a multi-byte UTF-8 character may start a name
+    private static boolean isNameStart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b < 0;
+    }
+
+    /**
+     * Builds the exception for a syntax error at a position on the current
+     * line (or on an earlier line, for errors about a whole statement).
+     *
+     * @param errorPosition the position of the error
+     * @param message       what is wrong there
+     * @return an IllegalArgumentException naming the line and column
+     */
+    protected IllegalArgumentException error(int errorPosition, String message) {
+        // count the lines back from the current one when the error is before its start
+        int errorLine = line;
+        int errorLineStart = lineStart;
+        while (errorPosition < errorLineStart && errorLineStart > input.position()) {
+            errorLine--;
+            errorLineStart--;
+            while (errorLineStart > input.position() && input.get(errorLineStart - 1) != '\n')
+                errorLineStart--;
+        }
+        return new IllegalArgumentException("line " + errorLine + ", column " + (errorPosition - errorLineStart + 1)
+                + ": " + message);
+    }
+
+}
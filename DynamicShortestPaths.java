@@ -0,0 +1,439 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class keeps the shortest path trees from a few origin nodes up to
+ * date while the weights of a graph's edges change. Changes are applied in
+ * batches: any number of weight increases and decreases, new edges, removed
+ * edges and closed nodes (whose edges are all removed) at once. Instead of
+ * searching every tree again from scratch, each tree is repaired in the
+ * style of Ramalingam and Reps' dynamic single-source shortest paths:
+ *
+ * 1. Every node whose tree path ran through an edge that got more expensive
+ *    or was removed (the subtrees hanging off those edges) loses its cost.
+ * 2. Each of those nodes gets the cheapest cost it can reach through an edge
+ *    from a node outside those subtrees, and every edge that got cheaper or
+ *    was inserted offers its head a cheaper cost.
+ * 3. A Dijkstra search that starts from all of those offers at once, and
+ *    only ever lowers costs, spreads them to every node they improve.
+ *
+ * So a batch only touches the nodes whose shortest paths actually change,
+ * along with their neighbours, which is usually a tiny part of the graph.
+ *
+ * The graph must only be changed through apply while its trees are
+ * maintained, and batches never add or remove nodes, so that the trees can
+ * be indexed by node id.
+ *
+ * @param NodeType is the data type stored at each graph node
+ * @param EdgeType is the data type stored at each graph edge as a Number
+ *                 whose doubleValue() is the edge's cost
+ */
+public class DynamicShortestPaths<NodeType, EdgeType extends Number> {
+
+    /**
+     * A list of changes to the edges of a graph, which are applied in the
+     * order they were added.
+     */
+    public static class Batch<NodeType, EdgeType extends Number> {
+
+        // the kinds of change a batch holds
+        protected enum Kind {
+            SET_WEIGHT, REMOVE_EDGE, CLOSE_NODE
+        }
+
+        // one change, where a node closure only uses from, and a removal has no weight
+        protected record Update<NodeType, EdgeType>(Kind kind, NodeType from, NodeType to, EdgeType weight) {
+        }
+
+        protected final List<Update<NodeType, EdgeType>> updates = new ArrayList<>();
+
+        /**
+         * Sets the weight of an edge, inserting the edge when it isn't in the
+         * graph yet.
+         *
+         * @param from   the data item in the edge's predecessor node
+         * @param to     the data item in the edge's successor node
+         * @param weight the new weight of the edge
+         * @return this batch
+         * @throws NullPointerException     if from, to or weight is null
+         * @throws IllegalArgumentException if weight is negative or NaN
+         */
+        public Batch<NodeType, EdgeType> setWeight(NodeType from, NodeType to, EdgeType weight) {
+            if (from == null || to == null || weight == null)
+                throw new NullPointerException("null nodes and weights not allowed");
+            if (!(weight.doubleValue() >= 0.0))
+                throw new IllegalArgumentException("weights must not be negative or NaN");
+            updates.add(new Update<>(Kind.SET_WEIGHT, from, to, weight));
+            return this;
+        }
+
+        /**
+         * Removes an edge, which is ignored when the graph has no such edge.
+         *
+         * @param from the data item in the edge's predecessor node
+         * @param to   the data item in the edge's successor node
+         * @return this batch
+         * @throws NullPointerException if from or to is null
+         */
+        public Batch<NodeType, EdgeType> removeEdge(NodeType from, NodeType to) {
+            if (from == null || to == null)
+                throw new NullPointerException("null nodes not allowed");
+            updates.add(new Update<>(Kind.REMOVE_EDGE, from, to, null));
+            return this;
+        }
+
+        /**
+         * Closes a node by removing every edge that leaves or enters it. The
+         * node stays in the graph, so edges to it can be inserted again later.
+         *
+         * @param node the data item in the node to close
+         * @return this batch
+         * @throws NullPointerException if node is null
+         */
+        public Batch<NodeType, EdgeType> closeNode(NodeType node) {
+            if (node == null)
+                throw new NullPointerException("null nodes not allowed");
+            updates.add(new Update<>(Kind.CLOSE_NODE, node, null, null));
+            return this;
+        }
+
+        /**
+         * Returns a copy of this batch in which every change to an edge is
+         * made to the edge in the opposite direction as well, for graphs
+         * whose edges stand for paths that can be walked both ways.
+         *
+         * @return the new batch
+         */
+        public Batch<NodeType, EdgeType> bothDirections() {
+            Batch<NodeType, EdgeType> batch = new Batch<>();
+            for (Update<NodeType, EdgeType> update : updates) {
+                batch.updates.add(update);
+                if (update.kind() != Kind.CLOSE_NODE)
+                    batch.updates.add(new Update<>(update.kind(), update.to(), update.from(), update.weight()));
+            }
+            return batch;
+        }
+
+        /**
+         * Returns the number of changes in this batch.
+         *
+         * @return the number of changes
+         */
+        public int size() {
+            return updates.size();
+        }
+    }
+
+    /**
+     * What applying a batch did: the number of edges whose weight changed
+     * (counting inserted and removed edges), the change in the sum of all
+     * edge weights, and the number of times a node's cost was recomputed,
+     * summed over every tree.
+     */
+    public record Result(int edgesChanged, double weightChange, int nodesRepaired) {
+    }
+
+    /**
+     * The shortest path tree from one origin: the cost of each node's
+     * shortest path and the id of its predecessor on it, indexed by node id
+     * (+infinity and -1 for unreachable nodes, and -1 as the origin's
+     * predecessor).
+     */
+    protected class Tree {
+        protected final BaseGraph<NodeType, EdgeType>.Node origin;
+        protected final double[] distances;
+        protected final int[] predecessors;
+        protected int reachedCount = 0;
+
+        protected Tree(BaseGraph<NodeType, EdgeType>.Node origin) {
+            this.origin = origin;
+            this.distances = new double[nodesById.length];
+            this.predecessors = new int[nodesById.length];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            Arrays.fill(predecessors, -1);
+        }
+    }
+
+    // a frozen copy of a tree, whose nodes are only sorted by cost when that order is asked for
+    private static class FrozenTree<NodeType> extends ShortestPathTree<NodeType> {
+        private FrozenTree(NodeType source, NodeType[] nodeData, double[] distances, int[] predecessors,
+                int reachedCount, ToIntFunction<NodeType> ids) {
+            super(source, nodeData, distances, predecessors, null, reachedCount, ids);
+        }
+
+        @Override
+        public synchronized List<NodeType> getReachedNodes() {
+            if (settleOrder == null) {
+                Integer[] order = new Integer[reachedCount];
+                int count = 0;
+                for (int id = 0; id < nodeData.length; id++)
+                    if (nodeData[id] != null)
+                        order[count++] = id;
+                Arrays.sort(order, Comparator.comparingDouble(id -> distances[id]));
+                settleOrder = new int[reachedCount];
+                for (int i = 0; i < reachedCount; i++)
+                    settleOrder[i] = order[i];
+            }
+            return super.getReachedNodes();
+        }
+    }
+
+    protected final DijkstraGraph<NodeType, EdgeType> graph;
+    // every node of the graph by id, with null for the ids of nodes removed before this was made
+    protected final BaseGraph<NodeType, EdgeType>.Node[] nodesById;
+    // the maintained trees, in the order their origins were added
+    protected final LinkedHashMap<NodeType, Tree> trees = new LinkedHashMap<>();
+
+    // the work space of repairs: the generation that marked each node, and the heap of offers
+    private final int[] marks;
+    private int generation = 0;
+    private final IndexedMinHeap queue;
+
+    /**
+     * Constructor that maintains trees over a graph, which must only be
+     * changed through apply from now on.
+     *
+     * @param graph the graph to find shortest paths in
+     */
+    public DynamicShortestPaths(DijkstraGraph<NodeType, EdgeType> graph) {
+        this.graph = graph;
+        this.nodesById = graph.newNodeArray(graph.nextNodeId);
+        for (NodeType data : graph.nodes.getKeys()) {
+            BaseGraph<NodeType, EdgeType>.Node node = graph.nodes.get(data);
+            nodesById[node.id] = node;
+        }
+        this.marks = new int[nodesById.length];
+        this.queue = new IndexedMinHeap(Math.max(1, nodesById.length));
+    }
+
+    /**
+     * Returns the graph whose shortest paths are maintained, which must not
+     * be changed except through apply.
+     *
+     * @return the graph
+     */
+    public DijkstraGraph<NodeType, EdgeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Starts maintaining the shortest path tree from an origin, which is
+     * found with one full search. Adding an origin twice has no effect.
+     *
+     * @param origin the data item in the node every path of the tree starts at
+     * @throws NoSuchElementException if origin is not stored in a graph node
+     */
+    public void addOrigin(NodeType origin) {
+        if (!graph.containsNode(origin))
+            throw new NoSuchElementException("no path found between these nodes");
+        if (trees.containsKey(origin))
+            return;
+        Tree tree = new Tree(graph.nodes.get(origin));
+        tree.distances[tree.origin.id] = 0.0;
+        tree.reachedCount = 1;
+        queue.clear();
+        queue.insert(tree.origin.id, 0.0);
+        propagate(tree);
+        trees.put(origin, tree);
+    }
+
+    /**
+     * Stops maintaining the tree from an origin.
+     *
+     * @param origin the origin of the tree
+     * @return true if the tree was maintained, or false otherwise
+     */
+    public boolean removeOrigin(NodeType origin) {
+        return trees.remove(origin) != null;
+    }
+
+    /**
+     * Returns the origins of the maintained trees, in the order they were
+     * added.
+     *
+     * @return a new list of the origins
+     */
+    public List<NodeType> getOrigins() {
+        return new ArrayList<>(trees.keySet());
+    }
+
+    /**
+     * Returns a copy of the tree from an origin, which later batches don't
+     * change.
+     *
+     * @param origin the origin of the tree
+     * @return the shortest paths from origin
+     * @throws NoSuchElementException if no tree from origin is maintained
+     */
+    @SuppressWarnings("unchecked")
+    public ShortestPathTree<NodeType> getTree(NodeType origin) {
+        Tree tree = trees.get(origin);
+        if (tree == null)
+            throw new NoSuchElementException("no tree from " + origin + " is maintained");
+        NodeType[] nodeData = (NodeType[]) new Object[nodesById.length];
+        for (int id = 0; id < nodesById.length; id++)
+            if (tree.distances[id] != Double.POSITIVE_INFINITY)
+                nodeData[id] = nodesById[id].data;
+        // the node set never changes, so looking ids up in the graph stays safe from any thread
+        return new FrozenTree<>(origin, nodeData, tree.distances.clone(), tree.predecessors.clone(),
+                tree.reachedCount, node -> graph.nodes.containsKey(node) ? graph.nodes.get(node).id : -1);
+    }
+
+    /**
+     * Applies a batch of changes to the graph, and repairs every maintained
+     * tree. Every node named by the batch is checked before anything is
+     * changed, so a batch is either applied completely or not at all.
+     *
+     * @param batch the changes to apply
+     * @return what the batch changed, and how much repair work it took
+     * @throws NoSuchElementException if the batch names a node that is not in
+     *                                the graph
+     */
+    public Result apply(Batch<NodeType, EdgeType> batch) {
+        for (Batch.Update<NodeType, EdgeType> update : batch.updates) {
+            if (!graph.containsNode(update.from()) || (update.to() != null && !graph.containsNode(update.to())))
+                throw new NoSuchElementException("no node " + (graph.containsNode(update.from()) ? update.to()
+                        : update.from()) + " in graph");
+        }
+
+        // change the graph, remembering the edges that got worse and the ones that got better
+        List<BaseGraph<NodeType, EdgeType>.Node[]> worse = new ArrayList<>();
+        List<BaseGraph<NodeType, EdgeType>.Edge> better = new ArrayList<>();
+        int edgesChanged = 0;
+        double weightChange = 0.0;
+        for (Batch.Update<NodeType, EdgeType> update : batch.updates) {
+            BaseGraph<NodeType, EdgeType>.Node from = graph.nodes.get(update.from());
+            List<BaseGraph<NodeType, EdgeType>.Edge> removed = new ArrayList<>();
+            if (update.kind() == Batch.Kind.SET_WEIGHT) {
+                BaseGraph<NodeType, EdgeType>.Edge edge = graph.findEdge(from, update.to());
+                double weight = update.weight().doubleValue();
+                double oldWeight = edge == null ? Double.POSITIVE_INFINITY : edge.data.doubleValue();
+                if (weight == oldWeight)
+                    continue;
+                graph.insertEdge(update.from(), update.to(), update.weight());
+                edge = graph.findEdge(from, update.to());
+                if (weight > oldWeight)
+                    worse.add(endsOf(edge));
+                else
+                    better.add(edge);
+                edgesChanged++;
+                weightChange += oldWeight == Double.POSITIVE_INFINITY ? weight : weight - oldWeight;
+            } else if (update.kind() == Batch.Kind.REMOVE_EDGE) {
+                BaseGraph<NodeType, EdgeType>.Edge edge = graph.findEdge(from, update.to());
+                if (edge != null)
+                    removed.add(edge);
+            } else {
+                removed.addAll(from.edgesLeaving);
+                removed.addAll(from.edgesEntering);
+            }
+            for (BaseGraph<NodeType, EdgeType>.Edge edge : removed) {
+                worse.add(endsOf(edge));
+                graph.removeEdgeHelper(edge);
+                edgesChanged++;
+                weightChange -= edge.data.doubleValue();
+            }
+        }
+
+        int nodesRepaired = 0;
+        for (Tree tree : trees.values())
+            nodesRepaired += repair(tree, worse, better);
+        return new Result(edgesChanged, weightChange, nodesRepaired);
+    }
+
+    // returns the predecessor and successor of an edge
+    private BaseGraph<NodeType, EdgeType>.Node[] endsOf(BaseGraph<NodeType, EdgeType>.Edge edge) {
+        BaseGraph<NodeType, EdgeType>.Node[] ends = graph.newNodeArray(2);
+        ends[0] = edge.predecessor;
+        ends[1] = edge.successor;
+        return ends;
+    }
+
+    /*
+     * Repairs one tree after the edges in worse got more expensive or were removed, and the
+     * edges in better got cheaper or were inserted. Returns the number of times a node's cost
+     * was recomputed.
+     */
+    private int repair(Tree tree, List<BaseGraph<NodeType, EdgeType>.Node[]> worse,
+            List<BaseGraph<NodeType, EdgeType>.Edge> better) {
+        double[] distances = tree.distances;
+        int[] predecessors = tree.predecessors;
+        if (++generation == 0) {
+            Arrays.fill(marks, 0);
+            generation = 1;
+        }
+
+        // mark the subtrees below every tree edge that got worse, and forget their costs
+        List<BaseGraph<NodeType, EdgeType>.Node> affected = new ArrayList<>();
+        for (BaseGraph<NodeType, EdgeType>.Node[] ends : worse) {
+            BaseGraph<NodeType, EdgeType>.Node root = ends[1];
+            if (predecessors[root.id] != ends[0].id || marks[root.id] == generation)
+                continue;
+            marks[root.id] = generation;
+            int first = affected.size();
+            affected.add(root);
+            // a node's children are the successors whose predecessor it is
+            for (int i = first; i < affected.size(); i++)
+                for (BaseGraph<NodeType, EdgeType>.Edge edge : affected.get(i).edgesLeaving) {
+                    BaseGraph<NodeType, EdgeType>.Node child = edge.successor;
+                    if (predecessors[child.id] == affected.get(i).id && marks[child.id] != generation) {
+                        marks[child.id] = generation;
+                        affected.add(child);
+                    }
+                }
+        }
+        for (BaseGraph<NodeType, EdgeType>.Node node : affected) {
+            distances[node.id] = Double.POSITIVE_INFINITY;
+            predecessors[node.id] = -1;
+            tree.reachedCount--;
+        }
+
+        // offer each marked node its cheapest edge from an unmarked node, and each better edge its head
+        queue.clear();
+        for (BaseGraph<NodeType, EdgeType>.Node node : affected) {
+            for (BaseGraph<NodeType, EdgeType>.Edge edge : node.edgesEntering) {
+                BaseGraph<NodeType, EdgeType>.Node pred = edge.predecessor;
+                if (marks[pred.id] != generation)
+                    offer(tree, pred, node, distances[pred.id] + edge.data.doubleValue());
+            }
+        }
+        for (BaseGraph<NodeType, EdgeType>.Edge edge : better) {
+            // an edge that was removed later in the batch no longer offers anything
+            if (edge.predecessor.edgesLeaving.contains(edge))
+                offer(tree, edge.predecessor, edge.successor,
+                        distances[edge.predecessor.id] + edge.data.doubleValue());
+        }
+        return affected.size() + propagate(tree);
+    }
+
+    // lowers the cost of node to cost through pred when that is cheaper, and queues node
+    private void offer(Tree tree, BaseGraph<NodeType, EdgeType>.Node pred, BaseGraph<NodeType, EdgeType>.Node node,
+            double cost) {
+        if (!(cost < tree.distances[node.id]))
+            return;
+        if (tree.distances[node.id] == Double.POSITIVE_INFINITY)
+            tree.reachedCount++;
+        tree.distances[node.id] = cost;
+        tree.predecessors[node.id] = pred.id;
+        queue.insertOrDecrease(node.id, cost);
+    }
+
+    // settles the queued nodes in order of cost, lowering the costs of their successors,
+    // and returns the number of nodes settled
+    private int propagate(Tree tree) {
+        int settled = 0;
+        while (!queue.isEmpty()) {
+            BaseGraph<NodeType, EdgeType>.Node current = nodesById[queue.removeMin()];
+            settled++;
+            double cost = tree.distances[current.id];
+            for (BaseGraph<NodeType, EdgeType>.Edge edge : current.edgesLeaving)
+                offer(tree, current, edge.successor, cost + edge.data.doubleValue());
+        }
+        return settled;
+    }
+
+}
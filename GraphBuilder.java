@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This GraphBuilder collects the nodes and edges of a graph, and then inserts
+ * all of them into a graph at once with BaseGraph.insertEdges, which takes
+ * O(E) expected time and never throws for a new edge.
+ *
+ * When an edge is added more than once, the edge keeps the position of its
+ * first insertion, and the builder's DuplicatePolicy picks its weight.
+ */
+public class GraphBuilder<NodeType, EdgeType extends Number> {
+
+    /**
+     * What happens when the same edge is added more than once, or is already
+     * in the graph that the edges are inserted into.
+     */
+    public enum DuplicatePolicy {
+        // the edge keeps the smallest of its weights
+        KEEP_MINIMUM,
+        // the edge keeps the weight it was added with last, just like insertEdge
+        KEEP_LAST,
+        // building fails with an IllegalArgumentException
+        REJECT
+    }
+
+    protected final DuplicatePolicy policy;
+
+    // the nodes in the order they were first added, and the position of each in that list
+    protected final ArrayList<NodeType> nodeData = new ArrayList<>();
+    protected final HashMap<NodeType, Integer> nodeIndexes = new HashMap<>();
+
+    // the positions of each edge's nodes in nodeData, and each edge's weight
+    protected int[] preds = new int[256];
+    protected int[] succs = new int[256];
+    protected Number[] weights = new Number[256];
+    protected int edgeCount = 0;
+
+    /**
+     * Constructor for an empty GraphBuilder.
+     *
+     * @param policy what happens to edges that are added more than once
+     * @throws NullPointerException if policy is null
+     */
+    public GraphBuilder(DuplicatePolicy policy) {
+        if (policy == null)
+            throw new NullPointerException("duplicate policy must not be null");
+        this.policy = policy;
+    }
+
+    /**
+     * Adds a node, which is ignored when it was already added.
+     *
+     * @param data the data item stored in the node
+     * @return this builder
+     * @throws NullPointerException if data is null
+     */
+    public GraphBuilder<NodeType, EdgeType> addNode(NodeType data) {
+        indexOf(data);
+        return this;
+    }
+
+    /**
+     * Adds a directed edge, along with any of its nodes that weren't added yet.
+     *
+     * @param pred   the data item contained in the edge's predecessor node
+     * @param succ   the data item contained in the edge's successor node
+     * @param weight the data item stored in the edge
+     * @return this builder
+     * @throws NullPointerException if pred, succ or weight is null
+     */
+    public GraphBuilder<NodeType, EdgeType> addEdge(NodeType pred, NodeType succ, EdgeType weight) {
+        if (weight == null)
+            throw new NullPointerException("null weights not allowed");
+        int predIndex = indexOf(pred);
+        int succIndex = indexOf(succ);
+        if (edgeCount == preds.length) {
+            preds = Arrays.copyOf(preds, edgeCount * 2);
+            succs = Arrays.copyOf(succs, edgeCount * 2);
+            weights = Arrays.copyOf(weights, edgeCount * 2);
+        }
+        preds[edgeCount] = predIndex;
+        succs[edgeCount] = succIndex;
+        weights[edgeCount++] = weight;
+        return this;
+    }
+
+    // returns the position of a node in nodeData, adding the node when it's new
+    private int indexOf(NodeType data) {
+        if (data == null)
+            throw new NullPointerException("null nodes not allowed");
+        Integer index = nodeIndexes.get(data);
+        if (index == null) {
+            index = nodeData.size();
+            nodeIndexes.put(data, index);
+            nodeData.add(data);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of distinct nodes added so far.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeData.size();
+    }
+
+    /**
+     * Returns the number of edges added so far, counting repeated edges every
+     * time they were added.
+     *
+     * @return the number of added edges
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Inserts every added node and edge into a graph. The nodes are inserted
+     * in the order they were first added (nodes that are already in the graph
+     * are kept), and the edges are inserted in the order they were added.
+     *
+     * @param graph the graph to insert into, which is usually empty
+     * @return the graph that was passed in
+     * @throws IllegalArgumentException if the policy is REJECT and an edge was
+     *                                  added twice or is already in the graph,
+     *                                  in which case no edges are inserted
+     */
+    public <GraphType extends BaseGraph<NodeType, EdgeType>> GraphType build(GraphType graph) {
+        BaseGraph<NodeType, EdgeType>.Node[] nodes = graph.newNodeArray(nodeData.size());
+        for (int i = 0; i < nodes.length; i++) {
+            NodeType data = nodeData.get(i);
+            graph.insertNode(data);
+            nodes[i] = graph.nodes.get(data);
+        }
+        BaseGraph<NodeType, EdgeType>.Node[] predNodes = graph.newNodeArray(edgeCount);
+        BaseGraph<NodeType, EdgeType>.Node[] succNodes = graph.newNodeArray(edgeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            predNodes[e] = nodes[preds[e]];
+            succNodes[e] = nodes[succs[e]];
+        }
+        // every weight is an EdgeType, and EdgeType[] is erased to Number[]
+        @SuppressWarnings("unchecked")
+        EdgeType[] edgeWeights = (EdgeType[]) Arrays.copyOf(weights, edgeCount);
+        graph.insertEdges(predNodes, succNodes, edgeWeights, edgeCount, policy);
+        return graph;
+    }
+
+}
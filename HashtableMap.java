@@ -0,0 +1,204 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Implements MapADT with an open addressing hash table. Keys are stored in a
+ * single array (along with their hash codes and values, in parallel arrays)
+ * and collisions are resolved with linear probing, so every operation walks
+ * a single run of consecutive slots and calls hashCode only once. Removing a
+ * key shifts the keys after it in its run back into the freed slot, so no
+ * tombstones are left behind and lookups never probe past removed keys.
+ *
+ * The table doubles whenever the number of keys would exceed its capacity
+ * times its load factor. The capacity is always a power of two.
+ */
+public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+    protected static final int DEFAULT_CAPACITY = 16;
+    protected static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    // the key, value and spread hash code of each slot, where empty slots have a null key
+    protected Object[] keys;
+    protected Object[] values;
+    protected int[] hashes;
+    protected int size = 0;
+
+    protected final double loadFactor;
+    // the number of keys at which the table doubles
+    protected int threshold;
+
+    /**
+     * Constructor for an empty map with the default capacity and load factor.
+     */
+    public HashtableMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructor for an empty map with the default load factor.
+     *
+     * @param capacity the number of slots to start with, which is rounded up
+     *                 to a power of two
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public HashtableMap(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructor for an empty map.
+     *
+     * @param capacity   the number of slots to start with, which is rounded
+     *                   up to a power of two
+     * @param loadFactor the largest fraction of the slots that may hold keys
+     *                   before the table doubles, which is more than 0 and
+     *                   less than 1
+     * @throws IllegalArgumentException if capacity is not positive or
+     *                                  loadFactor is out of range
+     */
+    public HashtableMap(int capacity, double loadFactor) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        if (!(loadFactor > 0.0 && loadFactor < 1.0))
+            throw new IllegalArgumentException("load factor must be more than 0 and less than 1");
+        this.loadFactor = loadFactor;
+        allocate(Integer.highestOneBit(capacity * 2 - 1));
+    }
+
+    // replaces the table with an empty one with the provided power of two capacity
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        // keep at least one slot empty, so that every probe ends
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    // spreads the bits of a key's hash code, so that the low bits pick the slot
+    protected static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // returns the slot holding key, or the empty slot that ends its probe sequence
+    private int find(Object key, int hash) {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null && (hashes[slot] != hash || !keys[slot].equals(key)))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    @Override
+    public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        int hash = hash(key);
+        int slot = find(key, hash);
+        if (keys[slot] != null)
+            throw new IllegalArgumentException("key " + key.toString() + " already present in map");
+        if (size + 1 > threshold) {
+            grow();
+            slot = find(key, hash);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        size++;
+    }
+
+    // doubles the table, and reinserts every key
+    private void grow() {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            int slot = oldHashes[i] & mask;
+            while (keys[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    @Override
+    public boolean containsKey(KeyType key) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return keys[find(key, hash(key))] != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType get(KeyType key) throws NoSuchElementException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        int slot = find(key, hash(key));
+        if (keys[slot] == null)
+            throw new NoSuchElementException("key " + key.toString() + " not in map");
+        return (ValueType) values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType remove(KeyType key) throws NoSuchElementException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        int slot = find(key, hash(key));
+        if (keys[slot] == null)
+            throw new NoSuchElementException("key " + key.toString() + " not in map");
+        ValueType value = (ValueType) values[slot];
+        // shift back each later key in the run whose home slot is not after the freed slot
+        int mask = keys.length - 1;
+        int free = slot;
+        for (int next = (slot + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hashes[next] & mask;
+            // the key may move when its home is cyclically outside (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                hashes[free] = hashes[next];
+                free = next;
+            }
+        }
+        keys[free] = null;
+        values[free] = null;
+        size--;
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<KeyType> getKeys() {
+        List<KeyType> list = new ArrayList<>(size);
+        for (Object key : keys)
+            if (key != null)
+                list.add((KeyType) key);
+        return list;
+    }
+
+}
@@ -0,0 +1,266 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is a d-ary min-heap of int ids (from 0 up to its capacity) with
+ * double priorities. Because it tracks the heap position of every id, it
+ * supports decreasing the priority of an id that is already queued. A shortest
+ * path search can therefore keep at most one entry per node in the queue,
+ * instead of adding a new entry every time it finds a cheaper path to a node.
+ *
+ * Ids and priorities are stored in primitive arrays, so no objects are created
+ * when ids are added, updated or removed.
+ */
+public class IndexedMinHeap {
+
+    // the number of children of every heap entry: 2 for a binary heap, 4 for a quaternary heap...
+    protected final int arity;
+
+    // the queued ids and their priorities, both stored in heap order
+    protected int[] heap;
+    protected double[] keys;
+    protected int size = 0;
+
+    // the position of each id within heap, or -1 when that id is not queued
+    protected int[] positions;
+
+    /**
+     * Constructor for a binary IndexedMinHeap.
+     *
+     * @param capacity one more than the largest id that can be queued
+     */
+    public IndexedMinHeap(int capacity) {
+        this(capacity, 2);
+    }
+
+    /**
+     * Constructor for a d-ary IndexedMinHeap.
+     *
+     * @param capacity one more than the largest id that can be queued
+     * @param arity    the number of children of each heap entry (at least 2)
+     * @throws IllegalArgumentException if arity is less than 2 or capacity is negative
+     */
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("heap arity must be at least 2");
+        if (capacity < 0)
+            throw new IllegalArgumentException("heap capacity must not be negative");
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.keys = new double[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Grows this heap so that ids up to capacity-1 can be queued.
+     *
+     * @param capacity one more than the largest id that must be supported
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= positions.length)
+            return;
+        int oldCapacity = positions.length;
+        capacity = Math.max(capacity, oldCapacity + (oldCapacity >> 1));
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Returns the number of ids that this heap can hold.
+     *
+     * @return one more than the largest id that can be queued
+     */
+    public int getCapacity() {
+        return positions.length;
+    }
+
+    /**
+     * Returns the number of ids currently queued.
+     *
+     * @return the number of ids in this heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether no ids are queued.
+     *
+     * @return true if this heap is empty, and false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks whether an id is currently queued.
+     *
+     * @param id the id to check
+     * @return true if id is in this heap, and false otherwise
+     */
+    public boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * Returns the priority of a queued id.
+     *
+     * @param id a queued id
+     * @return the priority of id
+     * @throws NoSuchElementException if id is not queued
+     */
+    public double getKey(int id) {
+        int position = positions[id];
+        if (position < 0)
+            throw new NoSuchElementException("id " + id + " is not in the heap");
+        return keys[position];
+    }
+
+    /**
+     * Adds an id that is not queued yet.
+     *
+     * @param id  the id to add
+     * @param key the priority of id
+     * @throws IllegalArgumentException if id is already queued
+     */
+    public void insert(int id, double key) {
+        if (positions[id] >= 0)
+            throw new IllegalArgumentException("id " + id + " is already in the heap");
+        heap[size] = id;
+        keys[size] = key;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the priority of a queued id.
+     *
+     * @param id  a queued id
+     * @param key the new priority of id, which must not be greater than its current one
+     * @throws NoSuchElementException if id is not queued
+     * @throws IllegalArgumentException if key is greater than the current priority of id
+     */
+    public void decreaseKey(int id, double key) {
+        int position = positions[id];
+        if (position < 0)
+            throw new NoSuchElementException("id " + id + " is not in the heap");
+        if (key > keys[position])
+            throw new IllegalArgumentException("new key is greater than the current key");
+        keys[position] = key;
+        siftUp(position);
+    }
+
+    /**
+     * Adds an id with the provided priority, or lowers the priority of an id
+     * that is already queued when the provided priority is smaller.
+     *
+     * @param id  the id to add or update
+     * @param key the priority of id
+     * @return true if id was added or its priority was lowered, and false if
+     *         id was already queued with a priority no greater than key
+     */
+    public boolean insertOrDecrease(int id, double key) {
+        int position = positions[id];
+        if (position < 0) {
+            insert(id, key);
+            return true;
+        }
+        if (key >= keys[position])
+            return false;
+        keys[position] = key;
+        siftUp(position);
+        return true;
+    }
+
+    /**
+     * Returns the smallest priority in this heap.
+     *
+     * @return the priority of the id that removeMin would return
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public double peekKey() {
+        if (size == 0)
+            throw new NoSuchElementException("heap is empty");
+        return keys[0];
+    }
+
+    /**
+     * Removes the id with the smallest priority from this heap.
+     *
+     * @return the id that had the smallest priority
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public int removeMin() {
+        if (size == 0)
+            throw new NoSuchElementException("heap is empty");
+        int min = heap[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            // move the last entry to the root and let it sink back into place
+            heap[0] = heap[size];
+            keys[0] = keys[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes every queued id. This takes time proportional to the number of
+     * queued ids rather than to the capacity of this heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = -1;
+        size = 0;
+    }
+
+    // moves the entry at position up until its parent's priority is no greater than its own
+    private void siftUp(int position) {
+        int id = heap[position];
+        double key = keys[position];
+        while (position > 0) {
+            int parent = (position - 1) / arity;
+            if (keys[parent] <= key)
+                break;
+            heap[position] = heap[parent];
+            keys[position] = keys[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+
+    // moves the entry at position down until none of its children have a smaller priority
+    private void siftDown(int position) {
+        int id = heap[position];
+        double key = keys[position];
+        while (true) {
+            int firstChild = position * arity + 1;
+            if (firstChild >= size)
+                break;
+            // find the child with the smallest priority
+            int lastChild = Math.min(firstChild + arity, size);
+            int minChild = firstChild;
+            for (int child = firstChild + 1; child < lastChild; child++)
+                if (keys[child] < keys[minChild])
+                    minChild = child;
+            if (keys[minChild] >= key)
+                break;
+            heap[position] = heap[minChild];
+            keys[position] = keys[minChild];
+            positions[heap[position]] = position;
+            position = minChild;
+        }
+        heap[position] = id;
+        keys[position] = key;
+        positions[id] = position;
+    }
+
+}
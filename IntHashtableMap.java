@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Implements MapADT for int keys with an open addressing hash table, just
+ * like HashtableMap, except that the keys are stored in an int array. The
+ * methods that take an int key never box it, so looking up an internal node
+ * id creates no objects; the MapADT methods that take an Integer unbox it and
+ * call those.
+ */
+public class IntHashtableMap<ValueType> implements MapADT<Integer, ValueType> {
+
+    protected static final int DEFAULT_CAPACITY = 16;
+    protected static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    // the key and value of each slot, and whether the slot holds a key
+    protected int[] keys;
+    protected Object[] values;
+    protected boolean[] used;
+    protected int size = 0;
+
+    protected final double loadFactor;
+    // the number of keys at which the table doubles
+    protected int threshold;
+
+    /**
+     * Constructor for an empty map with the default capacity and load factor.
+     */
+    public IntHashtableMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructor for an empty map.
+     *
+     * @param capacity   the number of slots to start with, which is rounded
+     *                   up to a power of two
+     * @param loadFactor the largest fraction of the slots that may hold keys
+     *                   before the table doubles, which is more than 0 and
+     *                   less than 1
+     * @throws IllegalArgumentException if capacity is not positive or
+     *                                  loadFactor is out of range
+     */
+    public IntHashtableMap(int capacity, double loadFactor) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        if (!(loadFactor > 0.0 && loadFactor < 1.0))
+            throw new IllegalArgumentException("load factor must be more than 0 and less than 1");
+        this.loadFactor = loadFactor;
+        allocate(Integer.highestOneBit(capacity * 2 - 1));
+    }
+
+    // replaces the table with an empty one with the provided power of two capacity
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        // keep at least one slot empty, so that every probe ends
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    // spreads the bits of a key, since consecutive ids would otherwise fill runs of slots
+    protected static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // returns the slot holding key, or the empty slot that ends its probe sequence
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Adds a new key,value pair/mapping to this collection.
+     *
+     * @param key   the key of the key,value pair
+     * @param value the value that key maps to
+     * @throws IllegalArgumentException if key already maps to a value
+     */
+    public void put(int key, ValueType value) throws IllegalArgumentException {
+        int slot = find(key);
+        if (used[slot])
+            throw new IllegalArgumentException("key " + key + " already present in map");
+        if (size + 1 > threshold) {
+            grow();
+            slot = find(key);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+    }
+
+    // doubles the table, and reinserts every key
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i])
+                continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            used[slot] = true;
+        }
+    }
+
+    /**
+     * Checks whether a key maps to a value in this collection.
+     *
+     * @param key the key to check
+     * @return true if the key maps to a value, and false otherwise
+     */
+    public boolean containsKey(int key) {
+        return used[find(key)];
+    }
+
+    /**
+     * Retrieves the specific value that a key maps to.
+     *
+     * @param key the key to look up
+     * @return the value that key maps to
+     * @throws NoSuchElementException when key is not stored in this collection
+     */
+    @SuppressWarnings("unchecked")
+    public ValueType get(int key) throws NoSuchElementException {
+        int slot = find(key);
+        if (!used[slot])
+            throw new NoSuchElementException("key " + key + " not in map");
+        return (ValueType) values[slot];
+    }
+
+    /**
+     * Remove the mapping for a key from this collection.
+     *
+     * @param key the key whose mapping to remove
+     * @return the value that the removed key mapped to
+     * @throws NoSuchElementException when key is not stored in this collection
+     */
+    @SuppressWarnings("unchecked")
+    public ValueType remove(int key) throws NoSuchElementException {
+        int slot = find(key);
+        if (!used[slot])
+            throw new NoSuchElementException("key " + key + " not in map");
+        ValueType value = (ValueType) values[slot];
+        // shift back each later key in the run whose home slot is not after the freed slot
+        int mask = keys.length - 1;
+        int free = slot;
+        for (int next = (slot + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // the key may move when its home is cyclically outside (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        used[free] = false;
+        values[free] = null;
+        size--;
+        return value;
+    }
+
+    @Override
+    public void put(Integer key, ValueType value) throws IllegalArgumentException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        put(key.intValue(), value);
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return containsKey(key.intValue());
+    }
+
+    @Override
+    public ValueType get(Integer key) throws NoSuchElementException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return get(key.intValue());
+    }
+
+    @Override
+    public ValueType remove(Integer key) throws NoSuchElementException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        return remove(key.intValue());
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    public List<Integer> getKeys() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++)
+            if (used[i])
+                list.add(keys[i]);
+        return list;
+    }
+
+}
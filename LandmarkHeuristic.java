@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This SearchHeuristic computes lower bounds on path costs from the costs of
+ * the shortest paths to and from a handful of landmark nodes (the ALT
+ * technique: A*, landmarks and the triangle inequality). For a landmark L, a
+ * node v and a target t, the triangle inequality gives both
+ * cost(L, t) - cost(L, v) <= cost(v, t) and cost(v, L) - cost(t, L) <= cost(v, t),
+ * so the largest of these differences over all landmarks is a consistent
+ * estimate of cost(v, t). No coordinates are needed, only the graph itself.
+ *
+ * The costs are computed once, when the heuristic is constructed. They stay
+ * valid while no edge weight is lowered and no edge is added; nodes inserted
+ * after construction are estimated with 0.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class LandmarkHeuristic<NodeType> implements SearchHeuristic<NodeType> {
+
+    // the graph whose nodes are being estimated
+    protected DijkstraGraph<NodeType, ?> graph;
+
+    // the landmarks, and the costs of paths from and to each of them, indexed by node id
+    protected List<NodeType> landmarks;
+    protected double[][] costsFrom;
+    protected double[][] costsTo;
+
+    /**
+     * Constructor that computes the costs of the shortest paths from and to
+     * each of the provided landmarks.
+     *
+     * @param graph     the graph to estimate path costs in
+     * @param landmarks the data items in the landmark nodes
+     * @throws NoSuchElementException if a landmark is not a node of graph
+     */
+    public LandmarkHeuristic(DijkstraGraph<NodeType, ?> graph, List<NodeType> landmarks) {
+        this.graph = graph;
+        this.landmarks = new ArrayList<>(landmarks);
+        this.costsFrom = new double[landmarks.size()][];
+        this.costsTo = new double[landmarks.size()][];
+        for (int i = 0; i < landmarks.size(); i++) {
+            if (!graph.containsNode(landmarks.get(i)))
+                throw new NoSuchElementException("landmark " + landmarks.get(i) + " is not in the graph");
+            costsFrom[i] = graph.computeCostsFrom(landmarks.get(i), true);
+            costsTo[i] = graph.computeCostsFrom(landmarks.get(i), false);
+        }
+    }
+
+    /**
+     * Constructor that picks count landmarks spread out across the graph, and
+     * then computes the costs of the shortest paths from and to each of them.
+     *
+     * @param graph the graph to estimate path costs in
+     * @param count the number of landmarks to use
+     */
+    public LandmarkHeuristic(DijkstraGraph<NodeType, ?> graph, int count) {
+        this(graph, selectLandmarks(graph, count));
+    }
+
+    /**
+     * Picks landmarks that are far away from each other: the first landmark
+     * is the node farthest from an arbitrary node, and each following landmark
+     * is the node whose closest already-picked landmark is farthest away.
+     * Landmarks on the edge of the graph give the tightest bounds.
+     *
+     * @param graph the graph to pick landmarks in
+     * @param count the number of landmarks to pick
+     * @return the data items in the picked landmark nodes
+     */
+    public static <NodeType> List<NodeType> selectLandmarks(DijkstraGraph<NodeType, ?> graph, int count) {
+        List<NodeType> keys = graph.nodes.getKeys();
+        List<NodeType> landmarks = new ArrayList<>();
+        if (keys.isEmpty() || count <= 0)
+            return landmarks;
+        // the cost of reaching each node from its closest landmark so far
+        double[] closest = graph.computeCostsFrom(keys.get(0), true);
+        while (landmarks.size() < Math.min(count, keys.size())) {
+            NodeType farthest = null;
+            double farthestCost = -1.0;
+            for (NodeType key : keys) {
+                double cost = closest[graph.nodes.get(key).id];
+                // unreachable nodes get picked first, since no landmark covers them yet
+                if (cost > farthestCost && !landmarks.contains(key)) {
+                    farthest = key;
+                    farthestCost = cost;
+                }
+            }
+            landmarks.add(farthest);
+            double[] costs = graph.computeCostsFrom(farthest, true);
+            if (landmarks.size() == 1)
+                closest = costs;
+            else
+                for (int i = 0; i < closest.length; i++)
+                    closest[i] = Math.min(closest[i], costs[i]);
+        }
+        return landmarks;
+    }
+
+    /**
+     * Returns the landmarks that this heuristic estimates with.
+     *
+     * @return the data items in the landmark nodes
+     */
+    public List<NodeType> getLandmarks() {
+        return new ArrayList<>(landmarks);
+    }
+
+    /**
+     * Estimates the cost of the shortest path from node to target as the
+     * largest lower bound given by any landmark.
+     *
+     * @param node   the data item in the node the path starts at
+     * @param target the data item in the node the path ends at
+     * @return a consistent lower bound on the cost of that path
+     */
+    @Override
+    public double estimate(NodeType node, NodeType target) {
+        int v = graph.nodes.get(node).id;
+        int t = graph.nodes.get(target).id;
+        double bound = 0.0;
+        for (int i = 0; i < costsFrom.length; i++) {
+            double[] from = costsFrom[i];
+            double[] to = costsTo[i];
+            // skip nodes inserted after the costs were computed
+            if (v >= from.length || t >= from.length)
+                return 0.0;
+            // bounds involving unreachable nodes carry no information
+            if (from[t] != Double.POSITIVE_INFINITY && from[v] != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, from[t] - from[v]);
+            if (to[v] != Double.POSITIVE_INFINITY && to[t] != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, to[v] - to[t]);
+        }
+        return bound;
+    }
+
+}
@@ -0,0 +1,143 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts non-negative values (usually latencies in nanoseconds) in
+ * log-linear buckets, like an HDR histogram: values below 32 each get their
+ * own bucket, and every power of two above that is split into 32 buckets of
+ * equal width. So a percentile is reported within about 3% of the true value,
+ * for any value up to Long.MAX_VALUE, with a fixed 1888 counters.
+ *
+ * Values may be recorded from any number of threads at once. Reading the
+ * percentiles while values are still being recorded is allowed, but then the
+ * counts may not all come from the same moment.
+ */
+public class LatencyHistogram {
+
+    // the number of bits of each value below its highest one bit that pick its bucket
+    protected static final int SUB_BUCKET_BITS = 5;
+    protected static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    protected static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    protected final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    // the totals are striped, so that threads recording at once don't contend on them
+    protected final LongAdder totalCount = new LongAdder();
+    protected final LongAdder totalValue = new LongAdder();
+    protected final LongAccumulator maxValue = new LongAccumulator(Math::max, 0L);
+
+    // returns the bucket that holds value
+    protected static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    // returns the largest value that falls into a bucket
+    protected static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT)
+            return bucket;
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value to record
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("negative values can't be recorded");
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.increment();
+        totalValue.add(value);
+        maxValue.accumulate(value);
+    }
+
+    /**
+     * Adds every value recorded by another histogram to this one.
+     *
+     * @param other the histogram whose values to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0)
+                counts.addAndGet(i, count);
+        }
+        totalCount.add(other.totalCount.sum());
+        totalValue.add(other.totalValue.sum());
+        maxValue.accumulate(other.maxValue.get());
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the largest value recorded, or 0 when none was recorded.
+     *
+     * @return the largest value
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded, or 0 when none was recorded.
+     *
+     * @return the mean value
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0.0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * Returns a value that at least the given percentage of the recorded
+     * values are at most, within the precision of the buckets.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the value at that percentile, or 0 when no value was recorded
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        long count = totalCount.sum();
+        if (count == 0)
+            return 0L;
+        // the rank of the value at the percentile, counting from 1
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestValueIn(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            counts.set(i, 0L);
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.reset();
+    }
+
+}
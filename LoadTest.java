@@ -0,0 +1,248 @@
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class load tests a Backend: it loads a map (usually one written by
+ * DotGenerator), and then replays shortest path queries through
+ * getShortestPath from a number of threads at once. The queries follow a
+ * Zipfian mix over a fixed set of random routes, so that a few popular routes
+ * are asked for over and over while most are rare, just like real traffic.
+ * It reports the throughput and the p50, p99 and p99.9 latencies.
+ *
+ * Run it with: java LoadTest file [threads] [queries] [exponent] [seed] [options]
+ * where the options are --cache=N (an LRU route cache of N routes), --ch
+ * (contraction hierarchy queries) and --parallel-load.
+ */
+public class LoadTest {
+
+    // the number of distinct routes that the queries are drawn from
+    protected static final int ROUTE_COUNT = 10000;
+
+    /**
+     * The outcome of a load test run.
+     */
+    public static class Report {
+        // the latency of every successful query, in nanoseconds
+        public final LatencyHistogram latencies = new LatencyHistogram();
+        // the number of queries between buildings that have no path between them
+        public long failures;
+        // the time from the first query starting to the last one finishing
+        public long elapsedNanos;
+
+        /**
+         * Returns the number of queries answered per second, counting failures.
+         *
+         * @return the throughput
+         */
+        public double getThroughput() {
+            return (latencies.getCount() + failures) / (elapsedNanos / 1e9);
+        }
+    }
+
+    /**
+     * This class draws ranks from 0 to n - 1 where rank r is drawn with a
+     * probability proportional to 1 / (r + 1)^exponent.
+     */
+    public static class ZipfSampler {
+        // cumulative[r] is the probability of drawing a rank of at most r
+        private final double[] cumulative;
+
+        /**
+         * Constructor for a sampler over n ranks.
+         *
+         * @param n        the number of ranks
+         * @param exponent how strongly the low ranks are preferred, where 0
+         *                 draws every rank equally often
+         * @throws IllegalArgumentException if n is not positive or exponent is
+         *                                  negative
+         */
+        public ZipfSampler(int n, double exponent) {
+            if (n <= 0 || !(exponent >= 0.0))
+                throw new IllegalArgumentException("need a positive rank count and a non-negative exponent");
+            cumulative = new double[n];
+            double sum = 0.0;
+            for (int r = 0; r < n; r++)
+                cumulative[r] = sum += 1.0 / Math.pow(r + 1, exponent);
+            for (int r = 0; r < n; r++)
+                cumulative[r] /= sum;
+        }
+
+        /**
+         * Draws a rank.
+         *
+         * @param random the source of randomness
+         * @return the rank drawn
+         */
+        public int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            // binarySearch returns -(insertion point) - 1 for a value that isn't in the array
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+
+    /**
+     * Main method that loads a map and runs one load test on it.
+     *
+     * @param args the map file, and optionally the thread count, query count,
+     *             Zipf exponent, random seed and options
+     * @throws FileNotFoundException if the map file doesn't exist
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        List<String> positional = new ArrayList<>();
+        int cacheSize = 0;
+        boolean contractionHierarchy = false;
+        boolean parallelLoading = false;
+        for (String arg : args) {
+            if (arg.startsWith("--cache="))
+                cacheSize = Integer.parseInt(arg.substring("--cache=".length()));
+            else if (arg.equals("--ch"))
+                contractionHierarchy = true;
+            else if (arg.equals("--parallel-load"))
+                parallelLoading = true;
+            else
+                positional.add(arg);
+        }
+        if (positional.isEmpty()) {
+            System.out.println("usage: java LoadTest file [threads] [queries] [exponent] [seed]"
+                    + " [--cache=N] [--ch] [--parallel-load]");
+            return;
+        }
+        String file = positional.get(0);
+        int threads = positional.size() > 1 ? Integer.parseInt(positional.get(1))
+                : Runtime.getRuntime().availableProcessors();
+        int queryCount = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 10000;
+        double exponent = positional.size() > 3 ? Double.parseDouble(positional.get(3)) : 1.0;
+        long seed = positional.size() > 4 ? Long.parseLong(positional.get(4)) : 21L;
+
+        Backend backend = new Backend();
+        backend.setParallelLoading(parallelLoading);
+        long loadStart = System.nanoTime();
+        backend.readFile(file);
+        if (contractionHierarchy)
+            backend.setContractionHierarchy(true);
+        long loadTime = System.nanoTime() - loadStart;
+        if (cacheSize > 0)
+            backend.setRouteCache(cacheSize, RouteCache.EvictionPolicy.LEAST_RECENTLY_USED);
+        List<String> buildings = readBuildings(file);
+        System.out.printf("loaded %d buildings from %s in %.1f ms%n", buildings.size(), file, loadTime / 1e6);
+
+        // warm up with a tenth of the queries, so that the timed run measures compiled code
+        run(backend, buildings, threads, Math.max(1, queryCount / 10), exponent, seed + 1);
+        Report report = run(backend, buildings, threads, queryCount, exponent, seed);
+        LatencyHistogram latencies = report.latencies;
+        System.out.printf("threads %d, queries %d, zipf exponent %.2f over %d routes, %d without a path%n",
+                threads, queryCount, exponent, Math.min(ROUTE_COUNT, queryCount), report.failures);
+        System.out.printf("throughput %.1f queries/s%n", report.getThroughput());
+        System.out.printf("latency (us): mean %.1f  p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                latencies.getMean() / 1e3, latencies.getValueAtPercentile(50) / 1e3,
+                latencies.getValueAtPercentile(99) / 1e3, latencies.getValueAtPercentile(99.9) / 1e3,
+                latencies.getMax() / 1e3);
+    }
+
+    /**
+     * Returns the names of the buildings in a map file, in the order they
+     * first appear.
+     *
+     * @param file the path of the map file
+     * @return the building names
+     * @throws FileNotFoundException    if the file doesn't exist
+     * @throws IllegalArgumentException if the file isn't valid DOT
+     */
+    public static List<String> readBuildings(String file) throws FileNotFoundException {
+        LinkedHashSet<String> buildings = new LinkedHashSet<>();
+        DotParser.parseFile(file, "seconds", new DotParser.EdgeHandler() {
+            @Override
+            public void edge(String from, String to, double weight, boolean directed) {
+                buildings.add(from);
+                buildings.add(to);
+            }
+
+            @Override
+            public void node(String name) {
+                buildings.add(name);
+            }
+        });
+        return new ArrayList<>(buildings);
+    }
+
+    /**
+     * Runs queries through a backend from a number of threads, each thread
+     * running its share of the queries one after another. The routes are
+     * picked at random (with the seed) from the buildings, and each query asks
+     * for one of them, with the routes ranked by a Zipfian distribution.
+     *
+     * @param backend    the backend to query, which has a map loaded
+     * @param buildings  the buildings to make routes between, at least two
+     * @param threads    the number of threads to query from
+     * @param queryCount the total number of queries
+     * @param exponent   the exponent of the Zipfian distribution
+     * @param seed       the seed of the routes and the query mix
+     * @return the latencies, failures and elapsed time of the queries
+     * @throws IllegalArgumentException if there are fewer than two buildings,
+     *                                  or threads or queryCount is not positive
+     */
+    public static Report run(Backend backend, List<String> buildings, int threads, int queryCount,
+            double exponent, long seed) {
+        if (buildings.size() < 2 || threads <= 0 || queryCount <= 0)
+            throw new IllegalArgumentException("need two buildings, a thread and a query");
+        Random random = new Random(seed);
+        int routeCount = Math.min(ROUTE_COUNT, queryCount);
+        String[] starts = new String[routeCount];
+        String[] destinations = new String[routeCount];
+        for (int r = 0; r < routeCount; r++) {
+            int start = random.nextInt(buildings.size());
+            // pick a different building as the destination
+            int destination = (start + 1 + random.nextInt(buildings.size() - 1)) % buildings.size();
+            starts[r] = buildings.get(start);
+            destinations[r] = buildings.get(destination);
+        }
+        ZipfSampler sampler = new ZipfSampler(routeCount, exponent);
+
+        Report report = new Report();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                // spread the queries that don't divide evenly over the first threads
+                int share = queryCount / threads + (t < queryCount % threads ? 1 : 0);
+                Random threadRandom = new Random(seed * 31 + t);
+                futures.add(executor.submit(() -> {
+                    long failures = 0;
+                    for (int q = 0; q < share; q++) {
+                        int route = sampler.next(threadRandom);
+                        long queryStart = System.nanoTime();
+                        try {
+                            backend.getShortestPath(starts[route], destinations[route]);
+                            report.latencies.record(System.nanoTime() - queryStart);
+                        } catch (NoSuchElementException e) {
+                            failures++;
+                        }
+                    }
+                    return failures;
+                }));
+            }
+            for (Future<Long> future : futures)
+                report.failures += future.get();
+            report.elapsedNanos = System.nanoTime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the queries", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a query failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return report;
+    }
+
+}
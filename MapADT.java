@@ -1,3 +1,4 @@
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -58,4 +59,11 @@ public interface MapADT<KeyType, ValueType> {
      */
     public int getCapacity();
 
+    /**
+     * Retrieves all of the keys stored in this collection.
+     * @return a new list containing every key in this collection, in no
+     *         particular order
+     */
+    public List<KeyType> getKeys();
+
 }
\ No newline at end of file
@@ -0,0 +1,591 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class is a read-only graph with String nodes and Double weights that
+ * is served straight from a memory-mapped snapshot file. Opening a snapshot
+ * only maps the file and checks its header, so it takes the same (short)
+ * time for any size of graph, and the operating system pages the parts of
+ * the file in as queries touch them. Snapshots are written by write, from a
+ * DijkstraGraph.
+ *
+ * A snapshot file holds, in little-endian byte order:
+ * - a header with the magic number, the format version, the node, edge and
+ *   landmark counts, the size of the name index, the total weight and
+ *   whether any edge has no reverse edge (its flags),
+ * - the nodes' names (interned, as UTF-8), with an open addressing hash
+ *   index from the hash of each name to its node id,
+ * - the edges in compressed sparse row (CSR) form, just like a CompactGraph,
+ * - optionally, the costs of the shortest paths from and to a number of
+ *   landmark nodes, which searches use as A* bounds (see LandmarkHeuristic).
+ * Every section starts at a multiple of 8 bytes.
+ *
+ * Since nothing is modified once the file is mapped, queries may run
+ * concurrently from any number of threads. Each search keeps its distances,
+ * predecessors and queue in a workspace from a shared pool, which later
+ * searches reuse. All of the GraphADT mutators throw an
+ * UnsupportedOperationException.
+ */
+public class MappedGraph implements GraphADT<String, Double> {
+
+    // the first four bytes of every snapshot, and the version of the format written here
+    protected static final int MAGIC = 0x48505247; // "GRPH" in little-endian order
+    protected static final int FORMAT_VERSION = 1;
+    protected static final int HEADER_SIZE = 64;
+    // the flag set in the header of a graph whose edges can't all be followed in reverse
+    protected static final int DIRECTED_FLAG = 1;
+
+    /**
+     * The number of landmarks stored in a snapshot when none is requested.
+     */
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    protected final int nodeCount;
+    protected final int edgeCount;
+    protected final int landmarkCount;
+    protected final double totalWeight;
+    protected final boolean directed;
+
+    // the hash index of the names: slot i holds one more than the id of a node, or 0 when empty
+    protected final int indexMask;
+    protected final IntBuffer nameIndex;
+    // the hash of each node's name, and the position of each name within nameBytes
+    protected final IntBuffer nameHashes;
+    protected final IntBuffer nameOffsets;
+    protected final ByteBuffer nameBytes;
+
+    // the CSR adjacency arrays
+    protected final IntBuffer offsets;
+    protected final IntBuffer targets;
+    protected final DoubleBuffer weights;
+
+    // the landmark costs, stored landmark by landmark: costsFrom[l * nodeCount + v] is the
+    // cost of the shortest path from landmark l to node v, and costsTo the one back
+    protected final DoubleBuffer costsFrom;
+    protected final DoubleBuffer costsTo;
+
+    /**
+     * Constructor that wraps the sections of a snapshot held in a buffer.
+     *
+     * @param buffer the bytes of a snapshot file, starting at position 0
+     * @throws IllegalArgumentException if the buffer doesn't hold a snapshot
+     *                                  in a format version this class reads
+     */
+    public MappedGraph(ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (input.limit() < HEADER_SIZE || input.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("not a graph snapshot");
+        if (input.getInt(4) != FORMAT_VERSION)
+            throw new IllegalArgumentException("unsupported graph snapshot version " + input.getInt(4));
+        this.nodeCount = input.getInt(8);
+        this.edgeCount = input.getInt(12);
+        this.landmarkCount = input.getInt(16);
+        int indexSize = input.getInt(20);
+        this.totalWeight = input.getDouble(24);
+        int nameLength = input.getInt(32);
+        // snapshots written before the flags were added have zeros there, and were all undirected
+        this.directed = (input.getInt(36) & DIRECTED_FLAG) != 0;
+        long size = fileSize(nodeCount, edgeCount, landmarkCount, indexSize, nameLength);
+        if (nodeCount < 0 || edgeCount < 0 || landmarkCount < 0 || Integer.bitCount(indexSize) != 1
+                || nameLength < 0 || size != input.limit())
+            throw new IllegalArgumentException("graph snapshot is truncated or corrupt");
+        this.indexMask = indexSize - 1;
+
+        long position = HEADER_SIZE;
+        this.nameIndex = slice(input, position, indexSize * 4L).asIntBuffer();
+        position += align(indexSize * 4L);
+        this.nameHashes = slice(input, position, nodeCount * 4L).asIntBuffer();
+        position += align(nodeCount * 4L);
+        this.nameOffsets = slice(input, position, (nodeCount + 1) * 4L).asIntBuffer();
+        position += align((nodeCount + 1) * 4L);
+        this.offsets = slice(input, position, (nodeCount + 1) * 4L).asIntBuffer();
+        position += align((nodeCount + 1) * 4L);
+        this.targets = slice(input, position, edgeCount * 4L).asIntBuffer();
+        position += align(edgeCount * 4L);
+        this.weights = slice(input, position, edgeCount * 8L).asDoubleBuffer();
+        position += edgeCount * 8L;
+        this.costsFrom = slice(input, position, (long) landmarkCount * nodeCount * 8).asDoubleBuffer();
+        position += (long) landmarkCount * nodeCount * 8;
+        this.costsTo = slice(input, position, (long) landmarkCount * nodeCount * 8).asDoubleBuffer();
+        position += (long) landmarkCount * nodeCount * 8;
+        this.nameBytes = slice(input, position, nameLength);
+    }
+
+    // returns a little-endian view of length bytes of input, starting at position
+    private static ByteBuffer slice(ByteBuffer input, long position, long length) {
+        if (position < 0 || length < 0 || position + length > input.limit())
+            throw new IllegalArgumentException("graph snapshot is truncated or corrupt");
+        return input.slice((int) position, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // rounds a section length up to a multiple of 8 bytes
+    private static long align(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    // returns the size of a snapshot file with the provided counts
+    private static long fileSize(int nodeCount, int edgeCount, int landmarkCount, int indexSize, int nameLength) {
+        return HEADER_SIZE + align(indexSize * 4L) + align(nodeCount * 4L) + 2 * align((nodeCount + 1) * 4L)
+                + align(edgeCount * 4L) + edgeCount * 8L + 2L * landmarkCount * nodeCount * 8 + nameLength;
+    }
+
+    // spreads the bits of a name's hash code, so that the low bits pick the index slot
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Memory-maps a snapshot file.
+     *
+     * @param file the path of the snapshot file
+     * @return a graph served from the mapped file
+     * @throws FileNotFoundException    if the file doesn't exist
+     * @throws IllegalArgumentException if the file isn't a snapshot in a
+     *                                  format version this class reads
+     * @throws UncheckedIOException     if the file can't be read
+     */
+    public static MappedGraph open(String file) throws FileNotFoundException {
+        return new MappedGraph(DotParser.mapFile(file));
+    }
+
+    /**
+     * Writes a snapshot of a graph, along with the costs of the shortest paths
+     * from and to landmarks picked by LandmarkHeuristic.selectLandmarks. The
+     * snapshot is written to a temporary file that then replaces file, so a
+     * snapshot that is mapped by another graph is never partly overwritten.
+     *
+     * @param graph         the graph to write
+     * @param totalWeight   the total weight to store with the graph
+     * @param directed      true if some edges of the graph can only be
+     *                      followed in their own direction
+     * @param landmarkCount the number of landmarks to store, or 0 for none
+     * @param file          the path of the snapshot file
+     * @throws UncheckedIOException if the file can't be written
+     */
+    public static void write(DijkstraGraph<String, Double> graph, double totalWeight, boolean directed,
+            int landmarkCount, String file) {
+        CompactGraph<String> compact = CompactGraph.fromGraph(graph);
+        int nodeCount = compact.getNodeCount();
+        int edgeCount = compact.getEdgeCount();
+        int indexSize = Integer.highestOneBit(Math.max(1, nodeCount) * 2 - 1) * 2;
+
+        // encode the names, and index each by its hash with linear probing
+        byte[][] names = new byte[nodeCount][];
+        int nameLength = 0;
+        int[] index = new int[indexSize];
+        for (int id = 0; id < nodeCount; id++) {
+            names[id] = compact.getData(id).getBytes(StandardCharsets.UTF_8);
+            nameLength += names[id].length;
+            int slot = hash(compact.getData(id)) & (indexSize - 1);
+            while (index[slot] != 0)
+                slot = (slot + 1) & (indexSize - 1);
+            index[slot] = id + 1;
+        }
+
+        // compute the landmark costs, and translate them from the graph's ids to the compact ids
+        LandmarkHeuristic<String> landmarks = new LandmarkHeuristic<>(graph, Math.max(0, landmarkCount));
+        landmarkCount = landmarks.costsFrom.length;
+        int[] graphIds = new int[nodeCount];
+        for (int id = 0; id < nodeCount; id++)
+            graphIds[id] = graph.nodes.get(compact.getData(id)).id;
+
+        long size = fileSize(nodeCount, edgeCount, landmarkCount, indexSize, nameLength);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("graph is too large for a snapshot");
+        ByteBuffer output = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        output.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nodeCount).putInt(edgeCount)
+                .putInt(landmarkCount).putInt(indexSize).putDouble(totalWeight).putInt(nameLength)
+                .putInt(directed ? DIRECTED_FLAG : 0);
+        output.position(HEADER_SIZE);
+        for (int slot : index)
+            output.putInt(slot);
+        output.position((int) (HEADER_SIZE + align(indexSize * 4L)));
+        for (int id = 0; id < nodeCount; id++)
+            output.putInt(hash(compact.getData(id)));
+        pad(output);
+        int nameOffset = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            output.putInt(nameOffset);
+            nameOffset += names[id].length;
+        }
+        output.putInt(nameOffset);
+        pad(output);
+        for (int offset : compact.offsets)
+            output.putInt(offset);
+        pad(output);
+        for (int target : compact.targets)
+            output.putInt(target);
+        pad(output);
+        for (double weight : compact.weights)
+            output.putDouble(weight);
+        for (double[] costs : landmarks.costsFrom)
+            for (int id = 0; id < nodeCount; id++)
+                output.putDouble(costs[graphIds[id]]);
+        for (double[] costs : landmarks.costsTo)
+            for (int id = 0; id < nodeCount; id++)
+                output.putDouble(costs[graphIds[id]]);
+        for (byte[] name : names)
+            output.put(name);
+        output.flip();
+
+        Path target = Path.of(file).toAbsolutePath();
+        try {
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (output.hasRemaining())
+                    channel.write(output);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // moves a buffer's position up to the next multiple of 8 bytes
+    private static void pad(ByteBuffer output) {
+        output.position((int) align(output.position()));
+    }
+
+    /**
+     * Returns the dense id of the node with the provided name.
+     *
+     * @param name the name to look up
+     * @return the id of that node, or -1 if no node has that name
+     */
+    public int getId(String name) {
+        int h = hash(name);
+        byte[] bytes = null;
+        for (int slot = h & indexMask;; slot = (slot + 1) & indexMask) {
+            int id = nameIndex.get(slot) - 1;
+            if (id < 0)
+                return -1;
+            if (nameHashes.get(id) != h)
+                continue;
+            if (bytes == null)
+                bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (nameEquals(id, bytes))
+                return id;
+        }
+    }
+
+    // checks whether the name of a node consists of the provided bytes
+    private boolean nameEquals(int id, byte[] bytes) {
+        int start = nameOffsets.get(id);
+        if (nameOffsets.get(id + 1) - start != bytes.length)
+            return false;
+        for (int i = 0; i < bytes.length; i++)
+            if (nameBytes.get(start + i) != bytes[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the name of the node with the provided id.
+     *
+     * @param id the id of the node
+     * @return the name of that node
+     * @throws IndexOutOfBoundsException if id is not a node id in this graph
+     */
+    public String getData(int id) {
+        if (id < 0 || id >= nodeCount)
+            throw new IndexOutOfBoundsException("node id " + id + " out of bounds for " + nodeCount + " nodes");
+        int start = nameOffsets.get(id);
+        byte[] bytes = new byte[nameOffsets.get(id + 1) - start];
+        nameBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the names of all nodes, ordered by id.
+     *
+     * @return the name of every node
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(nodeCount);
+        for (int id = 0; id < nodeCount; id++)
+            names.add(getData(id));
+        return names;
+    }
+
+    /**
+     * Returns the total weight that was stored with the graph.
+     *
+     * @return the total weight
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns whether the graph was stored as having edges that can only be
+     * followed in their own direction.
+     *
+     * @return true if the graph is directed
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Returns the number of landmarks whose costs are stored in the snapshot.
+     *
+     * @return the number of landmarks
+     */
+    public int getLandmarkCount() {
+        return landmarkCount;
+    }
+
+    /**
+     * Copies every node and edge of the snapshot into a new DijkstraGraph,
+     * with the nodes inserted in id order and each node's edges in CSR order.
+     *
+     * @return a new, modifiable graph with the same nodes and edges
+     */
+    public DijkstraGraph<String, Double> toDijkstraGraph() {
+        GraphBuilder<String, Double> builder = new GraphBuilder<>(GraphBuilder.DuplicatePolicy.KEEP_LAST);
+        List<String> names = getNames();
+        for (String name : names)
+            builder.addNode(name);
+        for (int id = 0; id < nodeCount; id++)
+            for (int e = offsets.get(id); e < offsets.get(id + 1); e++)
+                builder.addEdge(names.get(id), names.get(targets.get(e)), weights.get(e));
+        return builder.build(new DijkstraGraph<>(new HashtableMap<>()));
+    }
+
+    @Override
+    public boolean insertNode(String data) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public boolean removeNode(String data) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public boolean containsNode(String data) {
+        return getId(data) >= 0;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public boolean insertEdge(String pred, String succ, Double weight) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public boolean removeEdge(String pred, String succ) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public boolean containsEdge(String pred, String succ) {
+        return findEdge(getId(pred), getId(succ)) >= 0;
+    }
+
+    @Override
+    public Double getEdge(String pred, String succ) {
+        int edge = findEdge(getId(pred), getId(succ));
+        if (edge < 0)
+            throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+        return weights.get(edge);
+    }
+
+    // returns the position of the edge between two node ids, or -1 when there is no such edge
+    protected int findEdge(int source, int target) {
+        if (source < 0 || target < 0)
+            return -1;
+        for (int e = offsets.get(source); e < offsets.get(source + 1); e++)
+            if (targets.get(e) == target)
+                return e;
+        return -1;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Estimates the cost of the shortest path between two nodes with the
+     * stored landmark costs, just like LandmarkHeuristic.estimate.
+     *
+     * @param node   the id of the node the path starts at
+     * @param target the id of the node the path ends at
+     * @return a consistent lower bound on the cost of that path
+     */
+    protected double estimate(int node, int target) {
+        double bound = 0.0;
+        for (int l = 0; l < landmarkCount; l++) {
+            int base = l * nodeCount;
+            double fromT = costsFrom.get(base + target);
+            double fromV = costsFrom.get(base + node);
+            // bounds involving unreachable nodes carry no information
+            if (fromT != Double.POSITIVE_INFINITY && fromV != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, fromT - fromV);
+            double toV = costsTo.get(base + node);
+            double toT = costsTo.get(base + target);
+            if (toV != Double.POSITIVE_INFINITY && toT != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, toV - toT);
+        }
+        return bound;
+    }
+
+    /**
+     * A SearchWorkspace holds the per-node arrays that one search works in,
+     * indexed by node id. Rather than clearing these arrays before each
+     * search, a workspace stamps every node it settles with the number of the
+     * current search (its generation), and distances and predecessors are only
+     * read for nodes the current search has reached.
+     */
+    protected static class SearchWorkspace {
+        final double[] dist;
+        final int[] pred;
+        final int[] settled; // the generation that settled each node
+        int generation = 0;
+        final IndexedMinHeap queue;
+
+        SearchWorkspace(int nodeCount) {
+            dist = new double[nodeCount];
+            pred = new int[nodeCount];
+            settled = new int[nodeCount];
+            queue = new IndexedMinHeap(nodeCount);
+        }
+
+        // prepares this workspace for a new search
+        void reset() {
+            queue.clear();
+            // start a new generation, clearing the stamps only when the counter wraps around
+            if (++generation == 0) {
+                Arrays.fill(settled, 0);
+                generation = 1;
+            }
+        }
+    }
+
+    // the workspaces that no search is using, shared by all threads
+    private final ConcurrentLinkedQueue<SearchWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    // takes a workspace from the pool, or allocates one when every workspace is in use
+    private SearchWorkspace acquireWorkspace() {
+        SearchWorkspace workspace = workspaces.poll();
+        return workspace != null ? workspace : new SearchWorkspace(nodeCount);
+    }
+
+    /**
+     * Runs an A* search over the mapped CSR arrays from the source node until
+     * the target node is settled, guided by the landmark costs (or Dijkstra's
+     * algorithm, when the snapshot has no landmarks), recording the
+     * predecessor of every reached node in the workspace's pred array.
+     *
+     * @param workspace the workspace to search in, which is reset first
+     * @param source    the id of the starting node
+     * @param target    the id of the destination node
+     * @return the cost of the shortest path from source to target
+     * @throws NoSuchElementException when no path from source to target exists
+     */
+    protected double computeShortestPath(SearchWorkspace workspace, int source, int target) {
+        workspace.reset();
+        double[] dist = workspace.dist;
+        int[] pred = workspace.pred;
+        int[] settled = workspace.settled;
+        int generation = workspace.generation;
+        IndexedMinHeap queue = workspace.queue;
+        dist[source] = 0.0;
+        pred[source] = -1;
+        queue.insert(source, estimate(source, target));
+        while (!queue.isEmpty()) {
+            int node = queue.removeMin();
+            settled[node] = generation;
+            if (node == target)
+                return dist[node];
+            // relax every edge leaving this node toward an unsettled node
+            for (int e = offsets.get(node); e < offsets.get(node + 1); e++) {
+                int next = targets.get(e);
+                if (settled[next] == generation)
+                    continue;
+                double cost = dist[node] + weights.get(e);
+                if (queue.insertOrDecrease(next, cost + estimate(next, target))) {
+                    dist[next] = cost;
+                    pred[next] = node;
+                }
+            }
+        }
+        throw new NoSuchElementException("no path found between these nodes");
+    }
+
+    /**
+     * Returns the list of names along the shortest path from the node with
+     * the provided start name to the node with the provided end name.
+     *
+     * @param start the name of the starting node for the path
+     * @param end   the name of the destination node for the path
+     * @return list of names along this shortest path
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    @Override
+    public List<String> shortestPathData(String start, String end) {
+        int source = getId(start);
+        int target = getId(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        SearchWorkspace workspace = acquireWorkspace();
+        try {
+            computeShortestPath(workspace, source, target);
+            // follow the predecessor ids back from the target to the source
+            LinkedList<String> pathData = new LinkedList<>();
+            for (int node = target; node != -1; node = workspace.pred[node])
+                pathData.addFirst(getData(node));
+            return pathData;
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    /**
+     * Returns the cost of the shortest path from the node with the provided
+     * start name to the node with the provided end name.
+     *
+     * @param start the name of the starting node for the path
+     * @param end   the name of the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    @Override
+    public double shortestPathCost(String start, String end) {
+        int source = getId(start);
+        int target = getId(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        SearchWorkspace workspace = acquireWorkspace();
+        try {
+            return computeShortestPath(workspace, source, target);
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+}
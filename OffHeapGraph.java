@@ -0,0 +1,550 @@
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class is a graph with String nodes and Double weights that keeps all
+ * of its nodes, edges and names outside of the Java heap, in direct
+ * ByteBuffers. No object is created per node or per edge, so the heap only
+ * holds a few buffer objects however large the graph grows, and the garbage
+ * collector never has to trace the graph.
+ *
+ * Nodes and edges are fixed size records, stored in pages of 2^16 records
+ * that are allocated as the graph grows, so growing never copies the graph.
+ * - A node record holds the first and last edge of its leaving and entering
+ *   lists, and the page, position, length and hash of its name.
+ * - An edge record holds its predecessor and successor ids, the next and
+ *   previous edges in both lists, and its weight. Removed edges are reused.
+ * - The names are stored as UTF-8 in pages of bytes, and an open addressing
+ *   hash index maps each name to its node id.
+ * Like a BaseGraph, node ids are handed out in insertion order and never
+ * reused, and the edges of each list are kept in insertion order.
+ *
+ * Searches read the records straight from native memory, and keep their
+ * distances, predecessors and queue in pooled workspaces that are reused by
+ * later searches, so searching allocates nothing per query once the pool has
+ * warmed up. An OffHeapGraph is not thread-safe: searches may run
+ * concurrently with each other, but not with changes.
+ */
+public class OffHeapGraph implements GraphADT<String, Double> {
+
+    // the number of records in each page of nodes or edges
+    protected static final int PAGE_BITS = 16;
+    protected static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    // the size of each page of names, unless a single name is longer than this
+    protected static final int NAME_PAGE_SIZE = 1 << 20;
+
+    // the byte offsets of the fields of a node record
+    private static final int OUT_HEAD = 0;
+    private static final int OUT_TAIL = 4;
+    private static final int IN_HEAD = 8;
+    private static final int IN_TAIL = 12;
+    private static final int NAME_PAGE = 16;
+    private static final int NAME_START = 20;
+    private static final int NAME_LENGTH = 24; // -1 once the node is removed
+    private static final int NAME_HASH = 28;
+    private static final int NODE_SIZE = 32;
+
+    // the byte offsets of the fields of an edge record
+    private static final int SOURCE = 0; // -1 once the edge is removed
+    private static final int TARGET = 4;
+    private static final int NEXT_OUT = 8; // also links the removed edges that can be reused
+    private static final int PREV_OUT = 12;
+    private static final int NEXT_IN = 16;
+    private static final int PREV_IN = 20;
+    private static final int WEIGHT = 24;
+    private static final int EDGE_SIZE = 32;
+
+    // the pages of node and edge records, and the pages of name bytes
+    protected ByteBuffer[] nodePages = new ByteBuffer[4];
+    protected ByteBuffer[] edgePages = new ByteBuffer[4];
+    protected ByteBuffer[] namePages = new ByteBuffer[4];
+    protected int namePageCount = 0;
+
+    protected int nextNodeId = 0;
+    protected int nodeCount = 0;
+    protected int nextEdgeId = 0;
+    protected int edgeCount = 0;
+    // the most recently removed edge, which is reused first, or -1
+    protected int freeEdge = -1;
+
+    // the hash index of the names: each slot holds one more than a node id, 0 for an empty
+    // slot, or -1 for a slot whose node was removed
+    protected ByteBuffer index = allocate(16 * 4);
+    protected int indexMask = 15;
+    protected int indexUsed = 0;
+
+    // allocates a zeroed, native order direct buffer
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Reads a DOT file straight into a new OffHeapGraph. A path written with
+     * -- is inserted as an edge in each direction, and one written with -> only
+     * in its direction.
+     *
+     * @param file            the path of the DOT file
+     * @param weightAttribute the name of the attribute holding each edge's weight
+     * @return a new graph with every node and edge in the file
+     * @throws FileNotFoundException    if the file doesn't exist
+     * @throws IllegalArgumentException if the file isn't a valid DOT graph
+     */
+    public static OffHeapGraph loadFile(String file, String weightAttribute) throws FileNotFoundException {
+        OffHeapGraph graph = new OffHeapGraph();
+        DotParser.parseFile(file, weightAttribute, new DotParser.EdgeHandler() {
+            @Override
+            public void edge(String from, String to, double weight, boolean directed) {
+                graph.insertNode(from);
+                graph.insertNode(to);
+                graph.insertEdge(from, to, weight);
+                if (!directed)
+                    graph.insertEdge(to, from, weight);
+            }
+
+            @Override
+            public void node(String name) {
+                graph.insertNode(name);
+            }
+        });
+        return graph;
+    }
+
+    // reads and writes an int field of a node record
+    private int node(int id, int field) {
+        return nodePages[id >>> PAGE_BITS].getInt((id & PAGE_MASK) * NODE_SIZE + field);
+    }
+
+    private void setNode(int id, int field, int value) {
+        nodePages[id >>> PAGE_BITS].putInt((id & PAGE_MASK) * NODE_SIZE + field, value);
+    }
+
+    // reads and writes the fields of an edge record
+    private int edge(int id, int field) {
+        return edgePages[id >>> PAGE_BITS].getInt((id & PAGE_MASK) * EDGE_SIZE + field);
+    }
+
+    private void setEdge(int id, int field, int value) {
+        edgePages[id >>> PAGE_BITS].putInt((id & PAGE_MASK) * EDGE_SIZE + field, value);
+    }
+
+    private double weight(int id) {
+        return edgePages[id >>> PAGE_BITS].getDouble((id & PAGE_MASK) * EDGE_SIZE + WEIGHT);
+    }
+
+    private void setWeight(int id, double weight) {
+        edgePages[id >>> PAGE_BITS].putDouble((id & PAGE_MASK) * EDGE_SIZE + WEIGHT, weight);
+    }
+
+    // returns the page that holds a record id, allocating it when it's the next page
+    private static ByteBuffer[] ensurePage(ByteBuffer[] pages, int id, int recordSize) {
+        int page = id >>> PAGE_BITS;
+        if (page == pages.length)
+            pages = Arrays.copyOf(pages, page * 2);
+        if (pages[page] == null)
+            pages[page] = allocate((PAGE_MASK + 1) * recordSize);
+        return pages;
+    }
+
+    // spreads the bits of a name's hash code, so that the low bits pick the index slot
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the id of the node with the provided name.
+     *
+     * @param name the name to look up
+     * @return the id of that node, or -1 if no node has that name
+     */
+    public int getId(String name) {
+        int h = hash(name);
+        byte[] bytes = null;
+        for (int slot = h & indexMask;; slot = (slot + 1) & indexMask) {
+            int id = index.getInt(slot * 4) - 1;
+            if (id == -1)
+                return -1; // an empty slot ends the probe sequence
+            if (id < 0 || node(id, NAME_HASH) != h)
+                continue;
+            if (bytes == null)
+                bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (nameEquals(id, bytes))
+                return id;
+        }
+    }
+
+    // checks whether the name of a node consists of the provided bytes
+    private boolean nameEquals(int id, byte[] bytes) {
+        if (node(id, NAME_LENGTH) != bytes.length)
+            return false;
+        ByteBuffer page = namePages[node(id, NAME_PAGE)];
+        int start = node(id, NAME_START);
+        for (int i = 0; i < bytes.length; i++)
+            if (page.get(start + i) != bytes[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the name of the node with the provided id.
+     *
+     * @param id the id of the node
+     * @return the name of that node
+     * @throws NoSuchElementException if no node with that id is in the graph
+     */
+    public String getData(int id) {
+        if (id < 0 || id >= nextNodeId || node(id, NAME_LENGTH) < 0)
+            throw new NoSuchElementException("no node with id " + id);
+        byte[] bytes = new byte[node(id, NAME_LENGTH)];
+        namePages[node(id, NAME_PAGE)].get(node(id, NAME_START), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // stores the bytes of a name, and records where they are in a node's record
+    private void storeName(int id, byte[] bytes) {
+        ByteBuffer page = namePageCount == 0 ? null : namePages[namePageCount - 1];
+        if (page == null || page.remaining() < bytes.length) {
+            if (namePageCount == namePages.length)
+                namePages = Arrays.copyOf(namePages, namePageCount * 2);
+            page = allocate(Math.max(NAME_PAGE_SIZE, bytes.length));
+            namePages[namePageCount++] = page;
+        }
+        setNode(id, NAME_PAGE, namePageCount - 1);
+        setNode(id, NAME_START, page.position());
+        setNode(id, NAME_LENGTH, bytes.length);
+        page.put(bytes);
+    }
+
+    // adds a node id to the hash index, growing the index when it gets half full
+    private void indexNode(int id) {
+        // the node's name is already stored, so a rebuilt index holds it as well
+        if ((indexUsed + 1) * 2 > indexMask + 1) {
+            rebuildIndex();
+            return;
+        }
+        int slot = node(id, NAME_HASH) & indexMask;
+        while (index.getInt(slot * 4) > 0)
+            slot = (slot + 1) & indexMask;
+        if (index.getInt(slot * 4) == 0)
+            indexUsed++;
+        index.putInt(slot * 4, id + 1);
+    }
+
+    // rebuilds the hash index without removed nodes, doubling it when it holds many nodes
+    private void rebuildIndex() {
+        int capacity = indexMask + 1;
+        while ((nodeCount + 1) * 2 > capacity / 2)
+            capacity *= 2;
+        index = allocate(capacity * 4);
+        indexMask = capacity - 1;
+        indexUsed = 0;
+        for (int id = 0; id < nextNodeId; id++) {
+            if (node(id, NAME_LENGTH) < 0)
+                continue;
+            int slot = node(id, NAME_HASH) & indexMask;
+            while (index.getInt(slot * 4) != 0)
+                slot = (slot + 1) & indexMask;
+            index.putInt(slot * 4, id + 1);
+            indexUsed++;
+        }
+    }
+
+    @Override
+    public boolean insertNode(String data) {
+        if (data == null)
+            throw new NullPointerException("null nodes not allowed");
+        if (getId(data) >= 0)
+            return false;
+        int id = nextNodeId++;
+        nodePages = ensurePage(nodePages, id, NODE_SIZE);
+        setNode(id, OUT_HEAD, -1);
+        setNode(id, OUT_TAIL, -1);
+        setNode(id, IN_HEAD, -1);
+        setNode(id, IN_TAIL, -1);
+        setNode(id, NAME_HASH, hash(data));
+        storeName(id, data.getBytes(StandardCharsets.UTF_8));
+        indexNode(id);
+        nodeCount++;
+        return true;
+    }
+
+    @Override
+    public boolean removeNode(String data) {
+        int id = getId(data); // throws NPE when data's null
+        if (id < 0)
+            return false;
+        // remove all edges leaving this node, and then all edges entering it
+        while (node(id, OUT_HEAD) != -1)
+            unlinkEdge(node(id, OUT_HEAD));
+        while (node(id, IN_HEAD) != -1)
+            unlinkEdge(node(id, IN_HEAD));
+        // leave a marker in the node's index slot, so the probe sequences through it still work
+        int slot = node(id, NAME_HASH) & indexMask;
+        while (index.getInt(slot * 4) != id + 1)
+            slot = (slot + 1) & indexMask;
+        index.putInt(slot * 4, -1);
+        setNode(id, NAME_LENGTH, -1);
+        nodeCount--;
+        return true;
+    }
+
+    @Override
+    public boolean containsNode(String data) {
+        return getId(data) >= 0;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    // returns the edge from source to target, or -1 when there is none
+    protected int findEdge(int source, int target) {
+        if (source < 0 || target < 0)
+            return -1;
+        for (int e = node(source, OUT_HEAD); e != -1; e = edge(e, NEXT_OUT))
+            if (edge(e, TARGET) == target)
+                return e;
+        return -1;
+    }
+
+    @Override
+    public boolean insertEdge(String pred, String succ, Double weight) {
+        int source = getId(pred);
+        int target = getId(succ);
+        if (source < 0 || target < 0)
+            return false;
+        int e = findEdge(source, target);
+        if (e >= 0) {
+            // when an edge already exists, update its weight
+            setWeight(e, weight);
+            return true;
+        }
+        // otherwise reuse a removed edge record, or append a new one
+        if (freeEdge != -1) {
+            e = freeEdge;
+            freeEdge = edge(e, NEXT_OUT);
+        } else {
+            e = nextEdgeId++;
+            edgePages = ensurePage(edgePages, e, EDGE_SIZE);
+        }
+        setEdge(e, SOURCE, source);
+        setEdge(e, TARGET, target);
+        setWeight(e, weight);
+        // append it to the source's leaving list and the target's entering list
+        setEdge(e, NEXT_OUT, -1);
+        setEdge(e, PREV_OUT, node(source, OUT_TAIL));
+        if (node(source, OUT_TAIL) == -1)
+            setNode(source, OUT_HEAD, e);
+        else
+            setEdge(node(source, OUT_TAIL), NEXT_OUT, e);
+        setNode(source, OUT_TAIL, e);
+        setEdge(e, NEXT_IN, -1);
+        setEdge(e, PREV_IN, node(target, IN_TAIL));
+        if (node(target, IN_TAIL) == -1)
+            setNode(target, IN_HEAD, e);
+        else
+            setEdge(node(target, IN_TAIL), NEXT_IN, e);
+        setNode(target, IN_TAIL, e);
+        edgeCount++;
+        return true;
+    }
+
+    // removes an edge from both of its lists, and puts its record on the list of reusable ones
+    private void unlinkEdge(int e) {
+        int source = edge(e, SOURCE);
+        int target = edge(e, TARGET);
+        int next = edge(e, NEXT_OUT);
+        int previous = edge(e, PREV_OUT);
+        if (previous == -1)
+            setNode(source, OUT_HEAD, next);
+        else
+            setEdge(previous, NEXT_OUT, next);
+        if (next == -1)
+            setNode(source, OUT_TAIL, previous);
+        else
+            setEdge(next, PREV_OUT, previous);
+        next = edge(e, NEXT_IN);
+        previous = edge(e, PREV_IN);
+        if (previous == -1)
+            setNode(target, IN_HEAD, next);
+        else
+            setEdge(previous, NEXT_IN, next);
+        if (next == -1)
+            setNode(target, IN_TAIL, previous);
+        else
+            setEdge(next, PREV_IN, previous);
+        setEdge(e, SOURCE, -1);
+        setEdge(e, NEXT_OUT, freeEdge);
+        freeEdge = e;
+        edgeCount--;
+    }
+
+    @Override
+    public boolean removeEdge(String pred, String succ) {
+        int e = findEdge(getId(pred), getId(succ));
+        if (e < 0)
+            return false;
+        unlinkEdge(e);
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(String pred, String succ) {
+        return findEdge(getId(pred), getId(succ)) >= 0;
+    }
+
+    @Override
+    public Double getEdge(String pred, String succ) {
+        int e = findEdge(getId(pred), getId(succ));
+        if (e < 0)
+            throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+        return weight(e);
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * A SearchWorkspace holds the per-node arrays that one search works in,
+     * indexed by node id. Rather than clearing these arrays before each
+     * search, a workspace stamps every node it settles with the number of the
+     * current search (its generation), and distances and predecessors are only
+     * read for nodes the current search has reached.
+     */
+    protected static class SearchWorkspace {
+        double[] dist = new double[0];
+        int[] pred = new int[0];
+        int[] settled = new int[0]; // the generation that settled each node
+        int generation = 0;
+        IndexedMinHeap queue = new IndexedMinHeap(0);
+
+        // prepares this workspace for a search that may touch node ids up to capacity - 1
+        void reset(int capacity) {
+            queue.clear();
+            queue.ensureCapacity(capacity);
+            if (settled.length < capacity) {
+                dist = new double[queue.getCapacity()];
+                pred = new int[queue.getCapacity()];
+                settled = new int[queue.getCapacity()];
+            }
+            // start a new generation, clearing the stamps only when the counter wraps around
+            if (++generation == 0) {
+                Arrays.fill(settled, 0);
+                generation = 1;
+            }
+        }
+    }
+
+    // the workspaces that no search is using, shared by all threads
+    private final ConcurrentLinkedQueue<SearchWorkspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    // takes a workspace from the pool, or allocates one when every workspace is in use
+    private SearchWorkspace acquireWorkspace() {
+        SearchWorkspace workspace = workspaces.poll();
+        return workspace != null ? workspace : new SearchWorkspace();
+    }
+
+    /**
+     * Runs Dijkstra's algorithm over the off-heap records from the source
+     * node until the target node is settled, recording the predecessor of
+     * every reached node in the workspace's pred array.
+     *
+     * @param workspace the workspace to search in, which is reset first
+     * @param source    the id of the starting node
+     * @param target    the id of the destination node
+     * @return the cost of the shortest path from source to target
+     * @throws NoSuchElementException when no path from source to target exists
+     */
+    protected double computeShortestPath(SearchWorkspace workspace, int source, int target) {
+        workspace.reset(nextNodeId);
+        double[] dist = workspace.dist;
+        int[] pred = workspace.pred;
+        int[] settled = workspace.settled;
+        int generation = workspace.generation;
+        IndexedMinHeap queue = workspace.queue;
+        dist[source] = 0.0;
+        pred[source] = -1;
+        queue.insert(source, 0.0);
+        while (!queue.isEmpty()) {
+            int node = queue.removeMin();
+            settled[node] = generation;
+            if (node == target)
+                return dist[node];
+            // relax every edge leaving this node toward an unsettled node
+            for (int e = node(node, OUT_HEAD); e != -1; e = edge(e, NEXT_OUT)) {
+                int next = edge(e, TARGET);
+                if (settled[next] == generation)
+                    continue;
+                double cost = dist[node] + weight(e);
+                if (queue.insertOrDecrease(next, cost)) {
+                    dist[next] = cost;
+                    pred[next] = node;
+                }
+            }
+        }
+        throw new NoSuchElementException("no path found between these nodes");
+    }
+
+    /**
+     * Returns the list of names along the shortest path from the node with
+     * the provided start name to the node with the provided end name.
+     *
+     * @param start the name of the starting node for the path
+     * @param end   the name of the destination node for the path
+     * @return list of names along this shortest path
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    @Override
+    public List<String> shortestPathData(String start, String end) {
+        int source = getId(start);
+        int target = getId(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        SearchWorkspace workspace = acquireWorkspace();
+        try {
+            computeShortestPath(workspace, source, target);
+            // follow the predecessor ids back from the target to the source
+            LinkedList<String> pathData = new LinkedList<>();
+            for (int node = target; node != -1; node = workspace.pred[node])
+                pathData.addFirst(getData(node));
+            return pathData;
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    /**
+     * Returns the cost of the shortest path from the node with the provided
+     * start name to the node with the provided end name.
+     *
+     * @param start the name of the starting node for the path
+     * @param end   the name of the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException when either node is missing or no path exists
+     */
+    @Override
+    public double shortestPathCost(String start, String end) {
+        int source = getId(start);
+        int target = getId(end);
+        if (source < 0 || target < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        SearchWorkspace workspace = acquireWorkspace();
+        try {
+            return computeShortestPath(workspace, source, target);
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+}
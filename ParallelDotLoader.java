@@ -0,0 +1,318 @@
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * This class loads a DOT file into a new DijkstraGraph on several threads.
+ * The statements between the graph's braces are split into chunks of whole
+ * lines, and each chunk is parsed by its own DotParser in a parallel stream.
+ * Each chunk numbers the node names it finds on its own, so the threads
+ * share nothing while parsing. The chunks are then merged in file order: the
+ * nodes are inserted in the order they first appear, and all edges are added
+ * with a single BaseGraph.insertEdges call, so the graph (including its node
+ * ids and the order of every edge list) and the total weight come out exactly
+ * as if the file had been loaded one edge at a time.
+ *
+ * Splitting at line breaks only works when no string or comment spans a
+ * line break. When a chunk finds one of those, or a chunk can't be parsed on
+ * its own, the whole file is parsed again by a single DotParser instead, so
+ * any syntax error is reported with its line and column in the file.
+ */
+public class ParallelDotLoader {
+
+    // chunks are never made smaller than this, so small files are parsed as a single chunk
+    protected static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    // the number of chunks made for each thread, so that uneven chunks still balance out
+    protected static final int CHUNKS_PER_THREAD = 4;
+
+    protected final String weightAttribute;
+    protected final DijkstraGraph<String, Double> graph = new DijkstraGraph<>(new HashtableMap<>());
+    protected double totalWeight = 0.0;
+    protected int lineCount = 0;
+    protected boolean directed = false;
+
+    /**
+     * Constructor for a loader that hasn't loaded anything yet.
+     *
+     * @param weightAttribute the name of the attribute holding each edge's weight
+     */
+    public ParallelDotLoader(String weightAttribute) {
+        this.weightAttribute = weightAttribute;
+    }
+
+    // the node names and edges found in one chunk, with each name numbered within the chunk
+    private static class Chunk implements DotParser.EdgeHandler {
+        final int start;
+        final int end;
+        final HashMap<String, Integer> ids = new HashMap<>();
+        final ArrayList<String> names = new ArrayList<>();
+        int[] from = new int[256];
+        int[] to = new int[256];
+        double[] weights = new double[256];
+        boolean[] directed = new boolean[256];
+        int edgeCount = 0;
+        // the number of graph edges the chunk's edges make, counting -- edges twice
+        int graphEdgeCount = 0;
+        // whether this chunk could be parsed on its own, and the line breaks it holds
+        boolean parsed = false;
+        int lineBreaks = 0;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void edge(String from, String to, double weight, boolean directed) {
+            int fromId = intern(from);
+            int toId = intern(to);
+            if (edgeCount == this.from.length) {
+                int length = edgeCount * 2;
+                this.from = Arrays.copyOf(this.from, length);
+                this.to = Arrays.copyOf(this.to, length);
+                this.weights = Arrays.copyOf(this.weights, length);
+                this.directed = Arrays.copyOf(this.directed, length);
+            }
+            this.from[edgeCount] = fromId;
+            this.to[edgeCount] = toId;
+            this.weights[edgeCount] = weight;
+            this.directed[edgeCount] = directed;
+            edgeCount++;
+            graphEdgeCount += directed ? 1 : 2;
+        }
+
+        @Override
+        public void node(String name) {
+            intern(name);
+        }
+
+        // returns the chunk's number for a name, numbering names in the order they're found
+        private int intern(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Memory-maps a DOT file and loads the graph in it.
+     *
+     * @param file the path of the DOT file
+     * @throws FileNotFoundException    if the file doesn't exist
+     * @throws IllegalArgumentException if the file isn't a valid DOT graph
+     * @throws java.io.UncheckedIOException if the file can't be read
+     */
+    public void loadFile(String file) throws FileNotFoundException {
+        load(DotParser.mapFile(file));
+    }
+
+    /**
+     * Loads the graph in the remaining bytes of a buffer. The buffer is only
+     * read with absolute gets, so its position is left unchanged.
+     *
+     * @param input the bytes of a DOT graph, from its position to its limit
+     * @throws IllegalArgumentException if the input isn't a valid DOT graph
+     */
+    public void load(ByteBuffer input) {
+        Chunk[] chunks = parseChunks(input);
+        if (chunks == null) {
+            // parse the whole input as one chunk when it can't be split
+            Chunk whole = new Chunk(input.position(), input.limit());
+            DotParser parser = new DotParser(input, weightAttribute);
+            parser.parseGraph(whole);
+            lineCount = parser.getLineCount();
+            chunks = new Chunk[] { whole };
+        }
+        merge(chunks);
+    }
+
+    // splits the statements into chunks and parses them in parallel, or returns null
+    // when some chunk can't be parsed on its own
+    private Chunk[] parseChunks(ByteBuffer input) {
+        DotParser header = new DotParser(input, weightAttribute);
+        int bodyStart = header.parseHeader();
+        int bodyEnd = input.limit();
+        while (bodyEnd > bodyStart && isSpace(input.get(bodyEnd - 1)))
+            bodyEnd--;
+        if (bodyEnd == bodyStart || input.get(bodyEnd - 1) != '}')
+            return null; // something follows the closing brace, so leave the error to the parser
+        bodyEnd--;
+
+        // cut the body into chunks of roughly equal size, moving each cut past the next line break
+        int length = bodyEnd - bodyStart;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkCount = Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, length / MIN_CHUNK_SIZE));
+        Chunk[] chunks = new Chunk[chunkCount];
+        int start = bodyStart;
+        for (int k = 0; k < chunkCount; k++) {
+            int end = bodyEnd;
+            if (k + 1 < chunkCount) {
+                end = Math.max(start, bodyStart + (int) ((long) length * (k + 1) / chunkCount));
+                while (end < bodyEnd && input.get(end) != '\n')
+                    end++;
+                if (end < bodyEnd)
+                    end++;
+            }
+            chunks[k] = new Chunk(start, end);
+            start = end;
+        }
+
+        Arrays.stream(chunks).parallel().forEach(chunk -> {
+            if (!staysOnItsLines(input, chunk.start, chunk.end))
+                return;
+            try {
+                DotParser parser = new DotParser(input.slice(chunk.start, chunk.end - chunk.start), weightAttribute);
+                parser.parseStatements(chunk, false);
+                chunk.lineBreaks = parser.line - 1;
+                chunk.parsed = true;
+            } catch (IllegalArgumentException e) {
+                // leave it to the single parser, which reports the error's position in the file
+            }
+        });
+        // count the lines from the line breaks that the header, the chunks and the closing brace hold
+        int lineBreaks = header.line - 1;
+        for (Chunk chunk : chunks) {
+            if (!chunk.parsed)
+                return null;
+            lineBreaks += chunk.lineBreaks;
+        }
+        for (int i = bodyEnd; i < input.limit(); i++)
+            if (input.get(i) == '\n')
+                lineBreaks++;
+        lineCount = input.get(input.limit() - 1) == '\n' ? lineBreaks : lineBreaks + 1;
+        return chunks;
+    }
+
+    // checks that no string and no /* */ comment between start and end spans a line break,
+    // so that the lines can be parsed apart from the lines before and after them
+    private static boolean staysOnItsLines(ByteBuffer input, int start, int end) {
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            byte next = input.get(i);
+            if (quoted) {
+                if (next == '"') {
+                    quoted = false;
+                } else if (next == '\n') {
+                    return false;
+                } else if (next == '\\' && i + 1 < end) {
+                    if (input.get(i + 1) == '\n' || input.get(i + 1) == '\r')
+                        return false;
+                    i++;
+                }
+            } else if (next == '"') {
+                quoted = true;
+            } else if (next == '/' && i + 1 < end && input.get(i + 1) == '*') {
+                return false;
+            } else if ((next == '/' && i + 1 < end && input.get(i + 1) == '/')
+                    || (next == '#' && (i == start || input.get(i - 1) == '\n'))) {
+                // a line comment may hold quotes, so skip to the end of its line
+                while (i + 1 < end && input.get(i + 1) != '\n')
+                    i++;
+            }
+        }
+        return !quoted;
+    }
+
+    // checks whether a byte is whitespace between DOT tokens
+    private static boolean isSpace(byte next) {
+        return next == ' ' || next == '\t' || next == '\r' || next == '\n' || next == '\f';
+    }
+
+    // inserts the chunks' nodes and edges into the graph in file order
+    private void merge(Chunk[] chunks) {
+        // insert the nodes in the order they first appear, and translate each chunk's numbers
+        ArrayList<BaseGraph<String, Double>.Node[]> chunkNodes = new ArrayList<>();
+        int[] offsets = new int[chunks.length + 1];
+        for (int k = 0; k < chunks.length; k++) {
+            Chunk chunk = chunks[k];
+            BaseGraph<String, Double>.Node[] nodes = graph.newNodeArray(chunk.names.size());
+            for (int i = 0; i < nodes.length; i++) {
+                String name = chunk.names.get(i);
+                graph.insertNode(name);
+                nodes[i] = graph.nodes.get(name);
+            }
+            chunkNodes.add(nodes);
+            offsets[k + 1] = offsets[k] + chunk.graphEdgeCount;
+        }
+
+        // fill in every chunk's edges in parallel, each chunk at its own offset
+        int count = offsets[chunks.length];
+        BaseGraph<String, Double>.Node[] preds = graph.newNodeArray(count);
+        BaseGraph<String, Double>.Node[] succs = graph.newNodeArray(count);
+        Double[] weights = new Double[count];
+        IntStream.range(0, chunks.length).parallel().forEach(k -> {
+            Chunk chunk = chunks[k];
+            BaseGraph<String, Double>.Node[] nodes = chunkNodes.get(k);
+            int e = offsets[k];
+            for (int i = 0; i < chunk.edgeCount; i++) {
+                Double weight = chunk.weights[i];
+                preds[e] = nodes[chunk.from[i]];
+                succs[e] = nodes[chunk.to[i]];
+                weights[e++] = weight;
+                // a -- edge can be walked in both directions
+                if (!chunk.directed[i]) {
+                    preds[e] = nodes[chunk.to[i]];
+                    succs[e] = nodes[chunk.from[i]];
+                    weights[e++] = weight;
+                }
+            }
+        });
+        graph.insertEdges(preds, succs, weights, count, GraphBuilder.DuplicatePolicy.KEEP_LAST);
+
+        // add the weights up in file order, so the total doesn't depend on the chunks
+        for (Chunk chunk : chunks)
+            for (int i = 0; i < chunk.edgeCount; i++) {
+                totalWeight += chunk.weights[i];
+                directed |= chunk.directed[i];
+            }
+    }
+
+    /**
+     * Returns the graph that was loaded.
+     *
+     * @return the loaded graph
+     */
+    public DijkstraGraph<String, Double> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the sum of the weights of all edges in the file, where an
+     * edge written with -- counts once.
+     *
+     * @return the total weight of the loaded edges
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns whether any edge in the file was written with ->, so that it
+     * can only be followed in its own direction.
+     *
+     * @return true if a directed edge was loaded
+     */
+    public boolean hasDirectedEdges() {
+        return directed;
+    }
+
+    /**
+     * Returns the number of lines in the loaded file, counting a last line
+     * that doesn't end with a line break.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+}
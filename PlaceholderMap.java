@@ -1,4 +1,6 @@
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -60,4 +62,9 @@ public class PlaceholderMap<KeyType, ValueType> implements MapADT<KeyType, Value
         throw new UnsupportedOperationException("PlaceholderMap does not support the .getCapacity() method");
     }
 
+    @Override
+    public List<KeyType> getKeys() {
+        return new ArrayList<>(baseMap.keySet());
+    }
+
 }
\ No newline at end of file
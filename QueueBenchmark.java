@@ -0,0 +1,86 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * This class compares the priority queues that DijkstraGraph can search with.
+ * It builds random directed graphs of increasing size and density, and then
+ * times the same random shortest path queries with each QueueType (and with
+ * reused per-thread workspaces for the indexed heaps), reporting the average
+ * time and the average number of bytes allocated per query.
+ *
+ * Run it with: java QueueBenchmark [nodes] [queries] [seed]
+ */
+public class QueueBenchmark {
+
+    /**
+     * Main method that runs the benchmark and prints one line per graph and
+     * queue type.
+     *
+     * @param args optional node count, query count and random seed
+     */
+    public static void main(String[] args) {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 400L;
+
+        System.out.println("nodes  degree  queue                 reuse  us/query   KB allocated/query");
+        for (int degree : new int[] { 4, 16, 64 }) {
+            DijkstraGraph<Integer, Double> graph = randomGraph(nodeCount, degree, new Random(seed));
+            Random random = new Random(seed + 1);
+            int[] starts = new int[queryCount];
+            int[] ends = new int[queryCount];
+            for (int i = 0; i < queryCount; i++) {
+                starts[i] = random.nextInt(nodeCount);
+                ends[i] = random.nextInt(nodeCount);
+            }
+            for (DijkstraGraph.QueueType queueType : DijkstraGraph.QueueType.values()) {
+                for (boolean reuse : new boolean[] { false, true }) {
+                    // workspaces are only used by the indexed heaps
+                    if (reuse && queueType == DijkstraGraph.QueueType.LAZY_PRIORITY_QUEUE)
+                        continue;
+                    graph.setQueueType(queueType);
+                    graph.setReuseWorkspaces(reuse);
+                    // warm up once so that the timed run measures compiled code
+                    runQueries(graph, starts, ends);
+                    long bytesBefore = allocatedBytes();
+                    long timeBefore = System.nanoTime();
+                    double checksum = runQueries(graph, starts, ends);
+                    long elapsed = System.nanoTime() - timeBefore;
+                    long allocated = allocatedBytes() - bytesBefore;
+                    System.out.printf("%-6d %-7d %-21s %-6s %9.1f %12.1f   (checksum %.1f)%n", nodeCount, degree,
+                            queueType, reuse, elapsed / 1000.0 / queryCount, allocated / 1024.0 / queryCount,
+                            checksum);
+                }
+            }
+        }
+    }
+
+    // runs every query and returns the sum of the path costs, so that the work can't be skipped
+    private static double runQueries(DijkstraGraph<Integer, Double> graph, int[] starts, int[] ends) {
+        double checksum = 0.0;
+        for (int i = 0; i < starts.length; i++)
+            checksum += graph.shortestPathCost(starts[i], ends[i]);
+        return checksum;
+    }
+
+    // builds a strongly connected random graph: a ring plus degree-1 random edges per node
+    private static DijkstraGraph<Integer, Double> randomGraph(int nodeCount, int degree, Random random) {
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>(new PlaceholderMap<>());
+        for (int i = 0; i < nodeCount; i++)
+            graph.insertNode(i);
+        for (int i = 0; i < nodeCount; i++) {
+            graph.insertEdge(i, (i + 1) % nodeCount, 1.0 + random.nextDouble() * 100.0);
+            for (int j = 1; j < degree; j++)
+                graph.insertEdge(i, random.nextInt(nodeCount), 1.0 + random.nextDouble() * 100.0);
+        }
+        return graph;
+    }
+
+    // returns the number of bytes allocated by this thread so far, or 0 when the JVM can't tell
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+            return threads.getCurrentThreadAllocatedBytes();
+        return 0L;
+    }
+
+}
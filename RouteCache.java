@@ -0,0 +1,280 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * This class caches finished ShortestPaths by their start and destination, so
+ * that routes that are asked for again and again are only searched for once.
+ * The cache holds at most a fixed number of routes, and once it is full it
+ * evicts either the least recently used route or the least frequently used
+ * one (evicting the least recently used among equally frequent routes).
+ *
+ * Every cached route is stamped with the version of the graph it was found
+ * in. A lookup for a different version misses, and the first route stored for
+ * a newer version clears every route of the older ones, so a changed graph
+ * never serves stale routes. When the graph is undirected, a route that was
+ * only cached in the opposite direction is served reversed.
+ *
+ * Routes found under a route metric are cached apart from the walking time
+ * routes, by the metric's name, and are never served reversed, since a metric
+ * may weigh the two directions of a path differently.
+ *
+ * All methods are synchronized, so a cache can be shared between threads.
+ */
+public class RouteCache {
+
+    /**
+     * The routes that a full cache evicts first.
+     */
+    public enum EvictionPolicy {
+        LEAST_RECENTLY_USED, LEAST_FREQUENTLY_USED
+    }
+
+    // the start and destination of a cached route, and the metric it was found under (null for walking time)
+    private record RouteKey(String start, String destination, String metric) {
+    }
+
+    // a cached route, the number of times it was used, and the graph version it was found in
+    private static class Entry {
+        ShortestPath path;
+        long version;
+        int frequency = 1;
+
+        Entry(ShortestPath path, long version) {
+            this.path = path;
+            this.version = version;
+        }
+    }
+
+    protected final int capacity;
+    protected final EvictionPolicy policy;
+    protected final boolean undirected;
+
+    // the cached routes, ordered from the least to the most recently used
+    private final LinkedHashMap<RouteKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // for LEAST_FREQUENTLY_USED: the keys with each use count, each ordered from the least
+    // to the most recently used, and the smallest use count of any cached route
+    private final HashMap<Integer, LinkedHashSet<RouteKey>> frequencies = new HashMap<>();
+    private int minFrequency = 0;
+
+    // the newest graph version that a route has been stored for
+    private long version = Long.MIN_VALUE;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructor for an empty RouteCache.
+     *
+     * @param capacity   the largest number of routes to keep
+     * @param policy     which routes to evict once the cache is full
+     * @param undirected true if every path can also be walked in reverse, so
+     *                   that reversed routes may be served
+     * @throws IllegalArgumentException if capacity is not positive
+     * @throws NullPointerException     if policy is null
+     */
+    public RouteCache(int capacity, EvictionPolicy policy, boolean undirected) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("cache capacity must be positive");
+        if (policy == null)
+            throw new NullPointerException("eviction policy must not be null");
+        this.capacity = capacity;
+        this.policy = policy;
+        this.undirected = undirected;
+    }
+
+    /**
+     * Looks up the route between two buildings that was found in the provided
+     * graph version, counting the lookup as a hit or a miss.
+     *
+     * @param start       the starting building
+     * @param destination the destination building
+     * @param version     the version of the graph the route must come from
+     * @return the cached route, or null when it is not cached for version
+     */
+    public synchronized ShortestPath get(String start, String destination, long version) {
+        return get(start, destination, version, true);
+    }
+
+    /**
+     * Looks up the route between two buildings that was found in the provided
+     * graph version, counting the lookup as a hit or a miss. A route cached in
+     * the opposite direction is only served reversed when this cache is for
+     * undirected graphs and that version of the graph is undirected as well.
+     *
+     * @param start       the starting building
+     * @param destination the destination building
+     * @param version     the version of the graph the route must come from
+     * @param reversible  false if that version of the graph has paths that
+     *                    can only be walked in one direction
+     * @return the cached route, or null when it is not cached for version
+     */
+    public synchronized ShortestPath get(String start, String destination, long version, boolean reversible) {
+        Entry entry = lookup(new RouteKey(start, destination, null), version);
+        if (entry != null) {
+            hits++;
+            return entry.path;
+        }
+        if (undirected && reversible) {
+            entry = lookup(new RouteKey(destination, start, null), version);
+            if (entry != null) {
+                hits++;
+                return entry.path.reversed();
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Looks up the route between two buildings that was found under a route
+     * metric in the provided graph version, counting the lookup as a hit or a
+     * miss.
+     *
+     * @param start       the starting building
+     * @param destination the destination building
+     * @param metric      the name of the metric the route was found under
+     * @param version     the version of the graph the route must come from
+     * @return the cached route, or null when it is not cached for version
+     */
+    public synchronized ShortestPath get(String start, String destination, String metric, long version) {
+        Entry entry = lookup(new RouteKey(start, destination, metric), version);
+        if (entry != null) {
+            hits++;
+            return entry.path;
+        }
+        misses++;
+        return null;
+    }
+
+    // returns the entry for a key when it's from the requested version, marking it as used
+    private Entry lookup(RouteKey key, long version) {
+        Entry entry = entries.get(key); // moves the entry to the most recently used end
+        if (entry == null || entry.version != version)
+            return null;
+        if (policy == EvictionPolicy.LEAST_FREQUENTLY_USED)
+            touch(key, entry);
+        return entry;
+    }
+
+    /**
+     * Stores the route between two buildings that was found in the provided
+     * graph version. Routes from versions older than the newest one stored
+     * are ignored.
+     *
+     * @param start       the starting building
+     * @param destination the destination building
+     * @param version     the version of the graph the route was found in
+     * @param path        the route to store
+     */
+    public synchronized void put(String start, String destination, long version, ShortestPath path) {
+        put(new RouteKey(start, destination, null), version, path);
+    }
+
+    /**
+     * Stores the route between two buildings that was found under a route
+     * metric in the provided graph version, the same way as a walking time
+     * route.
+     *
+     * @param start       the starting building
+     * @param destination the destination building
+     * @param metric      the name of the metric the route was found under
+     * @param version     the version of the graph the route was found in
+     * @param path        the route to store
+     */
+    public synchronized void put(String start, String destination, String metric, long version, ShortestPath path) {
+        put(new RouteKey(start, destination, metric), version, path);
+    }
+
+    // stores a route under its key, clearing the cache first when the route is from a newer version
+    private void put(RouteKey key, long version, ShortestPath path) {
+        if (version < this.version)
+            return;
+        if (version > this.version) {
+            clear();
+            this.version = version;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.path = path;
+            if (policy == EvictionPolicy.LEAST_FREQUENTLY_USED)
+                touch(key, entry);
+            return;
+        }
+        if (entries.size() == capacity)
+            evict();
+        entries.put(key, new Entry(path, version));
+        if (policy == EvictionPolicy.LEAST_FREQUENTLY_USED) {
+            frequencies.computeIfAbsent(1, count -> new LinkedHashSet<>()).add(key);
+            minFrequency = 1;
+        }
+    }
+
+    // moves a key from its use count's set to the next one
+    private void touch(RouteKey key, Entry entry) {
+        LinkedHashSet<RouteKey> keys = frequencies.get(entry.frequency);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            frequencies.remove(entry.frequency);
+            if (minFrequency == entry.frequency)
+                minFrequency++;
+        }
+        entry.frequency++;
+        frequencies.computeIfAbsent(entry.frequency, count -> new LinkedHashSet<>()).add(key);
+    }
+
+    // removes the route that the eviction policy picks
+    private void evict() {
+        RouteKey victim;
+        if (policy == EvictionPolicy.LEAST_FREQUENTLY_USED) {
+            LinkedHashSet<RouteKey> keys = frequencies.get(minFrequency);
+            Iterator<RouteKey> oldest = keys.iterator();
+            victim = oldest.next();
+            oldest.remove();
+            if (keys.isEmpty())
+                frequencies.remove(minFrequency);
+        } else {
+            victim = entries.keySet().iterator().next();
+        }
+        entries.remove(victim);
+    }
+
+    /**
+     * Removes every cached route. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        frequencies.clear();
+        minFrequency = 0;
+    }
+
+    /**
+     * Returns the number of routes currently cached.
+     *
+     * @return the number of cached routes
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached route.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that found no cached route.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+}
@@ -0,0 +1,149 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class holds the Java Flight Recorder events that graph loads and
+ * route queries emit, so that a slow query in a recording can be lined up
+ * with the garbage collections, allocations and lock waits around it. A
+ * route query is a RouteQuery event, which contains the Search that found the
+ * route (unless it came from the cache) and the PathReconstruction that
+ * turned the search's result into a ShortestPath.
+ *
+ * The events are all enabled by default, with a threshold of 0 ms, so they
+ * are in every recording that doesn't turn them off. When no recording is
+ * running, creating and beginning an event costs next to nothing, and its
+ * fields are never filled in.
+ */
+public class RouteEvents {
+
+    /**
+     * Emitted for every file that Backend.readFile loads.
+     */
+    @Name("routes.GraphLoad")
+    @Label("Graph Load")
+    @Category("Routes")
+    @Description("A map file parsed and published by Backend.readFile")
+    @StackTrace(false)
+    public static class GraphLoad extends Event {
+        @Label("File")
+        public String file;
+
+        @Label("Parallel")
+        @Description("Whether the file was parsed on several threads")
+        public boolean parallel;
+
+        @Label("File Size")
+        @DataAmount
+        public long fileSize;
+
+        @Label("Lines")
+        public int lineCount;
+
+        @Label("Buildings")
+        public int nodeCount;
+
+        @Label("Paths")
+        @Description("The number of directed edges loaded, two for each path that can be walked both ways")
+        public int edgeCount;
+
+        @Label("Parse Time")
+        @Description("The part of the load spent parsing the file and building its graph, before preprocessing")
+        @Timespan(Timespan.NANOSECONDS)
+        public long parseTime;
+    }
+
+    /**
+     * Emitted for every route asked for through Backend.getShortestPath,
+     * whether it is found or not.
+     */
+    @Name("routes.RouteQuery")
+    @Label("Route Query")
+    @Category("Routes")
+    @Description("A route asked for through Backend.getShortestPath")
+    public static class RouteQuery extends Event {
+        @Label("Start")
+        public String start;
+
+        @Label("Destination")
+        public String destination;
+
+        @Label("Metric")
+        @Description("The route metric the route was found under, or null when it was found by walking time")
+        public String metric;
+
+        @Label("Found")
+        public boolean found;
+
+        @Label("Path Length")
+        @Description("The number of buildings on the route, including its start and destination")
+        public int pathLength;
+
+        @Label("Walking Time")
+        @Description("The walking time of the route, in seconds")
+        public double walkingTime;
+    }
+
+    /**
+     * Emitted for every shortest path search between two nodes that a
+     * DijkstraGraph runs.
+     */
+    @Name("routes.Search")
+    @Label("Shortest Path Search")
+    @Category("Routes")
+    @Description("A Dijkstra, A* or bidirectional search between two nodes of a DijkstraGraph")
+    @StackTrace(false)
+    public static class Search extends Event {
+        @Label("Start")
+        public String start;
+
+        @Label("End")
+        public String end;
+
+        @Label("Queue Type")
+        public String queueType;
+
+        @Label("Bidirectional")
+        public boolean bidirectional;
+
+        @Label("Found")
+        public boolean found;
+
+        @Label("Nodes Settled")
+        public int settled;
+
+        @Label("Edges Relaxed")
+        public int relaxed;
+
+        @Label("Stale Pops")
+        @Description("The queue entries popped for nodes that were already settled")
+        public int stalePops;
+
+        @Label("Peak Queue Size")
+        public int peakQueueSize;
+    }
+
+    /**
+     * Emitted whenever a ShortestPath turns the result of a search into its
+     * lists of buildings and walking times.
+     */
+    @Name("routes.PathReconstruction")
+    @Label("Path Reconstruction")
+    @Category("Routes")
+    @Description("The lists of buildings and walking times of a ShortestPath built from a search result")
+    @StackTrace(false)
+    public static class PathReconstruction extends Event {
+        @Label("Path Length")
+        public int pathLength;
+
+        @Label("Walking Time")
+        @Description("The walking time of the route, in seconds")
+        public double walkingTime;
+    }
+
+}
@@ -0,0 +1,23 @@
+/**
+ * A SearchHeuristic estimates the cost of the shortest path between two nodes
+ * of a graph, so that an A* search can expand the nodes that look closest to
+ * its destination first. For an A* search to find shortest paths, the
+ * estimates must be consistent: the estimate for a node must never exceed the
+ * weight of any edge leaving it plus the estimate for that edge's successor,
+ * and the estimate for the target itself must be 0. Consistent estimates
+ * never overestimate the cost of a shortest path.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface SearchHeuristic<NodeType> {
+
+    /**
+     * Estimates the cost of the shortest path from node to target.
+     *
+     * @param node   the data item in the node the path starts at
+     * @param target the data item in the node the path ends at
+     * @return a non-negative lower bound on the cost of that path
+     */
+    public double estimate(NodeType node, NodeType target);
+
+}
@@ -0,0 +1,200 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects what shortest path searches and file loads do: how
+ * many nodes each search settles, how many edges it relaxes, how large its
+ * queue grows, how many stale queue entries it pops and how long it takes,
+ * along with how long answering each route and parsing each file takes.
+ *
+ * The counters are LongAdders and the times are kept in LatencyHistograms,
+ * so any number of threads can record at once without locking. A search
+ * counts its work in local variables and records it here once, when it ends.
+ * Searches in a graph with no SearchMetrics attached record nothing at all,
+ * and don't even read the clock.
+ */
+public class SearchMetrics implements SearchMetricsMBean {
+
+    protected final LongAdder searchCount = new LongAdder();
+    protected final LongAdder failedSearchCount = new LongAdder();
+    protected final LongAdder nodesSettled = new LongAdder();
+    protected final LongAdder edgesRelaxed = new LongAdder();
+    protected final LongAdder stalePops = new LongAdder();
+    protected final LongAccumulator peakQueueSize = new LongAccumulator(Math::max, 0L);
+    protected final LatencyHistogram searchTimes = new LatencyHistogram();
+    protected final LatencyHistogram queryTimes = new LatencyHistogram();
+    protected final LongAdder fileLoadCount = new LongAdder();
+    protected final LongAdder linesParsed = new LongAdder();
+    protected volatile long lastParseTime = 0L;
+
+    /**
+     * An immutable copy of the metrics at one moment. Times are in
+     * nanoseconds.
+     */
+    public record Snapshot(long searchCount, long failedSearchCount, long nodesSettled, long edgesRelaxed,
+            long stalePops, long peakQueueSize, double meanSearchTime, long searchTimeP50, long searchTimeP99,
+            long searchTimeP999, long maxSearchTime, long queryCount, long queryTimeP50, long queryTimeP99,
+            long queryTimeP999, long fileLoadCount, long linesParsed, long lastParseTime) {
+    }
+
+    /**
+     * Records one search.
+     *
+     * @param settled       the number of nodes the search settled
+     * @param relaxed       the number of edges the search relaxed
+     * @param stale         the number of queue entries it popped for nodes
+     *                      that were already settled
+     * @param peakQueueSize the largest number of entries in its queue
+     * @param time          the wall time of the search, in nanoseconds
+     * @param found         whether the search found a path
+     */
+    public void recordSearch(int settled, int relaxed, int stale, int peakQueueSize, long time, boolean found) {
+        searchCount.increment();
+        if (!found)
+            failedSearchCount.increment();
+        nodesSettled.add(settled);
+        edgesRelaxed.add(relaxed);
+        if (stale != 0)
+            stalePops.add(stale);
+        this.peakQueueSize.accumulate(peakQueueSize);
+        searchTimes.record(time);
+    }
+
+    /**
+     * Records the time it took to answer one route, whether or not it was
+     * searched for.
+     *
+     * @param time the time, in nanoseconds
+     */
+    public void recordQuery(long time) {
+        queryTimes.record(time);
+    }
+
+    /**
+     * Records one file load.
+     *
+     * @param lines the number of lines in the file
+     * @param time  the time it took to parse the file and build its graph,
+     *              in nanoseconds
+     */
+    public void recordFileLoad(int lines, long time) {
+        fileLoadCount.increment();
+        linesParsed.add(lines);
+        lastParseTime = time;
+    }
+
+    /**
+     * Returns a copy of the metrics recorded so far.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(searchCount.sum(), failedSearchCount.sum(), nodesSettled.sum(), edgesRelaxed.sum(),
+                stalePops.sum(), peakQueueSize.get(), searchTimes.getMean(), searchTimes.getValueAtPercentile(50),
+                searchTimes.getValueAtPercentile(99), searchTimes.getValueAtPercentile(99.9),
+                searchTimes.getMax(), queryTimes.getCount(), queryTimes.getValueAtPercentile(50),
+                queryTimes.getValueAtPercentile(99), queryTimes.getValueAtPercentile(99.9), fileLoadCount.sum(),
+                linesParsed.sum(), lastParseTime);
+    }
+
+    @Override
+    public long getSearchCount() {
+        return searchCount.sum();
+    }
+
+    @Override
+    public long getFailedSearchCount() {
+        return failedSearchCount.sum();
+    }
+
+    @Override
+    public long getNodesSettled() {
+        return nodesSettled.sum();
+    }
+
+    @Override
+    public long getEdgesRelaxed() {
+        return edgesRelaxed.sum();
+    }
+
+    @Override
+    public long getStalePops() {
+        return stalePops.sum();
+    }
+
+    @Override
+    public long getPeakQueueSize() {
+        return peakQueueSize.get();
+    }
+
+    @Override
+    public double getMeanSearchTime() {
+        return searchTimes.getMean();
+    }
+
+    @Override
+    public long getSearchTimeP50() {
+        return searchTimes.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getSearchTimeP99() {
+        return searchTimes.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getSearchTimeP999() {
+        return searchTimes.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queryTimes.getCount();
+    }
+
+    @Override
+    public long getQueryTimeP50() {
+        return queryTimes.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getQueryTimeP99() {
+        return queryTimes.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getQueryTimeP999() {
+        return queryTimes.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getFileLoadCount() {
+        return fileLoadCount.sum();
+    }
+
+    @Override
+    public long getLinesParsed() {
+        return linesParsed.sum();
+    }
+
+    @Override
+    public long getLastParseTime() {
+        return lastParseTime;
+    }
+
+    @Override
+    public void reset() {
+        searchCount.reset();
+        failedSearchCount.reset();
+        nodesSettled.reset();
+        edgesRelaxed.reset();
+        stalePops.reset();
+        peakQueueSize.reset();
+        searchTimes.reset();
+        queryTimes.reset();
+        fileLoadCount.reset();
+        linesParsed.reset();
+        lastParseTime = 0L;
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * The management interface through which a SearchMetrics is published over
+ * JMX. Times are in nanoseconds.
+ */
+public interface SearchMetricsMBean {
+
+    /**
+     * @return the number of shortest path searches run
+     */
+    public long getSearchCount();
+
+    /**
+     * @return the number of searches that found no path
+     */
+    public long getFailedSearchCount();
+
+    /**
+     * @return the number of nodes settled, over every search
+     */
+    public long getNodesSettled();
+
+    /**
+     * @return the number of edges relaxed, over every search
+     */
+    public long getEdgesRelaxed();
+
+    /**
+     * @return the number of queue entries popped for nodes that were
+     *         already settled, over every search
+     */
+    public long getStalePops();
+
+    /**
+     * @return the largest number of entries any search held in its queue
+     */
+    public long getPeakQueueSize();
+
+    /**
+     * @return the mean wall time of a search
+     */
+    public double getMeanSearchTime();
+
+    /**
+     * @return the median wall time of a search
+     */
+    public long getSearchTimeP50();
+
+    /**
+     * @return the 99th percentile of the wall time of a search
+     */
+    public long getSearchTimeP99();
+
+    /**
+     * @return the 99.9th percentile of the wall time of a search
+     */
+    public long getSearchTimeP999();
+
+    /**
+     * @return the number of routes asked for
+     */
+    public long getQueryCount();
+
+    /**
+     * @return the median time it took to answer a route, including cache
+     *         lookups
+     */
+    public long getQueryTimeP50();
+
+    /**
+     * @return the 99th percentile of the time it took to answer a route
+     */
+    public long getQueryTimeP99();
+
+    /**
+     * @return the 99.9th percentile of the time it took to answer a route
+     */
+    public long getQueryTimeP999();
+
+    /**
+     * @return the number of files loaded
+     */
+    public long getFileLoadCount();
+
+    /**
+     * @return the number of lines parsed, over every loaded file
+     */
+    public long getLinesParsed();
+
+    /**
+     * @return the time it took to parse the last loaded file
+     */
+    public long getLastParseTime();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public void reset();
+
+}
@@ -1,31 +1,33 @@
 import java.util.List;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.NoSuchElementException;
 
 /*
  * This class stores the result of a shortest path search to be used when calling for the
- * shortestPath.
+ * shortestPath. The search is run once when the object is constructed, so the path, the
+ * walking times and the total cost always describe the same route.
  */
 public class ShortestPath implements ShortestPathInterface {
 
     /*
-     * The graph that the shortest path search is conducted in.
+     * The buildings along the path, ordered from the start to the destination.
      */
-    private DijkstraGraph<String, Double> buildingGraph;
+    private final List<String> path;
 
     /*
-     * The data item in the starting node for the path.
+     * The walking time of each path segment, ordered from the start to the destination.
      */
-    private String start;
+    private final List<Double> times;
 
     /*
-     * The data item in the destination node for the path.
+     * The total walking time of the path.
      */
-    private String end;
+    private final double totalPathCost;
 
     /*
-     * Constructor to intialize the shortestPath's graph, start node, and end node.
+     * Constructor that runs a single shortest path search from start to end in the
+     * provided graph and stores its result.
      */
     public ShortestPath(DijkstraGraph<String, Double> buildingGraph, String start, String end) {
         // if the start node is not within the graph throw a NoSuchElementException
@@ -36,10 +38,88 @@ public class ShortestPath implements ShortestPathInterface {
         if (!buildingGraph.containsNode(end)) {
             throw new NoSuchElementException("End node doesn't exist in the graph");
         }
-        // set the fields to the appropriate data values
-        this.buildingGraph = buildingGraph;
-        this.start = start;
-        this.end = end;
+        // run the search once and walk the resulting chain of search nodes back to the start
+        DijkstraGraph<String, Double>.SearchNode currNode = buildingGraph.computeShortestPath(start, end);
+        RouteEvents.PathReconstruction event = new RouteEvents.PathReconstruction();
+        event.begin();
+        this.totalPathCost = currNode.cost;
+        ArrayList<String> path = new ArrayList<>();
+        ArrayList<Double> times = new ArrayList<>();
+        while (currNode != null) {
+            path.add(currNode.node.data);
+            // the walking time of a segment is the cost difference between its two ends
+            if (currNode.predecessor != null) {
+                times.add(currNode.cost - currNode.predecessor.cost);
+            }
+            currNode = currNode.predecessor;
+        }
+        // the chain was walked from the end, so reverse both lists into path order
+        Collections.reverse(path);
+        Collections.reverse(times);
+        this.path = Collections.unmodifiableList(path);
+        this.times = Collections.unmodifiableList(times);
+        commit(event);
+    }
+
+    /*
+     * Constructor that stores a path that was found by another search engine (such as a
+     * ContractionHierarchy). The walking time of each segment is looked up in the provided
+     * graph, and the total walking time is their sum, added up in path order just like a
+     * Dijkstra search adds them.
+     */
+    public ShortestPath(GraphADT<String, Double> buildingGraph, List<String> path) {
+        RouteEvents.PathReconstruction event = new RouteEvents.PathReconstruction();
+        event.begin();
+        ArrayList<Double> times = new ArrayList<>();
+        double totalPathCost = 0.0;
+        for (int i = 1; i < path.size(); i++) {
+            double walkingTime = buildingGraph.getEdge(path.get(i - 1), path.get(i));
+            times.add(walkingTime);
+            totalPathCost += walkingTime;
+        }
+        this.path = Collections.unmodifiableList(new ArrayList<>(path));
+        this.times = Collections.unmodifiableList(times);
+        this.totalPathCost = totalPathCost;
+        commit(event);
+    }
+
+    /*
+     * Commits the flight recorder event for the reconstruction of this path, when a recording
+     * is running.
+     */
+    private void commit(RouteEvents.PathReconstruction event) {
+        if (event.shouldCommit()) {
+            event.pathLength = this.path.size();
+            event.walkingTime = this.totalPathCost;
+            event.commit();
+        }
+    }
+
+    /*
+     * Constructor that stores a path with already known walking times, adding the times
+     * up in path order.
+     */
+    private ShortestPath(List<String> path, List<Double> times) {
+        double totalPathCost = 0.0;
+        for (double walkingTime : times) {
+            totalPathCost += walkingTime;
+        }
+        this.path = Collections.unmodifiableList(path);
+        this.times = Collections.unmodifiableList(times);
+        this.totalPathCost = totalPathCost;
+    }
+
+    /*
+     * Returns the same path walked from the destination back to the start, which is also a
+     * shortest path when every path segment can be walked in both directions.
+     * @return the reversed path
+     */
+    public ShortestPath reversed() {
+        ArrayList<String> path = new ArrayList<>(this.path);
+        ArrayList<Double> times = new ArrayList<>(this.times);
+        Collections.reverse(path);
+        Collections.reverse(times);
+        return new ShortestPath(path, times);
     }
 
     /*
@@ -47,8 +127,6 @@ public class ShortestPath implements ShortestPathInterface {
      * @return arrayList of buildings that make up the path.
      */
     public List<String> path() {
-        // return the list of buildings accessed from the graph's shortestPathData method
-        List<String> path = buildingGraph.shortestPathData(start, end);
         return path;
     }
 
@@ -58,20 +136,6 @@ public class ShortestPath implements ShortestPathInterface {
      * @return arrayList of walking times
      */
     public List<Double> times() {
-        // set curretn search node to be the entire shortest path
-        DijkstraGraph<String, Double>.SearchNode currNode = buildingGraph.computeShortestPath(start, end);
-        ArrayList<Double> times = new ArrayList<>();
-        // initialize the total cost to the cost of the shortest path
-        double totalPathCost = currNode.cost;
-        double walkingTime = 0.0;
-        // add each walking time from each edge to its associated place in the arrayList
-        while (totalPathCost != 0.0) {
-            walkingTime = totalPathCost - currNode.predecessor.cost;
-            times.add(0, walkingTime);
-            totalPathCost -= walkingTime;
-            currNode = currNode.predecessor;
-        }
-
         return times;
     }
 
@@ -81,8 +145,6 @@ public class ShortestPath implements ShortestPathInterface {
      * @return the total path cost as a time
      */
     public double totalPathCost() {
-        //return the to totalCost accessed by the graph's shortestPathCost method
-        double totalPathCost = buildingGraph.shortestPathCost(start, end);
         return totalPathCost;
     }
 
@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class stores the result of a single Dijkstra search from one source
+ * node that ran until every reachable node was settled: the cost of the
+ * shortest path to each node and the id of that node's predecessor on it.
+ * Both are kept in primitive arrays indexed by node id, and the path to a
+ * node is only rebuilt (by following predecessor ids back to the source) when
+ * it is asked for. So the costs and paths from one node to every other node
+ * take one search instead of one search per destination.
+ *
+ * A tree describes the graph at the time it was computed: nodes that were
+ * added to the graph later are reported as unreachable.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ShortestPathTree<NodeType> {
+
+    // the data item in the source node
+    protected NodeType source;
+
+    // the data, path cost and predecessor id of each node, indexed by node id (null,
+    // +infinity and -1 for unreachable nodes, and -1 as the predecessor of the source)
+    protected NodeType[] nodeData;
+    protected double[] distances;
+    protected int[] predecessors;
+
+    // the ids of the reachable nodes in the order they were settled (so in order of cost)
+    protected int[] settleOrder;
+    protected int reachedCount;
+
+    // looks up the id of the node containing some data, or returns -1 when there's none
+    protected ToIntFunction<NodeType> ids;
+
+    /**
+     * Constructor that wraps the arrays filled in by a search.
+     *
+     * @param source       the data item in the source node
+     * @param nodeData     the data of each reached node, indexed by node id
+     * @param distances    the cost of each node's shortest path, indexed by node id
+     * @param predecessors the id of each node's predecessor, indexed by node id
+     * @param settleOrder  the ids of the reached nodes in the order they were settled
+     * @param reachedCount the number of reached nodes
+     * @param ids          the lookup from node data to node id
+     */
+    protected ShortestPathTree(NodeType source, NodeType[] nodeData, double[] distances, int[] predecessors,
+            int[] settleOrder, int reachedCount, ToIntFunction<NodeType> ids) {
+        this.source = source;
+        this.nodeData = nodeData;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.settleOrder = settleOrder;
+        this.reachedCount = reachedCount;
+        this.ids = ids;
+    }
+
+    /**
+     * Returns the data item in the node that every path in this tree starts at.
+     *
+     * @return the source of this tree
+     */
+    public NodeType getSource() {
+        return source;
+    }
+
+    // looks up the id of a node in this tree, or returns -1 when it wasn't reached
+    private int reachedId(NodeType data) {
+        int id = ids.applyAsInt(data);
+        if (id < 0 || id >= nodeData.length || nodeData[id] == null || !nodeData[id].equals(data))
+            return -1;
+        return id;
+    }
+
+    /**
+     * Checks whether there is a path from the source to a node.
+     *
+     * @param data the data item in the destination node
+     * @return true if the node containing data is reachable from the source
+     */
+    public boolean reaches(NodeType data) {
+        return reachedId(data) >= 0;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the source to a node.
+     *
+     * @param data the data item in the destination node
+     * @return the cost of the shortest path to that node
+     * @throws NoSuchElementException when the node is missing or unreachable
+     */
+    public double costTo(NodeType data) {
+        int id = reachedId(data);
+        if (id < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        return distances[id];
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path from
+     * the source to a node, rebuilt from the predecessor ids.
+     *
+     * @param data the data item in the destination node
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException when the node is missing or unreachable
+     */
+    public List<NodeType> pathTo(NodeType data) {
+        int id = reachedId(data);
+        if (id < 0)
+            throw new NoSuchElementException("no path found between these nodes");
+        LinkedList<NodeType> pathData = new LinkedList<>();
+        for (int node = id; node != -1; node = predecessors[node])
+            pathData.addFirst(nodeData[node]);
+        return pathData;
+    }
+
+    /**
+     * Returns the data of every node reachable from the source (including the
+     * source itself), ordered from the closest to the farthest.
+     *
+     * @return an unmodifiable list of the reachable nodes' data
+     */
+    public List<NodeType> getReachedNodes() {
+        List<NodeType> reached = new ArrayList<>(reachedCount);
+        for (int i = 0; i < reachedCount; i++)
+            reached.add(nodeData[settleOrder[i]]);
+        return Collections.unmodifiableList(reached);
+    }
+
+    /**
+     * Returns the number of nodes reachable from the source, including the
+     * source itself.
+     *
+     * @return the number of nodes in this tree
+     */
+    public int getReachedCount() {
+        return reachedCount;
+    }
+
+}